@@ -0,0 +1,140 @@
+package com.example.jgit;
+
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Runs a query for each of a set of repositories in parallel, handing out results as they complete.
+ * <p>
+ * A query that times out is reported as failed, but keeps running until it returns (and keeps its thread busy):
+ * jGit shares open pack files between threads, which interrupting one of them may close.
+ * Must be closed to skip the queries not started yet if not consumed completely.
+ *
+ * @param <T> type of the query's result
+ */
+class FanOutQuery<T> implements Iterator<GitFanOutResult<T>>, AutoCloseable {
+
+    private final Function<GitWrapper, T> _query;
+    private final Duration _timeout;
+    private final int _resultCount;
+    private final BlockingQueue<GitFanOutResult<T>> _results = new LinkedBlockingQueue<>();
+    private final ExecutorService _executor;
+    private final ScheduledExecutorService _timeoutExecutor;
+    private volatile boolean _closed;
+    private int _takenCount;
+
+    FanOutQuery(Set<File> directories, Function<GitWrapper, T> query, GitFanOutOptions options) {
+        _query = query;
+        _timeout = options.getTimeout().orElse(null);
+        _resultCount = directories.size();
+        _executor = Executors.newFixedThreadPool(options.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fan-out-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (File directory : directories) {
+            _executor.execute(() -> run(directory));
+        }
+        _executor.shutdown();
+        if (_resultCount == 0) {
+            _timeoutExecutor.shutdown();
+        }
+    }
+
+    private void run(File directory) {
+        if (_closed) {
+            return;
+        }
+        long start = System.nanoTime();
+        // either the query or its timeout reports
+        AtomicBoolean reported = new AtomicBoolean();
+        ScheduledFuture<?> timeout;
+        try {
+            timeout = _timeout == null ? null : _timeoutExecutor.schedule(() -> {
+                if (reported.compareAndSet(false, true)) {
+                    _results.add(new GitFanOutResult<>(directory, null, new TimeoutException("Query timed out after " + _timeout), Duration.ofNanos(System.nanoTime() - start)));
+                }
+            }, _timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed in the meantime
+            return;
+        }
+        T value = null;
+        Throwable failure = null;
+        try {
+            value = _query.apply(open(directory));
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        if (reported.compareAndSet(false, true)) {
+            _results.add(new GitFanOutResult<>(directory, value, failure, Duration.ofNanos(System.nanoTime() - start)));
+        }
+    }
+
+    private static GitWrapper open(File directory) {
+        // creating missing repositories would be a surprising side effect of a query
+        if (new File(directory, Constants.DOT_GIT).isDirectory()) {
+            return GitWrapperFactory.createForLocalOnlyRepository(directory);
+        } else if (new File(directory, Constants.HEAD).isFile()) {
+            return GitWrapperFactory.createForLocalOnlyBareRepository(directory);
+        }
+        throw new IllegalArgumentException("Not a GIT repository: " + directory);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return _takenCount < _resultCount && !_closed;
+    }
+
+    @Override
+    public GitFanOutResult<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            GitFanOutResult<T> result = _results.take();
+            if (++_takenCount == _resultCount) {
+                // all queries returned or timed out
+                _timeoutExecutor.shutdownNow();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for results"));
+        }
+    }
+
+    @Override
+    public void close() {
+        // queries not started yet return at once, running ones are not interrupted (see above)
+        _closed = true;
+        _timeoutExecutor.shutdownNow();
+        _results.clear();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.jgit;
+
+/**
+ * Formats of {@link ThrowingGitWrapper#exportArchive(String, GitArchiveOptions, GitArchiveFormat, java.io.OutputStream)},
+ * like the ones of <a href="https://git-scm.com/docs/git-archive">git archive</a>.
+ */
+public enum GitArchiveFormat {
+    TAR, TAR_GZ, ZIP;
+}
@@ -0,0 +1,58 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Options for {@link ThrowingGitWrapper#exportArchive(String, GitArchiveOptions, GitArchiveFormat, java.io.OutputStream)}.
+ * The defaults export the whole tree.
+ */
+public class GitArchiveOptions {
+
+    private final Set<String> _paths = new LinkedHashSet<>();
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+    private long _maxBufferedBytes = 64 * 1024 * 1024;
+
+    /**
+     * Restrict the archive to the given files or directories ("/"-separated, relative to the repository root).
+     */
+    public GitArchiveOptions addPath(String path) {
+        _paths.add(path);
+        return this;
+    }
+
+    /**
+     * @param parallelism number of threads reading files ahead of the one writing the archive
+     */
+    public GitArchiveOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        _parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param maxBufferedBytes total size of the files read ahead; larger files are streamed while writing
+     */
+    public GitArchiveOptions setMaxBufferedBytes(long maxBufferedBytes) {
+        if (maxBufferedBytes < 0 || maxBufferedBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Max buffered bytes must be between 0 and " + (Integer.MAX_VALUE - 8) + ": " + maxBufferedBytes);
+        }
+        _maxBufferedBytes = maxBufferedBytes;
+        return this;
+    }
+
+    public Set<String> getPaths() {
+        return Collections.unmodifiableSet(_paths);
+    }
+
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    public long getMaxBufferedBytes() {
+        return _maxBufferedBytes;
+    }
+}
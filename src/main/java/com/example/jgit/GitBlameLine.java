@@ -0,0 +1,86 @@
+package com.example.jgit;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Origin of a single line, as returned by {@link ThrowingGitWrapper#blame(String, String)}.
+ */
+public class GitBlameLine {
+
+    private final String _commitSha1;
+    private final String _authorName;
+    private final String _authorEmail;
+    private final Instant _authorTime;
+    private final String _sourcePath;
+    private final int _sourceLineNumber;
+
+    public GitBlameLine(String commitSha1, String authorName, String authorEmail, Instant authorTime, String sourcePath, int sourceLineNumber) {
+        _commitSha1 = commitSha1;
+        _authorName = authorName;
+        _authorEmail = authorEmail;
+        _authorTime = authorTime;
+        _sourcePath = sourcePath;
+        _sourceLineNumber = sourceLineNumber;
+    }
+
+    /**
+     * @return SHA-1 of the commit that last changed the line
+     */
+    public String getCommitSha1() {
+        return _commitSha1;
+    }
+
+    public String getAuthorName() {
+        return _authorName;
+    }
+
+    public String getAuthorEmail() {
+        return _authorEmail;
+    }
+
+    public Instant getAuthorTime() {
+        return _authorTime;
+    }
+
+    /**
+     * @return the file's path in that commit (differs from the requested one if the file was renamed since)
+     */
+    public String getSourcePath() {
+        return _sourcePath;
+    }
+
+    /**
+     * @return the line's number in that commit, starting at 1
+     */
+    public int getSourceLineNumber() {
+        return _sourceLineNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GitBlameLine that = (GitBlameLine) o;
+        return _sourceLineNumber == that._sourceLineNumber &&
+                _commitSha1.equals(that._commitSha1) &&
+                _authorName.equals(that._authorName) &&
+                _authorEmail.equals(that._authorEmail) &&
+                _authorTime.equals(that._authorTime) &&
+                _sourcePath.equals(that._sourcePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(_commitSha1, _sourcePath, _sourceLineNumber);
+    }
+
+    @Override
+    public String toString() {
+        return _commitSha1 + " " + _sourcePath + ":" + _sourceLineNumber + " (" + _authorName + " " + _authorTime + ")";
+    }
+}
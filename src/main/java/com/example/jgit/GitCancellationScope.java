@@ -0,0 +1,13 @@
+package com.example.jgit;
+
+/**
+ * Returned by {@link ThrowingGitWrapper#startCancellationScope(GitCancellationToken)}.
+ */
+public interface GitCancellationScope extends AutoCloseable {
+
+    /**
+     * Stops checking the token; the token of an enclosing scope applies again.
+     */
+    @Override
+    void close();
+}
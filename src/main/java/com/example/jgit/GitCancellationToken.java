@@ -0,0 +1,69 @@
+package com.example.jgit;
+
+import java.time.Duration;
+
+/**
+ * Aborts long operations of a wrapper, see {@link ThrowingGitWrapper#startCancellationScope(GitCancellationToken)}.
+ * <p>
+ * A token is cancelled by calling {@link #cancel()} from any thread, or by passing its deadline.
+ * It may be shared by several operations and threads, e.g. all calls serving one request.
+ */
+public final class GitCancellationToken {
+
+    private final Duration _timeout;
+    private final long _deadlineNanos;
+    private volatile boolean _cancelled;
+
+    /**
+     * Creates a token without deadline, cancelled by {@link #cancel()} only.
+     */
+    public GitCancellationToken() {
+        _timeout = null;
+        _deadlineNanos = 0;
+    }
+
+    private GitCancellationToken(Duration timeout) {
+        _timeout = timeout;
+        _deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * @param timeout time until the token cancels itself, counted from now
+     */
+    public static GitCancellationToken withTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        return new GitCancellationToken(timeout);
+    }
+
+    public void cancel() {
+        _cancelled = true;
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called or the deadline has passed
+     */
+    public boolean isCancelled() {
+        return _cancelled || isTimedOut();
+    }
+
+    public boolean isTimedOut() {
+        return _timeout != null && System.nanoTime() - _deadlineNanos >= 0;
+    }
+
+    /**
+     * Meant to be called at points where an operation can stop without leaving anything half done.
+     *
+     * @throws GitTimeoutException   if the deadline has passed
+     * @throws GitCancelledException if {@link #cancel()} was called
+     */
+    public void throwIfCancelled() {
+        if (isTimedOut()) {
+            throw new GitTimeoutException(_timeout);
+        }
+        if (_cancelled) {
+            throw new GitCancelledException("Operation was cancelled");
+        }
+    }
+}
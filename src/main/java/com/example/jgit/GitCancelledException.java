@@ -0,0 +1,12 @@
+package com.example.jgit;
+
+/**
+ * Thrown by operations aborted through a {@link GitCancellationToken}.
+ * <p>
+ * Not wrapped by {@link GitWrapper}, so it can be caught the same way for both kinds of wrappers.
+ */
+public class GitCancelledException extends RuntimeException {
+    public GitCancelledException(String message) {
+        super(message);
+    }
+}
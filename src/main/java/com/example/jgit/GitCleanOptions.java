@@ -0,0 +1,82 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Options for {@link ThrowingGitWrapper#clean(GitCleanOptions)}.
+ * The defaults are equivalent to {@link ThrowingGitWrapper#clean()}, i.e. <code>git clean -dfx</code> for the whole working tree.
+ */
+public class GitCleanOptions {
+
+    private final Set<String> _paths = new LinkedHashSet<>();
+    private boolean _cleanIgnored = true;
+    private boolean _dryRun;
+    private boolean _collectPaths = true;
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Restrict cleaning to the given files or directories ("/"-separated, relative to the repository root).
+     * Only these parts of the working tree are scanned.
+     */
+    public GitCleanOptions addPath(String path) {
+        _paths.add(path);
+        return this;
+    }
+
+    /**
+     * @param cleanIgnored if false, files matched by a .gitignore are kept (no <code>-x</code>)
+     */
+    public GitCleanOptions setCleanIgnored(boolean cleanIgnored) {
+        _cleanIgnored = cleanIgnored;
+        return this;
+    }
+
+    /**
+     * @param dryRun if true, nothing is deleted, but the result reports what would have been
+     */
+    public GitCleanOptions setDryRun(boolean dryRun) {
+        _dryRun = dryRun;
+        return this;
+    }
+
+    /**
+     * @param collectPaths if false, only counts and sizes are reported, which saves memory for huge build outputs
+     */
+    public GitCleanOptions setCollectPaths(boolean collectPaths) {
+        _collectPaths = collectPaths;
+        return this;
+    }
+
+    /**
+     * @param parallelism number of threads deleting files and directory trees
+     */
+    public GitCleanOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        _parallelism = parallelism;
+        return this;
+    }
+
+    public Set<String> getPaths() {
+        return Collections.unmodifiableSet(_paths);
+    }
+
+    public boolean isCleanIgnored() {
+        return _cleanIgnored;
+    }
+
+    public boolean isDryRun() {
+        return _dryRun;
+    }
+
+    public boolean isCollectPaths() {
+        return _collectPaths;
+    }
+
+    public int getParallelism() {
+        return _parallelism;
+    }
+}
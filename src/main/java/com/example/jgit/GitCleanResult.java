@@ -0,0 +1,65 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Summary of a {@link ThrowingGitWrapper#clean(GitCleanOptions)} run.
+ */
+public class GitCleanResult {
+
+    private final Set<String> _cleanedPaths;
+    private final long _fileCount;
+    private final long _directoryCount;
+    private final long _byteCount;
+    private final boolean _dryRun;
+
+    public GitCleanResult(Set<String> cleanedPaths, long fileCount, long directoryCount, long byteCount, boolean dryRun) {
+        _cleanedPaths = Collections.unmodifiableSet(cleanedPaths);
+        _fileCount = fileCount;
+        _directoryCount = directoryCount;
+        _byteCount = byteCount;
+        _dryRun = dryRun;
+    }
+
+    /**
+     * @return cleaned files and directories (the latter with a trailing "/") like {@link ThrowingGitWrapper#clean()},
+     * or an empty set if {@link GitCleanOptions#setCollectPaths(boolean)} was disabled
+     */
+    public Set<String> getCleanedPaths() {
+        return _cleanedPaths;
+    }
+
+    /**
+     * @return number of deleted files, including the ones inside deleted directories
+     */
+    public long getFileCount() {
+        return _fileCount;
+    }
+
+    /**
+     * @return number of deleted directories, including nested ones
+     */
+    public long getDirectoryCount() {
+        return _directoryCount;
+    }
+
+    /**
+     * @return total size of the deleted files
+     */
+    public long getByteCount() {
+        return _byteCount;
+    }
+
+    /**
+     * @return true if nothing was actually deleted
+     */
+    public boolean isDryRun() {
+        return _dryRun;
+    }
+
+    @Override
+    public String toString() {
+        return (_dryRun ? "would clean " : "cleaned ") + _fileCount + " files, " + _directoryCount + " directories, " + _byteCount + " bytes";
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.jgit;
+
+/**
+ * SHA-1 of a commit in its binary form, 20 bytes instead of a 40 character String.
+ * <p>
+ * Meant for code handling many commits, e.g. the results of {@link ThrowingGitWrapper#getCommitIdsBetween(GitCommitId, GitCommitId)}:
+ * it takes about a third of the memory, and is hashed and compared without parsing hex digits.
+ * The hex form is created on demand only, see {@link #name()}.
+ */
+public final class GitCommitId implements Comparable<GitCommitId> {
+
+    static final int LENGTH = 20;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // big-endian words of the SHA-1, like jGit's ObjectId
+    private final int _w1;
+    private final int _w2;
+    private final int _w3;
+    private final int _w4;
+    private final int _w5;
+
+    private GitCommitId(int w1, int w2, int w3, int w4, int w5) {
+        _w1 = w1;
+        _w2 = w2;
+        _w3 = w3;
+        _w4 = w4;
+        _w5 = w5;
+    }
+
+    /**
+     * @param sha1 40 hex digits, as returned by e.g. {@link ThrowingGitWrapper#getHeadSha1()}
+     * @throws IllegalArgumentException if the String is no SHA-1
+     */
+    public static GitCommitId fromString(String sha1) {
+        if (sha1.length() != 2 * LENGTH) {
+            throw new IllegalArgumentException("Not a SHA-1: " + sha1);
+        }
+        int[] words = new int[5];
+        for (int i = 0; i < sha1.length(); i++) {
+            int digit = Character.digit(sha1.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a SHA-1: " + sha1);
+            }
+            words[i / 8] = words[i / 8] << 4 | digit;
+        }
+        return new GitCommitId(words[0], words[1], words[2], words[3], words[4]);
+    }
+
+    /**
+     * @param raw    array holding the 20 bytes of the SHA-1
+     * @param offset position of the first byte
+     */
+    public static GitCommitId fromRaw(byte[] raw, int offset) {
+        return new GitCommitId(readInt(raw, offset), readInt(raw, offset + 4), readInt(raw, offset + 8), readInt(raw, offset + 12), readInt(raw, offset + 16));
+    }
+
+    private static int readInt(byte[] raw, int offset) {
+        return raw[offset] << 24 | (raw[offset + 1] & 0xFF) << 16 | (raw[offset + 2] & 0xFF) << 8 | raw[offset + 3] & 0xFF;
+    }
+
+    /**
+     * Writes the 20 bytes of the SHA-1 to the given array.
+     */
+    public void copyRawTo(byte[] raw, int offset) {
+        writeInt(raw, offset, _w1);
+        writeInt(raw, offset + 4, _w2);
+        writeInt(raw, offset + 8, _w3);
+        writeInt(raw, offset + 12, _w4);
+        writeInt(raw, offset + 16, _w5);
+    }
+
+    private static void writeInt(byte[] raw, int offset, int value) {
+        raw[offset] = (byte) (value >>> 24);
+        raw[offset + 1] = (byte) (value >>> 16);
+        raw[offset + 2] = (byte) (value >>> 8);
+        raw[offset + 3] = (byte) value;
+    }
+
+    /**
+     * @return the 40 hex digits of the SHA-1
+     */
+    public String name() {
+        char[] hex = new char[2 * LENGTH];
+        int[] words = {_w1, _w2, _w3, _w4, _w5};
+        for (int i = 0; i < hex.length; i++) {
+            hex[i] = HEX_DIGITS[words[i / 8] >>> (28 - 4 * (i % 8)) & 0xF];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public int compareTo(GitCommitId other) {
+        // the order of the hex Strings
+        int result = Integer.compareUnsigned(_w1, other._w1);
+        if (result == 0) {
+            result = Integer.compareUnsigned(_w2, other._w2);
+        }
+        if (result == 0) {
+            result = Integer.compareUnsigned(_w3, other._w3);
+        }
+        if (result == 0) {
+            result = Integer.compareUnsigned(_w4, other._w4);
+        }
+        if (result == 0) {
+            result = Integer.compareUnsigned(_w5, other._w5);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GitCommitId)) {
+            return false;
+        }
+        GitCommitId other = (GitCommitId) o;
+        return _w1 == other._w1 && _w2 == other._w2 && _w3 == other._w3 && _w4 == other._w4 && _w5 == other._w5;
+    }
+
+    @Override
+    public int hashCode() {
+        // SHA-1 bits are evenly distributed already
+        return _w2;
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.jgit;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of commit ids packed into a single byte array, 20 bytes per commit.
+ * <p>
+ * Elements are created on access only, so holding millions of commits costs little more than their raw SHA-1s.
+ */
+public final class GitCommitIdList extends AbstractList<GitCommitId> implements RandomAccess {
+
+    private final byte[] _raw;
+    private final int _size;
+
+    private GitCommitIdList(byte[] raw, int size) {
+        _raw = raw;
+        _size = size;
+    }
+
+    /**
+     * Collects the raw ids of a {@link GitCommitIdList}.
+     */
+    public static class Builder {
+        private byte[] _raw;
+        private int _size;
+
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * @param expectedSize number of ids to make room for
+         */
+        public Builder(int expectedSize) {
+            _raw = new byte[Math.max(1, expectedSize) * GitCommitId.LENGTH];
+        }
+
+        /**
+         * @param raw    array holding the 20 bytes of the SHA-1
+         * @param offset position of the first byte
+         */
+        public Builder add(byte[] raw, int offset) {
+            ensureCapacity();
+            System.arraycopy(raw, offset, _raw, _size * GitCommitId.LENGTH, GitCommitId.LENGTH);
+            _size++;
+            return this;
+        }
+
+        public Builder add(GitCommitId commitId) {
+            ensureCapacity();
+            commitId.copyRawTo(_raw, _size * GitCommitId.LENGTH);
+            _size++;
+            return this;
+        }
+
+        private void ensureCapacity() {
+            if ((_size + 1) * GitCommitId.LENGTH > _raw.length) {
+                _raw = Arrays.copyOf(_raw, 2 * _raw.length);
+            }
+        }
+
+        /**
+         * The builder must not be used afterwards.
+         */
+        public GitCommitIdList build() {
+            // trimmed, so unused capacity is not kept for the lifetime of the list
+            GitCommitIdList result = new GitCommitIdList(Arrays.copyOf(_raw, _size * GitCommitId.LENGTH), _size);
+            _raw = null;
+            return result;
+        }
+    }
+
+    @Override
+    public GitCommitId get(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + _size);
+        }
+        return GitCommitId.fromRaw(_raw, index * GitCommitId.LENGTH);
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Writes the 20 bytes of the SHA-1 at the given index to the given array, without creating a {@link GitCommitId}.
+     */
+    public void copyRawTo(int index, byte[] raw, int offset) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + _size);
+        }
+        System.arraycopy(_raw, index * GitCommitId.LENGTH, raw, offset, GitCommitId.LENGTH);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.jgit;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Options for {@link GitWrapperFactory#fanOut(java.util.Set, java.util.function.Function, GitFanOutOptions)}.
+ * The defaults run as many queries at a time as there are cores, without timeout.
+ */
+public class GitFanOutOptions {
+
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+    private Duration _timeout;
+
+    /**
+     * @param parallelism number of repositories queried at the same time
+     */
+    public GitFanOutOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        _parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param timeout time a query of a single repository may take, counted from its start
+     */
+    public GitFanOutOptions setTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        _timeout = timeout;
+        return this;
+    }
+
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    public Optional<Duration> getTimeout() {
+        return Optional.ofNullable(_timeout);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.jgit;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Outcome of a query of a single repository, see {@link GitWrapperFactory#fanOut(java.util.Set, java.util.function.Function, GitFanOutOptions)}.
+ *
+ * @param <T> type of the query's result
+ */
+public class GitFanOutResult<T> {
+
+    private final File _directory;
+    private final T _value;
+    private final Throwable _failure;
+    private final Duration _duration;
+
+    public GitFanOutResult(File directory, T value, Throwable failure, Duration duration) {
+        _directory = directory;
+        _value = value;
+        _failure = failure;
+        _duration = duration;
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /**
+     * @return true if the query returned without throwing in time
+     */
+    public boolean isSuccessful() {
+        return _failure == null;
+    }
+
+    /**
+     * @return what the query returned, empty if it failed (or returned null)
+     */
+    public Optional<T> getValue() {
+        return Optional.ofNullable(_value);
+    }
+
+    /**
+     * @return what the query threw, or a {@link java.util.concurrent.TimeoutException} if it timed out
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(_failure);
+    }
+
+    /**
+     * @return time from the start of the query until it returned, threw or timed out
+     */
+    public Duration getDuration() {
+        return _duration;
+    }
+
+    @Override
+    public String toString() {
+        return _directory + ": " + (_failure == null ? _value : _failure) + " (" + _duration.toMillis() + " ms)";
+    }
+}
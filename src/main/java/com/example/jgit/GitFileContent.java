@@ -0,0 +1,103 @@
+package com.example.jgit;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of a file for {@link ThrowingGitWrapper#commitFileContents(String, java.util.Map, java.util.Set, String)},
+ * streamed into the repository instead of being held in memory.
+ */
+public final class GitFileContent {
+
+    /**
+     * Opens a new stream over the content, which is closed after reading.
+     */
+    @FunctionalInterface
+    public interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private final long _length;
+    private final StreamOpener _streamOpener;
+
+    private GitFileContent(long length, StreamOpener streamOpener) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must not be negative: " + length);
+        }
+        _length = length;
+        _streamOpener = streamOpener;
+    }
+
+    /**
+     * @param length number of bytes committed; a shorter stream fails the commit, a longer one is cut off
+     */
+    public static GitFileContent of(long length, StreamOpener streamOpener) {
+        return new GitFileContent(length, streamOpener);
+    }
+
+    public static GitFileContent of(byte[] content) {
+        return new GitFileContent(content.length, () -> new ByteArrayInputStream(content));
+    }
+
+    /**
+     * @param file its size is read right away, so it must not change until the commit
+     */
+    public static GitFileContent of(Path file) throws IOException {
+        return new GitFileContent(Files.size(file), () -> Files.newInputStream(file));
+    }
+
+    public long getLength() {
+        return _length;
+    }
+
+    /**
+     * @return a stream over exactly {@link #getLength()} bytes: longer content is cut off,
+     * shorter content fails with an {@link EOFException} at its end
+     */
+    public InputStream open() throws IOException {
+        return new FilterInputStream(_streamOpener.open()) {
+            private long _remaining = _length;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (_remaining == 0) {
+                    return -1;
+                }
+                int read = super.read(b, off, (int) Math.min(len, _remaining));
+                if (read < 0) {
+                    throw new EOFException("Content is " + _remaining + " bytes shorter than its length " + _length);
+                }
+                _remaining -= read;
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(Math.min(n, _remaining));
+                _remaining -= skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(super.available(), _remaining);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.jgit;
+
+import java.time.Instant;
+
+/**
+ * A commit touching a file, as returned by {@link ThrowingGitWrapper#getFileHistory(String, String, GitFileHistoryOptions)}.
+ */
+public class GitFileHistoryEntry {
+
+    private final String _commitSha1;
+    private final String _path;
+    private final GitDiffType _diffType;
+    private final Instant _commitTime;
+
+    public GitFileHistoryEntry(String commitSha1, String path, GitDiffType diffType, Instant commitTime) {
+        _commitSha1 = commitSha1;
+        _path = path;
+        _diffType = diffType;
+        _commitTime = commitTime;
+    }
+
+    public String getCommitSha1() {
+        return _commitSha1;
+    }
+
+    /**
+     * @return the file's path in this commit (differs from the requested one if renames are followed)
+     */
+    public String getPath() {
+        return _path;
+    }
+
+    /**
+     * @return how the commit changed the file, compared to its first parent
+     */
+    public GitDiffType getDiffType() {
+        return _diffType;
+    }
+
+    public Instant getCommitTime() {
+        return _commitTime;
+    }
+
+    @Override
+    public String toString() {
+        return _commitSha1 + " " + _diffType + " " + _path;
+    }
+}
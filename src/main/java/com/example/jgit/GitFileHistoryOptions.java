@@ -0,0 +1,67 @@
+package com.example.jgit;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Options for {@link ThrowingGitWrapper#getFileHistory(String, String, GitFileHistoryOptions)}.
+ * The defaults return the whole history of the given path, without following renames.
+ */
+public class GitFileHistoryOptions {
+
+    private boolean _followRenames;
+    private int _maxCount = Integer.MAX_VALUE;
+    private Instant _since;
+    private Instant _until;
+
+    /**
+     * @param followRenames if true, history continues with the old path when the file was renamed (like <code>git log --follow</code>)
+     */
+    public GitFileHistoryOptions setFollowRenames(boolean followRenames) {
+        _followRenames = followRenames;
+        return this;
+    }
+
+    /**
+     * @param maxCount maximum number of commits returned (like <code>git log -n</code>)
+     */
+    public GitFileHistoryOptions setMaxCount(int maxCount) {
+        if (maxCount < 0) {
+            throw new IllegalArgumentException("Max count must not be negative: " + maxCount);
+        }
+        _maxCount = maxCount;
+        return this;
+    }
+
+    /**
+     * @param since only commits with a commit time at or after this instant (like <code>git log --since</code>)
+     */
+    public GitFileHistoryOptions setSince(Instant since) {
+        _since = since;
+        return this;
+    }
+
+    /**
+     * @param until only commits with a commit time at or before this instant (like <code>git log --until</code>)
+     */
+    public GitFileHistoryOptions setUntil(Instant until) {
+        _until = until;
+        return this;
+    }
+
+    public boolean isFollowRenames() {
+        return _followRenames;
+    }
+
+    public int getMaxCount() {
+        return _maxCount;
+    }
+
+    public Optional<Instant> getSince() {
+        return Optional.ofNullable(_since);
+    }
+
+    public Optional<Instant> getUntil() {
+        return Optional.ofNullable(_until);
+    }
+}
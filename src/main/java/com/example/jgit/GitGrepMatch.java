@@ -0,0 +1,40 @@
+package com.example.jgit;
+
+/**
+ * A matching line, as returned by {@link ThrowingGitWrapper#grep(String, java.util.regex.Pattern, GitGrepOptions)}.
+ */
+public class GitGrepMatch {
+
+    private final String _path;
+    private final int _lineNumber;
+    private final String _line;
+
+    public GitGrepMatch(String path, int lineNumber, String line) {
+        _path = path;
+        _lineNumber = lineNumber;
+        _line = line;
+    }
+
+    public String getPath() {
+        return _path;
+    }
+
+    /**
+     * @return the line's number, starting at 1
+     */
+    public int getLineNumber() {
+        return _lineNumber;
+    }
+
+    /**
+     * @return the line, without line break
+     */
+    public String getLine() {
+        return _line;
+    }
+
+    @Override
+    public String toString() {
+        return _path + ":" + _lineNumber + ":" + _line;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Options for {@link ThrowingGitWrapper#grep(String, java.util.regex.Pattern, GitGrepOptions)}.
+ * The defaults search all text files of the whole tree.
+ */
+public class GitGrepOptions {
+
+    private final Set<String> _paths = new LinkedHashSet<>();
+    private long _maxFileSize = 50 * 1024 * 1024;
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Restrict the search to the given files or directories ("/"-separated, relative to the repository root).
+     */
+    public GitGrepOptions addPath(String path) {
+        _paths.add(path);
+        return this;
+    }
+
+    /**
+     * @param maxFileSize files larger than this (in bytes) are skipped, like binary files are
+     */
+    public GitGrepOptions setMaxFileSize(long maxFileSize) {
+        if (maxFileSize < 0) {
+            throw new IllegalArgumentException("Max file size must not be negative: " + maxFileSize);
+        }
+        _maxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * @param parallelism number of threads reading and searching files
+     */
+    public GitGrepOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        _parallelism = parallelism;
+        return this;
+    }
+
+    public Set<String> getPaths() {
+        return Collections.unmodifiableSet(_paths);
+    }
+
+    public long getMaxFileSize() {
+        return _maxFileSize;
+    }
+
+    public int getParallelism() {
+        return _parallelism;
+    }
+}
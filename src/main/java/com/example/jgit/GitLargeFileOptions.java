@@ -0,0 +1,71 @@
+package com.example.jgit;
+
+import java.util.Optional;
+import java.util.zip.Deflater;
+
+/**
+ * Options for {@link ThrowingGitWrapper#enableLargeFileStaging(GitLargeFileOptions)}.
+ * The defaults stream files from 16 MiB on, compressed at the fastest level.
+ */
+public class GitLargeFileOptions {
+
+    /**
+     * Notified while a large file is written to the object database.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param bytesWritten bytes of the file written so far
+         * @param totalBytes   size of the file
+         */
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+
+    private long _threshold = 16 * 1024 * 1024;
+    private int _compressionLevel = Deflater.BEST_SPEED;
+    private ProgressListener _progressListener;
+
+    /**
+     * @param threshold size in bytes from which on a file is streamed
+     */
+    public GitLargeFileOptions setThreshold(long threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        _threshold = threshold;
+        return this;
+    }
+
+    /**
+     * @param compressionLevel zlib level from {@link Deflater#NO_COMPRESSION} (store only, for already compressed files)
+     *                         to {@link Deflater#BEST_COMPRESSION}
+     */
+    public GitLargeFileOptions setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        _compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * @param progressListener called from the staging thread, after each chunk written
+     */
+    public GitLargeFileOptions setProgressListener(ProgressListener progressListener) {
+        _progressListener = progressListener;
+        return this;
+    }
+
+    public long getThreshold() {
+        return _threshold;
+    }
+
+    public int getCompressionLevel() {
+        return _compressionLevel;
+    }
+
+    public Optional<ProgressListener> getProgressListener() {
+        return Optional.ofNullable(_progressListener);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.jgit;
+
+/**
+ * Options for {@link ThrowingGitWrapper#enableMaintenance(GitMaintenanceOptions)}.
+ * The default thresholds are the ones of <a href="https://git-scm.com/docs/git-gc">git gc --auto</a>.
+ */
+public class GitMaintenanceOptions {
+
+    private int _writesBetweenChecks = 100;
+    private int _looseObjectThreshold = 6700;
+    private int _packThreshold = 50;
+    private int _looseRefThreshold = 100;
+
+    /**
+     * @param writesBetweenChecks number of writing calls (commits, branch updates, ...) after which the thresholds are checked
+     */
+    public GitMaintenanceOptions setWritesBetweenChecks(int writesBetweenChecks) {
+        _writesBetweenChecks = requirePositive(writesBetweenChecks);
+        return this;
+    }
+
+    /**
+     * @param looseObjectThreshold number of loose objects from which on the repository is repacked (<code>gc.auto</code>)
+     */
+    public GitMaintenanceOptions setLooseObjectThreshold(int looseObjectThreshold) {
+        _looseObjectThreshold = requirePositive(looseObjectThreshold);
+        return this;
+    }
+
+    /**
+     * @param packThreshold number of pack files from which on the repository is repacked (<code>gc.autoPackLimit</code>)
+     */
+    public GitMaintenanceOptions setPackThreshold(int packThreshold) {
+        _packThreshold = requirePositive(packThreshold);
+        return this;
+    }
+
+    /**
+     * @param looseRefThreshold number of loose refs (including HEAD) from which on refs are packed
+     */
+    public GitMaintenanceOptions setLooseRefThreshold(int looseRefThreshold) {
+        _looseRefThreshold = requirePositive(looseRefThreshold);
+        return this;
+    }
+
+    public int getWritesBetweenChecks() {
+        return _writesBetweenChecks;
+    }
+
+    public int getLooseObjectThreshold() {
+        return _looseObjectThreshold;
+    }
+
+    public int getPackThreshold() {
+        return _packThreshold;
+    }
+
+    public int getLooseRefThreshold() {
+        return _looseRefThreshold;
+    }
+
+    private static int requirePositive(int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Value must be positive: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Outcome of an in-core merge, see {@link ThrowingGitWrapper#predictMerge(String, String)}
+ * and {@link ThrowingGitWrapper#mergeWithoutCheckout(String, String, String)}.
+ */
+public class GitMergeResult {
+
+    private final Set<String> _mergedPaths;
+    private final Set<String> _conflictingPaths;
+    private final String _treeSha1;
+    private final String _commitSha1;
+
+    public GitMergeResult(Set<String> mergedPaths, Set<String> conflictingPaths, String treeSha1, String commitSha1) {
+        _mergedPaths = Collections.unmodifiableSet(mergedPaths);
+        _conflictingPaths = Collections.unmodifiableSet(conflictingPaths);
+        _treeSha1 = treeSha1;
+        _commitSha1 = commitSha1;
+    }
+
+    /**
+     * @return true if there are no conflicts
+     */
+    public boolean isSuccessful() {
+        return _conflictingPaths.isEmpty();
+    }
+
+    /**
+     * @return files changed on <code>theirs</code> side (since the merge base) that merge without conflicts
+     */
+    public Set<String> getMergedPaths() {
+        return _mergedPaths;
+    }
+
+    /**
+     * @return files that cannot be merged automatically, empty if {@link #isSuccessful()}
+     */
+    public Set<String> getConflictingPaths() {
+        return _conflictingPaths;
+    }
+
+    /**
+     * @return SHA-1 of the merged tree, if {@link #isSuccessful()}
+     */
+    public Optional<String> getTreeSha1() {
+        return Optional.ofNullable(_treeSha1);
+    }
+
+    /**
+     * @return SHA-1 of the branch after {@link ThrowingGitWrapper#mergeWithoutCheckout(String, String, String)}, if {@link #isSuccessful()};
+     * always empty for {@link ThrowingGitWrapper#predictMerge(String, String)}
+     */
+    public Optional<String> getCommitSha1() {
+        return Optional.ofNullable(_commitSha1);
+    }
+
+    @Override
+    public String toString() {
+        return isSuccessful() ?
+                "merged " + _mergedPaths + " into " + _treeSha1 + (_commitSha1 != null ? " (" + _commitSha1 + ")" : "") :
+                "conflicts in " + _conflictingPaths;
+    }
+}
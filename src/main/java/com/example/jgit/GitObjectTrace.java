@@ -0,0 +1,48 @@
+package com.example.jgit;
+
+import java.time.Duration;
+
+/**
+ * Counts what calls of a wrapper read from the object database, see {@link ThrowingGitWrapper#startObjectTrace()}.
+ * <p>
+ * Counters can be read at any time, also while tracing continues.
+ */
+public interface GitObjectTrace extends AutoCloseable {
+
+    /**
+     * @return number of commits, trees, blobs and tags read
+     */
+    long getObjectCount();
+
+    long getCommitCount();
+
+    long getTreeCount();
+
+    long getBlobCount();
+
+    /**
+     * @return total size of the objects read, uncompressed and with deltas applied
+     */
+    long getByteCount();
+
+    /**
+     * @return total number of entries of the trees read, i.e. files and directories walked
+     */
+    long getTreeEntryCount();
+
+    /**
+     * @return number of objects looked up but not found, e.g. while checking whether an object exists before writing it
+     */
+    long getMissingObjectCount();
+
+    /**
+     * @return time spent opening objects, i.e. finding them in pack files or loose object files, inflating them and applying deltas
+     */
+    Duration getReadDuration();
+
+    /**
+     * Stops tracing; the counters keep their values.
+     */
+    @Override
+    void close();
+}
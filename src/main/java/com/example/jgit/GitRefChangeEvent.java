@@ -0,0 +1,45 @@
+package com.example.jgit;
+
+import java.util.Optional;
+
+/**
+ * A ref that was created, moved or deleted, as published by {@link ThrowingGitWrapper#getRefChangePublisher()}.
+ */
+public class GitRefChangeEvent {
+
+    private final String _refName;
+    private final String _oldSha1;
+    private final String _newSha1;
+
+    public GitRefChangeEvent(String refName, String oldSha1, String newSha1) {
+        _refName = refName;
+        _oldSha1 = oldSha1;
+        _newSha1 = newSha1;
+    }
+
+    /**
+     * @return full name of the ref, e.g. "refs/heads/master" or "HEAD"
+     */
+    public String getRefName() {
+        return _refName;
+    }
+
+    /**
+     * @return SHA-1 the ref pointed to before, or empty if it was created
+     */
+    public Optional<String> getOldSha1() {
+        return Optional.ofNullable(_oldSha1);
+    }
+
+    /**
+     * @return SHA-1 the ref points to now, or empty if it was deleted
+     */
+    public Optional<String> getNewSha1() {
+        return Optional.ofNullable(_newSha1);
+    }
+
+    @Override
+    public String toString() {
+        return _refName + ": " + _oldSha1 + " > " + _newSha1;
+    }
+}
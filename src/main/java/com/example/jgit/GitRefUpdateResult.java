@@ -0,0 +1,10 @@
+package com.example.jgit;
+
+/**
+ * Wrapper around ReceiveCommand.Result in order not to expose jGit internals too much
+ */
+@SuppressWarnings("unused")
+public enum GitRefUpdateResult {
+    NOT_ATTEMPTED, REJECTED_NOCREATE, REJECTED_NODELETE, REJECTED_NONFASTFORWARD, REJECTED_CURRENT_BRANCH,
+    REJECTED_MISSING_OBJECT, REJECTED_OTHER_REASON, LOCK_FAILURE, OK;
+}
@@ -0,0 +1,70 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Outcome of replaying commits in memory, see {@link ThrowingGitWrapper#cherryPick(String, List, boolean)}
+ * and {@link ThrowingGitWrapper#rebase(String, String, boolean)}.
+ */
+public class GitReplayResult {
+
+    private final Map<String, String> _replayedCommits;
+    private final String _conflictingCommitSha1;
+    private final Set<String> _conflictingPaths;
+    private final String _commitSha1;
+
+    public GitReplayResult(Map<String, String> replayedCommits, String conflictingCommitSha1, Set<String> conflictingPaths, String commitSha1) {
+        _replayedCommits = Collections.unmodifiableMap(replayedCommits);
+        _conflictingCommitSha1 = conflictingCommitSha1;
+        _conflictingPaths = Collections.unmodifiableSet(conflictingPaths);
+        _commitSha1 = commitSha1;
+    }
+
+    /**
+     * @return true if all commits were replayed without conflicts
+     */
+    public boolean isSuccessful() {
+        return _conflictingCommitSha1 == null;
+    }
+
+    /**
+     * @return SHA-1 of each replayed commit > SHA-1 of its copy, in the order they were replayed.
+     * Commits whose changes the branch contains already are left out, like git does.
+     * If not {@link #isSuccessful()}, the copies made before the conflict; they are not written to the repository.
+     */
+    public Map<String, String> getReplayedCommits() {
+        return _replayedCommits;
+    }
+
+    /**
+     * @return SHA-1 of the first commit that could not be replayed, empty if {@link #isSuccessful()}
+     */
+    public Optional<String> getConflictingCommitSha1() {
+        return Optional.ofNullable(_conflictingCommitSha1);
+    }
+
+    /**
+     * @return files of {@link #getConflictingCommitSha1()} that cannot be merged automatically, empty if {@link #isSuccessful()}
+     */
+    public Set<String> getConflictingPaths() {
+        return _conflictingPaths;
+    }
+
+    /**
+     * @return SHA-1 of the branch after replaying, if {@link #isSuccessful()}
+     */
+    public Optional<String> getCommitSha1() {
+        return Optional.ofNullable(_commitSha1);
+    }
+
+    @Override
+    public String toString() {
+        return isSuccessful() ?
+                "replayed " + _replayedCommits + " as " + _commitSha1 :
+                "conflicts in " + _conflictingPaths + " of " + _conflictingCommitSha1 + " after replaying " + _replayedCommits;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.jgit;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Result of {@link ThrowingGitWrapper#status()}, all paths "/"-separated and relative to the repository root.
+ */
+public class GitStatus {
+
+    private final Set<String> _added;
+    private final Set<String> _modified;
+    private final Set<String> _deleted;
+    private final Set<String> _untracked;
+
+    public GitStatus(Set<String> added, Set<String> modified, Set<String> deleted, Set<String> untracked) {
+        _added = Collections.unmodifiableSet(added);
+        _modified = Collections.unmodifiableSet(modified);
+        _deleted = Collections.unmodifiableSet(deleted);
+        _untracked = Collections.unmodifiableSet(untracked);
+    }
+
+    /**
+     * @return files added to the index, but not yet committed
+     */
+    public Set<String> getAdded() {
+        return _added;
+    }
+
+    /**
+     * @return files changed compared to HEAD, in the index or in the working tree
+     */
+    public Set<String> getModified() {
+        return _modified;
+    }
+
+    /**
+     * @return files of HEAD removed from the index or from the working tree
+     */
+    public Set<String> getDeleted() {
+        return _deleted;
+    }
+
+    /**
+     * @return files neither in the index nor ignored
+     */
+    public Set<String> getUntracked() {
+        return _untracked;
+    }
+
+    /**
+     * @return true if there is nothing to add or commit
+     */
+    public boolean isClean() {
+        return _added.isEmpty() && _modified.isEmpty() && _deleted.isEmpty() && _untracked.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "added=" + _added + ", modified=" + _modified + ", deleted=" + _deleted + ", untracked=" + _untracked;
+    }
+}
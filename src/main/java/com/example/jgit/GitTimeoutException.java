@@ -0,0 +1,23 @@
+package com.example.jgit;
+
+import java.time.Duration;
+
+/**
+ * Thrown by operations aborted because the deadline of their {@link GitCancellationToken} has passed.
+ */
+public class GitTimeoutException extends GitCancelledException {
+
+    private final Duration _timeout;
+
+    public GitTimeoutException(Duration timeout) {
+        super("Operation timed out after " + timeout);
+        _timeout = timeout;
+    }
+
+    /**
+     * @return the timeout the token was created with
+     */
+    public Duration getTimeout() {
+        return _timeout;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.jgit;
+
+import java.time.Duration;
+
+/**
+ * Timings of a {@link ThrowingGitWrapper#warmUp()} run.
+ * <p>
+ * Comparing the duration of the first query after a warm-up with the one of a cold wrapper shows what warming up saves.
+ */
+public class GitWarmUpResult {
+
+    private final Duration _openDuration;
+    private final Duration _packIndexDuration;
+    private final int _packCount;
+    private final Duration _refDatabaseDuration;
+    private final int _refCount;
+    private final Duration _headCommitDuration;
+
+    public GitWarmUpResult(Duration openDuration, Duration packIndexDuration, int packCount,
+                           Duration refDatabaseDuration, int refCount, Duration headCommitDuration) {
+        _openDuration = openDuration;
+        _packIndexDuration = packIndexDuration;
+        _packCount = packCount;
+        _refDatabaseDuration = refDatabaseDuration;
+        _refCount = refCount;
+        _headCommitDuration = headCommitDuration;
+    }
+
+    /**
+     * @return time it took to open the repository (reading its configuration), before warming up
+     */
+    public Duration getOpenDuration() {
+        return _openDuration;
+    }
+
+    /**
+     * @return time it took to read the indexes of all pack files
+     */
+    public Duration getPackIndexDuration() {
+        return _packIndexDuration;
+    }
+
+    public int getPackCount() {
+        return _packCount;
+    }
+
+    /**
+     * @return time it took to read all refs, packed and loose ones
+     */
+    public Duration getRefDatabaseDuration() {
+        return _refDatabaseDuration;
+    }
+
+    public int getRefCount() {
+        return _refCount;
+    }
+
+    /**
+     * @return time it took to read the HEAD commit and its root tree, zero if there is no commit yet
+     */
+    public Duration getHeadCommitDuration() {
+        return _headCommitDuration;
+    }
+
+    /**
+     * @return time it took to warm up, excluding {@link #getOpenDuration()}
+     */
+    public Duration getWarmUpDuration() {
+        return _packIndexDuration.plus(_refDatabaseDuration).plus(_headCommitDuration);
+    }
+
+    @Override
+    public String toString() {
+        return "opened in " + _openDuration.toMillis() + " ms, warmed up in " + getWarmUpDuration().toMillis() + " ms ("
+                + _packCount + " pack indexes: " + _packIndexDuration.toMillis() + " ms, "
+                + _refCount + " refs: " + _refDatabaseDuration.toMillis() + " ms, "
+                + "HEAD commit: " + _headCommitDuration.toMillis() + " ms)";
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.jgit;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Non-throwing version of the {@link ThrowingGitWrapper} interface.
@@ -21,9 +29,24 @@ public interface GitWrapper extends ThrowingGitWrapper {
     @Override
     Set<String> clean();
 
+    @Override
+    GitCleanResult clean(GitCleanOptions options);
+
+    @Override
+    GitStatus status();
+
+    @Override
+    void setWatchWorkingTree(boolean watch);
+
     @Override
     String commit(String message);
 
+    @Override
+    String commitFiles(String branchName, Map<String, byte[]> changes, Set<String> deletions, String message);
+
+    @Override
+    String commitFileContents(String branchName, Map<String, GitFileContent> changes, Set<String> deletions, String message);
+
     @Override
     String getLastLogEntry();
 
@@ -33,6 +56,9 @@ public interface GitWrapper extends ThrowingGitWrapper {
     @Override
     String getLastLogSha1();
 
+    @Override
+    GitCommitId getLastLogCommitId();
+
     @Override
     String getLastLogMessage();
 
@@ -45,18 +71,84 @@ public interface GitWrapper extends ThrowingGitWrapper {
     @Override
     String checkoutMasterAndDeleteBranch(String branchName);
 
+    @Override
+    Map<String, GitRefUpdateResult> createBranches(Map<String, String> branchNameToRevision);
+
+    @Override
+    Map<String, GitRefUpdateResult> deleteBranches(Set<String> branchNames);
+
+    @Override
+    Map<String, GitRefUpdateResult> renameBranches(Map<String, String> oldToNewBranchName);
+
     @Override
     String merge(String branchName);
 
+    @Override
+    GitMergeResult predictMerge(String ours, String theirs);
+
+    @Override
+    GitMergeResult mergeWithoutCheckout(String branchName, String theirs, String message);
+
+    @Override
+    GitReplayResult cherryPick(String branchName, List<String> revisions, boolean updateWorkingTree);
+
+    @Override
+    GitReplayResult rebase(String branchName, String upstream, boolean updateWorkingTree);
+
     @Override
     String resetHard();
 
     @Override
     String resetHardTo(String sha1OrBranch);
 
+    @Override
+    GitCommitId resetHardTo(GitCommitId commitId);
+
+    @Override
+    void setCheckoutParallelism(int threads);
+
+    @Override
+    void setSparseCheckoutPaths(Set<String> pathPrefixes);
+
+    @Override
+    Set<String> getSparseCheckoutPaths();
+
+    @Override
+    void enableMaintenance(GitMaintenanceOptions options);
+
+    @Override
+    void disableMaintenance();
+
+    @Override
+    void enableLargeFileStaging(GitLargeFileOptions options);
+
+    @Override
+    void disableLargeFileStaging();
+
+    @Override
+    CompletableFuture<GitWarmUpResult> warmUp();
+
+    @Override
+    CompletableFuture<GitWarmUpResult> warmUp(Executor executor);
+
+    @Override
+    GitObjectTrace startObjectTrace();
+
+    @Override
+    GitCancellationScope startCancellationScope(GitCancellationToken token);
+
+    @Override
+    Flow.Publisher<GitRefChangeEvent> getRefChangePublisher();
+
+    @Override
+    void setRefChangePollInterval(Duration interval);
+
     @Override
     String getHeadSha1();
 
+    @Override
+    Optional<GitCommitId> getHeadCommitId();
+
     @Override
     String getCurrentBranchName();
 
@@ -66,12 +158,45 @@ public interface GitWrapper extends ThrowingGitWrapper {
     @Override
     List<String> lsTree(String revisionString, String directoryPath);
 
+    @Override
+    void setTreeIndexEnabled(boolean enabled);
+
     @Override
     List<String> getCommitsBetween(String olderExclusive, String youngerExclusive);
 
+    @Override
+    GitCommitIdList getCommitIdsBetween(String olderExclusive, String youngerExclusive);
+
+    @Override
+    GitCommitIdList getCommitIdsBetween(GitCommitId olderExclusive, GitCommitId youngerExclusive);
+
+    @Override
+    Stream<GitGrepMatch> grep(String revisionString, Pattern pattern, GitGrepOptions options);
+
+    @Override
+    void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, OutputStream outputStream);
+
+    @Override
+    void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, WritableByteChannel channel);
+
+    @Override
+    Optional<String> findCommitAtOrBefore(String refName, Instant time);
+
+    @Override
+    List<String> getCommitsInTimeRange(String refName, Instant from, Instant to);
+
+    @Override
+    Stream<GitFileHistoryEntry> getFileHistory(String filePath, String fromRevision, GitFileHistoryOptions options);
+
+    @Override
+    List<GitBlameLine> blame(String filePath, String revisionString);
+
     @Override
     Optional<String> getMergeBase(String revisionString1, String revisionString2);
 
+    @Override
+    Optional<GitCommitId> getMergeBase(GitCommitId commitId1, GitCommitId commitId2);
+
     @Override
     Map<String, GitDiffType> getFileToDiffTypeForRevision(String revisionStringOld, String revisionStringNew);
 
@@ -8,13 +8,74 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class GitWrapperFactory {
 
     public static GitWrapper createForLocalOnlyRepository(File directory) {
+        return create(() -> ThrowingGitWrapperImpl.createForLocalOnlyRepository(directory));
+    }
+
+    /**
+     * @see ThrowingGitWrapperImpl#createForLocalOnlyBareRepository(File)
+     */
+    public static GitWrapper createForLocalOnlyBareRepository(File directory) {
+        return create(() -> ThrowingGitWrapperImpl.createForLocalOnlyBareRepository(directory));
+    }
+
+    /**
+     * @see ThrowingGitWrapperImpl#createWorktree(File, File, String)
+     */
+    public static GitWrapper createWorktree(File repositoryDirectory, File worktreeDirectory, String branchName) {
+        return create(() -> ThrowingGitWrapperImpl.createWorktree(repositoryDirectory, worktreeDirectory, branchName));
+    }
+
+    /**
+     * Like {@link #createForLocalOnlyRepository(File)}, but the repository is created or opened on the first call of the wrapper, not now.
+     * Failing to open it is reported by that call, and the next call tries again.
+     * <p>
+     * Opening many repositories at startup is cheap this way; see {@link GitWrapper#warmUp()} to prepare them for their first queries instead.
+     */
+    public static GitWrapper createLazilyForLocalOnlyRepository(File directory) {
+        return createLazily(() -> ThrowingGitWrapperImpl.createForLocalOnlyRepository(directory));
+    }
+
+    /**
+     * @see #createLazilyForLocalOnlyRepository(File)
+     * @see ThrowingGitWrapperImpl#createForLocalOnlyBareRepository(File)
+     */
+    public static GitWrapper createLazilyForLocalOnlyBareRepository(File directory) {
+        return createLazily(() -> ThrowingGitWrapperImpl.createForLocalOnlyBareRepository(directory));
+    }
+
+    /**
+     * Runs the given query for each of the given repositories, in parallel.
+     * <p>
+     * Existing repositories are opened like by {@link #createForLocalOnlyRepository(File)} or {@link #createForLocalOnlyBareRepository(File)};
+     * missing ones are reported as failed instead of being created.
+     * Results are returned as soon as each query returns, throws or times out, in no particular order.
+     * A query that times out keeps running in the background until it returns, though, taking one of the threads.
+     * The stream must be closed (e.g. by try-with-resources) to skip the remaining queries if it is not consumed completely.
+     *
+     * @param query e.g. <code>GitWrapper::getHeadSha1</code>
+     * @param <T>   type of the query's result
+     */
+    public static <T> Stream<GitFanOutResult<T>> fanOut(Set<File> directories, Function<GitWrapper, T> query, GitFanOutOptions options) {
+        FanOutQuery<T> iterator = new FanOutQuery<>(directories, query, options);
+        return StreamSupport.stream(Spliterators.spliterator(iterator, directories.size(), Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    private static GitWrapper create(Callable<ThrowingGitWrapper> throwingWrapperSupplier) {
         ThrowingGitWrapper wrapper;
         try {
-            wrapper = ThrowingGitWrapperImpl.createForLocalOnlyRepository(directory);
+            wrapper = throwingWrapperSupplier.call();
         } catch (IOException e) {
             throw new GitWrapperIOException(e);
         } catch (GitAPIException e) {
@@ -24,11 +85,34 @@ public class GitWrapperFactory {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        return createLazily(() -> wrapper);
+    }
+
+    private static GitWrapper createLazily(Callable<ThrowingGitWrapper> throwingWrapperSupplier) {
+        Callable<ThrowingGitWrapper> memoizedSupplier = new Callable<ThrowingGitWrapper>() {
+            private volatile ThrowingGitWrapper _wrapper;
+
+            @Override
+            public ThrowingGitWrapper call() throws Exception {
+                ThrowingGitWrapper wrapper = _wrapper;
+                if (wrapper == null) {
+                    synchronized (this) {
+                        wrapper = _wrapper;
+                        if (wrapper == null) {
+                            // not memoized if it fails, so the next call tries again
+                            wrapper = throwingWrapperSupplier.call();
+                            _wrapper = wrapper;
+                        }
+                    }
+                }
+                return wrapper;
+            }
+        };
         return (GitWrapper) Proxy.newProxyInstance(GitWrapperFactory.class.getClassLoader(), new Class<?>[]{GitWrapper.class}, (proxy, method, args) -> {
             try {
                 try {
                     Method matchingThrowingMethod = ThrowingGitWrapper.class.getMethod(method.getName(), method.getParameterTypes());
-                    return matchingThrowingMethod.invoke(wrapper, args);
+                    return matchingThrowingMethod.invoke(memoizedSupplier.call(), args);
                 } catch (InvocationTargetException e) {
                     throw e.getCause();
                 }
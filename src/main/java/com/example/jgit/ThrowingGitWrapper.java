@@ -2,14 +2,34 @@ package com.example.jgit;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public interface ThrowingGitWrapper {
+
+    /**
+     * Pseudo-revision for the index (staged changes), see {@link #getFileToDiffTypeForRevision(String, String)}.
+     * No valid ref name contains a colon.
+     */
+    String INDEX_REVISION = ":index";
+
+    /**
+     * Pseudo-revision for the working tree, see {@link #getFileToDiffTypeForRevision(String, String)}
+     */
+    String WORKING_TREE_REVISION = ":working-tree";
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-add">git add</a> for a specific file pattern.
      *
@@ -29,6 +49,35 @@ public interface ThrowingGitWrapper {
      */
     Set<String> clean() throws GitAPIException;
 
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-clean">git clean -df[x] [-n] [paths]</a>
+     * <p>
+     * Only the paths given in the options are scanned, and directory trees are deleted in parallel.
+     *
+     * @return what was (or, for a dry run, would have been) cleaned
+     */
+    GitCleanResult clean(GitCleanOptions options) throws IOException, GitAPIException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-status">git status</a>
+     * <p>
+     * Unchanged files are recognized by the index' stat cache and not re-hashed.
+     * With {@link #setWatchWorkingTree(boolean)}, only paths changed since the previous call are scanned again.
+     */
+    GitStatus status() throws IOException, GitAPIException;
+
+    /**
+     * Enables or disables watching the working tree for changes, see {@link #status()}.
+     * <p>
+     * Every directory of the working tree is registered with a {@link java.nio.file.WatchService},
+     * so mind the operating system's limit of watches (e.g. <code>fs.inotify.max_user_watches</code> on Linux).
+     * File system events are delivered asynchronously, so {@link #status()} writes a marker file and waits for the events of all
+     * changes made before it (usually a few milliseconds), and scans the whole working tree if they do not arrive within half a second.
+     * Changing an ignore file also causes a full scan. Where the JDK only polls for changes (e.g. on macOS), events arrive seconds late,
+     * so nothing is watched and every call scans like without watching.
+     */
+    void setWatchWorkingTree(boolean watch) throws IOException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-commit">git commit -m</a>
      *
@@ -36,6 +85,33 @@ public interface ThrowingGitWrapper {
      */
     String commit(String message) throws GitAPIException;
 
+    /**
+     * Creates a commit on the given branch straight from in-memory content, similar to
+     * <a href="https://git-scm.com/docs/git-commit-tree">git commit-tree</a> followed by
+     * <a href="https://git-scm.com/docs/git-update-ref">git update-ref</a>.
+     * <p>
+     * Neither the working tree nor the index are read or written, so the cost depends on the number of changed paths only,
+     * and this works for bare repositories, too. The branch is created if it does not exist yet.
+     * If the branch is currently checked out, working tree and index will not reflect the new commit
+     * until you call {@link #resetHard()}.
+     *
+     * @param branchName branch to commit on (without "refs/heads/")
+     * @param changes    mapping file path ("/"-separated, relative to the repository root) > new file content
+     * @param deletions  file paths to remove from the branch's tree
+     * @return successful commit's SHA-1
+     */
+    String commitFiles(String branchName, Map<String, byte[]> changes, Set<String> deletions, String message) throws IOException, GitAPIException;
+
+    /**
+     * Like {@link #commitFiles(String, Map, Set, String)}, but streams each file's content into the repository,
+     * so files of any size can be committed without holding them in memory.
+     * Files from the large-file threshold on are handled like in {@link #enableLargeFileStaging(GitLargeFileOptions)}, if enabled.
+     *
+     * @param changes mapping file path ("/"-separated, relative to the repository root) > new file content
+     * @return successful commit's SHA-1
+     */
+    String commitFileContents(String branchName, Map<String, GitFileContent> changes, Set<String> deletions, String message) throws IOException, GitAPIException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-log">git-log</a>
      *
@@ -57,6 +133,11 @@ public interface ThrowingGitWrapper {
      */
     String getLastLogSha1() throws GitAPIException;
 
+    /**
+     * Like {@link #getLastLogSha1()}, without creating a String.
+     */
+    GitCommitId getLastLogCommitId() throws GitAPIException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-log">git-log</a>
      *
@@ -69,14 +150,17 @@ public interface ThrowingGitWrapper {
      *
      * @return SHA-1 of HEAD after checkout (still equal to the one you branched from)
      */
-    String createBranchAndCheckout(String branchName) throws GitAPIException;
+    String createBranchAndCheckout(String branchName) throws IOException, GitAPIException;
 
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-checkout">git checkout</a>
+     * <p>
+     * Only files differing between HEAD and the branch are written, in parallel (see {@link #setCheckoutParallelism(int)}).
+     * If both have the same tree, only HEAD is moved.
      *
      * @return SHA-1 of HEAD after checkout
      */
-    String checkOutBranch(String branchName) throws GitAPIException;
+    String checkOutBranch(String branchName) throws IOException, GitAPIException;
 
     /**
      * Checks out branch ({@link #checkOutBranch(String)}), and
@@ -84,7 +168,49 @@ public interface ThrowingGitWrapper {
      *
      * @return name of deleted branch as ref ("refs/heads/BRANCH")
      */
-    String checkoutMasterAndDeleteBranch(String branchName) throws GitAPIException;
+    String checkoutMasterAndDeleteBranch(String branchName) throws IOException, GitAPIException;
+
+    /**
+     * Creates many branches at once, without checking any of them out
+     * (like <a href="https://git-scm.com/docs/git-update-ref">git update-ref --stdin</a>).
+     * <p>
+     * All branches are created in one atomic transaction: if a single one cannot be created
+     * (e.g. {@link GitRefUpdateResult#REJECTED_NOCREATE} because it already exists),
+     * none are, and the others are reported as {@link GitRefUpdateResult#REJECTED_OTHER_REASON}.
+     *
+     * @param branchNameToRevision mapping branch name > revision String the new branch should point to
+     * @return mapping branch name > result of its update
+     * @throws IllegalArgumentException if a branch name is invalid or a revision cannot be resolved
+     */
+    Map<String, GitRefUpdateResult> createBranches(Map<String, String> branchNameToRevision) throws IOException;
+
+    /**
+     * Deletes many branches at once, without checking out anything
+     * (like <a href="https://git-scm.com/docs/git-branch">git branch -D</a> with several branches).
+     * <p>
+     * All branches are deleted in one atomic transaction, see {@link #createBranches(Map)}.
+     * Deleting a non-existing branch fails with {@link GitRefUpdateResult#REJECTED_NODELETE},
+     * deleting the current branch with {@link GitRefUpdateResult#REJECTED_CURRENT_BRANCH}.
+     *
+     * @return mapping branch name > result of its update
+     * @throws IllegalArgumentException if a branch name is invalid
+     */
+    Map<String, GitRefUpdateResult> deleteBranches(Set<String> branchNames) throws IOException;
+
+    /**
+     * Renames many branches at once, without checking out anything
+     * (like <a href="https://git-scm.com/docs/git-branch">git branch -m</a> with several branches).
+     * <p>
+     * All branches are renamed in one atomic transaction, see {@link #createBranches(Map)}.
+     * Renaming the current branch fails with {@link GitRefUpdateResult#REJECTED_CURRENT_BRANCH}.
+     * The branches' reflogs are not moved.
+     *
+     * @param oldToNewBranchName mapping old branch name > new branch name
+     * @return mapping branch name (old and new ones) > result of its update
+     * @throws IllegalArgumentException if a branch name is invalid, or used more than once
+     *                                  (e.g. by chained renames like A > B, B > C, or swaps)
+     */
+    Map<String, GitRefUpdateResult> renameBranches(Map<String, String> oldToNewBranchName) throws IOException;
 
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-merge">git-merge --no-ff</a>
@@ -93,22 +219,224 @@ public interface ThrowingGitWrapper {
      */
     String merge(String branchName) throws GitAPIException;
 
+    /**
+     * Tells whether <a href="https://git-scm.com/docs/git-merge">git merge</a> of the given revisions would succeed,
+     * similar to <a href="https://git-scm.com/docs/git-merge-tree">git merge-tree</a>.
+     * <p>
+     * The merge runs completely in memory, using the same strategy as {@link #merge(String)}:
+     * neither the working tree nor the index are touched, and no objects are written to the repository.
+     *
+     * @param ours   revision String of the side to merge into, e.g. "HEAD"
+     * @param theirs revision String of the side to merge
+     * @throws IllegalArgumentException if a revision cannot be resolved
+     */
+    GitMergeResult predictMerge(String ours, String theirs) throws IOException;
+
+    /**
+     * Like {@link #merge(String)}, but merges into the given branch in memory and creates the merge commit straight away,
+     * similar to {@link #commitFiles(String, Map, Set, String)}.
+     * <p>
+     * Neither the working tree nor the index are read or written, so this works for bare repositories, too.
+     * If there are conflicts, nothing is written. If <code>theirs</code> is merged already, the branch is not changed.
+     * If the branch is currently checked out, working tree and index will not reflect the merge commit
+     * until you call {@link #resetHard()}.
+     *
+     * @param branchName branch to merge into (without "refs/heads/")
+     * @param theirs     revision String of the side to merge
+     * @throws IllegalArgumentException if the branch does not exist or the revision cannot be resolved
+     */
+    GitMergeResult mergeWithoutCheckout(String branchName, String theirs, String message) throws IOException, GitAPIException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-cherry-pick">git cherry-pick</a> of several commits,
+     * but replays them onto the given branch in memory, like {@link #mergeWithoutCheckout(String, String, String)}.
+     * <p>
+     * Authors and messages are kept. Commits whose changes the branch contains already are skipped.
+     * Replaying stops at the first conflict; nothing is written then. Otherwise the new objects are written
+     * and the branch is updated once. If the branch is checked out and <code>updateWorkingTree</code> is set,
+     * working tree and index are updated once at the end, keeping local changes like {@link #checkOutBranch(String)};
+     * if they would be overwritten, the branch is not changed.
+     *
+     * @param branchName branch to replay onto (without "refs/heads/")
+     * @param revisions  revision Strings of the commits to replay, in order
+     * @throws IllegalArgumentException if the branch does not exist, a revision cannot be resolved or is a merge commit
+     */
+    GitReplayResult cherryPick(String branchName, List<String> revisions, boolean updateWorkingTree) throws IOException, GitAPIException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-rebase">git rebase</a> of the given branch onto <code>upstream</code>,
+     * but in memory, see {@link #cherryPick(String, List, boolean)}.
+     * <p>
+     * The commits of the branch that <code>upstream</code> does not contain are replayed, oldest first;
+     * merge commits are left out, like git does by default. If <code>upstream</code> is merged already, the branch is not changed.
+     *
+     * @param branchName branch to rebase (without "refs/heads/")
+     * @param upstream   revision String to rebase onto
+     * @throws IllegalArgumentException if the branch does not exist or the revision cannot be resolved
+     */
+    GitReplayResult rebase(String branchName, String upstream, boolean updateWorkingTree) throws IOException, GitAPIException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-reset">git reset --hard</a>
      *
      * @return SHA-1 of HEAD after reset
      */
-    String resetHard() throws GitAPIException;
+    String resetHard() throws IOException, GitAPIException;
 
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-reset">git reset --hard</a>
+     * <p>
+     * Only files differing from the given revision are written, in parallel (see {@link #setCheckoutParallelism(int)}).
      *
      * @return SHA-1 of HEAD after reset
      */
-    String resetHardTo(String sha1OrBranch) throws GitAPIException;
+    String resetHardTo(String sha1OrBranch) throws IOException, GitAPIException;
+
+    /**
+     * Like {@link #resetHardTo(String)}, without parsing and creating Strings.
+     */
+    GitCommitId resetHardTo(GitCommitId commitId) throws IOException, GitAPIException;
+
+    /**
+     * Sets the number of threads writing files during checkouts and hard resets.
+     * Small checkouts are always written by the calling thread.
+     */
+    void setCheckoutParallelism(int threads);
+
+    /**
+     * Restricts the working tree to the given path prefixes, similar to
+     * <a href="https://git-scm.com/docs/git-sparse-checkout">git sparse-checkout set</a>.
+     * <p>
+     * The prefixes take effect with the next checkout or hard reset, which then only writes files below them.
+     * Other files are removed from the working tree, but stay in the index (flagged "assume unchanged"),
+     * so they are still part of new commits. {@link #status()} and {@link #add(String)} ignore them.
+     * Merges may still write files outside of the prefixes.
+     * <p>
+     * The prefixes are kept by this wrapper only; other wrappers for the same repository
+     * should set the same prefixes before checking out.
+     *
+     * @param pathPrefixes directories or files ("/"-separated, relative to the repository root), or an empty set for the whole tree
+     */
+    void setSparseCheckoutPaths(Set<String> pathPrefixes);
+
+    /**
+     * @return the path prefixes set by {@link #setSparseCheckoutPaths(Set)}, or an empty set for the whole tree
+     */
+    Set<String> getSparseCheckoutPaths();
+
+    /**
+     * Starts packing the repository in the background, similar to <a href="https://git-scm.com/docs/git-gc">git gc --auto</a>.
+     * <p>
+     * After every few writing calls of this wrapper, a background thread checks the number of loose objects, pack files and loose refs.
+     * If one of them crosses its threshold, refs are packed, or objects are repacked and loose objects pruned.
+     * Reads keep running meanwhile; writes of this wrapper wait until packing is done.
+     * Writes of other wrappers or processes are safe, too, as long as they finish within <code>gc.pruneExpire</code> (two weeks by default).
+     * Calling this again replaces the options.
+     */
+    void enableMaintenance(GitMaintenanceOptions options) throws IOException;
+
+    /**
+     * Stops the maintenance started by {@link #enableMaintenance(GitMaintenanceOptions)}, waiting for running packing to finish.
+     *
+     * @throws IOException if packing failed since maintenance was enabled
+     */
+    void disableMaintenance() throws IOException;
+
+    /**
+     * Makes {@link #add(String)} and {@link #addAll()} stream files above the threshold into the object database.
+     * <p>
+     * Such files are written as loose objects in chunks, at the given compression level, so neither the file
+     * nor its compressed form is held on the heap. Packing them later (see {@link #enableMaintenance(GitMaintenanceOptions)})
+     * does not delta-compress objects above jGit's <code>core.bigFileThreshold</code>.
+     * Calling this again replaces the options.
+     */
+    void enableLargeFileStaging(GitLargeFileOptions options);
+
+    /**
+     * Makes staging use jGit's default object inserter for all files again.
+     */
+    void disableLargeFileStaging();
+
+    /**
+     * Reads what the first query would otherwise have to read, on a small pool of background threads shared by all wrappers:
+     * the indexes of all pack files, all refs (including <code>packed-refs</code>) and the HEAD commit with its root tree.
+     * <p>
+     * Meant to be called for each repository at startup, so the first queries do not pay for cold caches.
+     * For a wrapper created by {@link GitWrapperFactory#createLazilyForLocalOnlyRepository(File)},
+     * this opens the repository on the calling thread.
+     *
+     * @return the timings, or an IOException if reading failed
+     */
+    CompletableFuture<GitWarmUpResult> warmUp();
+
+    /**
+     * Like {@link #warmUp()}, but reads on the given executor, e.g. to bound or prioritize warm-ups together with other startup work.
+     */
+    CompletableFuture<GitWarmUpResult> warmUp(Executor executor);
+
+    /**
+     * Starts counting what this wrapper's calls on the current thread read from the object database, until the returned trace is closed:
+     * <pre>
+     * try (GitObjectTrace trace = wrapper.startObjectTrace()) {
+     *     wrapper.lsTree("HEAD", ".");
+     *     log(trace.getTreeCount() + " trees read in " + trace.getReadDuration());
+     * }
+     * </pre>
+     * Traces may be nested; reads are counted by all open traces of the thread then.
+     * Reads of background threads (e.g. of {@link #grep(String, Pattern, GitGrepOptions)} or a parallel checkout) are not counted.
+     * Without an open trace, reads are not slowed down.
+     */
+    GitObjectTrace startObjectTrace();
+
+    /**
+     * Makes this wrapper's long operations called on the current thread check the given token, until the returned scope is closed:
+     * <pre>
+     * try (GitCancellationScope ignored = wrapper.startCancellationScope(GitCancellationToken.withTimeout(Duration.ofSeconds(30)))) {
+     *     wrapper.getFileToDiffTypeForRevision(oldRevision, newRevision, true);
+     * }
+     * </pre>
+     * Once the token is cancelled, the operation throws a {@link GitCancelledException}, or a {@link GitTimeoutException} if its deadline has passed.
+     * Checked are rename detection of {@link #getFileToDiffTypeForRevision(String, String, boolean)},
+     * the commit walk of {@link #getCommitsBetween(String, String)} and its variants, both clean methods, {@link #merge(String)},
+     * {@link #checkOutBranch(String)} and the reset methods.
+     * <p>
+     * Refs, objects and the index are never left half written: a cancelled merge restores the files it has already written,
+     * a cancelled clean keeps what it has deleted so far. A reset cancelled while writing files keeps HEAD and the index,
+     * so the files already written show up as modified; repeating the reset completes it.
+     * A checkout is only cancelled before it starts writing files.
+     * <p>
+     * Scopes may be nested; the innermost token applies then.
+     */
+    GitCancellationScope startCancellationScope(GitCancellationToken token);
+
+    /**
+     * Publishes an event for each ref that is created, moved or deleted, e.g. by {@link #commit(String)}, {@link #merge(String)},
+     * {@link #resetHardTo(String)}, or creating, deleting and checking out branches.
+     * HEAD is reported when it points to another commit or is linked to another branch.
+     * <p>
+     * Refs are compared to a snapshot after each writing call of this wrapper and whenever jGit notices changed refs while reading them,
+     * so changes made by other processes are published once noticed (see {@link #setRefChangePollInterval(Duration)}).
+     * Events are published asynchronously, in order, by a {@link java.util.concurrent.SubmissionPublisher}.
+     * Subscribers may call this wrapper while handling events.
+     */
+    Flow.Publisher<GitRefChangeEvent> getRefChangePublisher();
+
+    /**
+     * Sets how often refs are read from disk to notice changes made by other processes, see {@link #getRefChangePublisher()}.
+     *
+     * @param interval time between two polls, or {@link Duration#ZERO} to stop polling (the default)
+     */
+    void setRefChangePollInterval(Duration interval);
 
     String getHeadSha1() throws IOException;
 
+    /**
+     * Like {@link #getHeadSha1()}, without creating a String.
+     *
+     * @return empty if there is no commit yet
+     */
+    Optional<GitCommitId> getHeadCommitId() throws IOException;
+
     String getCurrentBranchName() throws IOException;
 
     /**
@@ -135,6 +463,15 @@ public interface ThrowingGitWrapper {
      */
     List<String> lsTree(String revisionString, String directoryPath) throws IOException;
 
+    /**
+     * Enables or disables indexing trees for {@link #getFileContentOfRevision(String, String)} and {@link #lsTree(String, String)}.
+     * <p>
+     * When enabled, all file paths of a revision's tree are written to an index file in the repository's GIT directory on first access.
+     * Further calls for revisions with that tree look up paths by binary search in the memory-mapped index file,
+     * instead of walking the tree from its root. Index files are never deleted automatically, and shared by all wrappers in the JVM.
+     */
+    void setTreeIndexEnabled(boolean enabled);
+
     /**
      * Encapsulates a simple <a href="https://git-scm.com/docs/git-rev-list">git rev-list olderRevision youngerRevision</a>
      *
@@ -142,6 +479,101 @@ public interface ThrowingGitWrapper {
      */
     List<String> getCommitsBetween(String olderExclusive, String youngerExclusive) throws IOException;
 
+    /**
+     * Like {@link #getCommitsBetween(String, String)}, but the commits are packed into a compact list,
+     * which pays off for long ranges.
+     */
+    GitCommitIdList getCommitIdsBetween(String olderExclusive, String youngerExclusive) throws IOException;
+
+    /**
+     * Like {@link #getCommitsBetween(String, String)}, but without parsing Strings,
+     * and the commits are packed into a compact list, which pays off for long ranges.
+     */
+    GitCommitIdList getCommitIdsBetween(GitCommitId olderExclusive, GitCommitId youngerExclusive) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-grep">git grep -n -I -e pattern revision -- paths</a>
+     * <p>
+     * The tree is walked once, and files are searched in parallel, each distinct content only once.
+     * Binary files and files larger than {@link GitGrepOptions#setMaxFileSize(long)} are skipped.
+     * Matches are returned while the search is still running, in no particular order.
+     * The stream must be closed (e.g. by try-with-resources) to stop the search if it is not consumed completely.
+     *
+     * @param revisionString revision String identifying the revision you want
+     * @param pattern        searched for in each line separately
+     * @return the matching lines
+     * @throws IllegalArgumentException if the revision cannot be resolved
+     */
+    Stream<GitGrepMatch> grep(String revisionString, Pattern pattern, GitGrepOptions options) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-archive">git archive</a>
+     * <p>
+     * Streams the files of the revision from the object database, without touching the working tree.
+     * Files are read in parallel ahead of writing, see {@link GitArchiveOptions}. The stream is not closed.
+     *
+     * @param revisionString revision String of a commit, e.g. "HEAD"; its commit time is used for all files
+     * @throws IllegalArgumentException if the revision cannot be resolved
+     */
+    void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, OutputStream outputStream) throws IOException;
+
+    /**
+     * Like {@link #exportArchive(String, GitArchiveOptions, GitArchiveFormat, OutputStream)}, writing to a channel.
+     * The channel is not closed.
+     */
+    void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, WritableByteChannel channel) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-rev-list">git rev-list --first-parent -n 1 --before=time ref</a>,
+     * i.e. finds the commit the ref pointed to at the given time, judging by commit times.
+     * <p>
+     * The commit times of the ref's first-parent history are indexed in the repository's GIT directory,
+     * so lookups take logarithmic time. The index is extended by new commits on each call, and rebuilt if the ref was reset.
+     * A commit time older than one of the commit's ancestors is treated as equal to the youngest of them.
+     *
+     * @param refName branch name or other ref, e.g. "master", "refs/heads/master" or "HEAD"
+     * @return SHA-1 of the newest commit not younger than time, or empty if the ref's history starts later
+     * @throws IllegalArgumentException if the ref does not exist
+     */
+    Optional<String> findCommitAtOrBefore(String refName, Instant time) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-rev-list">git rev-list --first-parent --since=from --until=to ref</a>,
+     * see {@link #findCommitAtOrBefore(String, Instant)}.
+     *
+     * @param from start time, inclusive
+     * @param to   end time, inclusive
+     * @return SHA-1 of the ref's first-parent commits in the time range, newest first
+     * @throws IllegalArgumentException if the ref does not exist
+     */
+    List<String> getCommitsInTimeRange(String refName, Instant from, Instant to) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-log">git log [--follow] fromRevision -- filePath</a>
+     * <p>
+     * Commits are read lazily while the stream is consumed, newest first.
+     * The stream must be closed (e.g. by try-with-resources) to release the underlying resources.
+     *
+     * @param filePath     path of the file in fromRevision
+     * @param fromRevision revision String to start from, e.g. "HEAD"
+     * @return the commits touching the file
+     */
+    Stream<GitFileHistoryEntry> getFileHistory(String filePath, String fromRevision, GitFileHistoryOptions options) throws IOException;
+
+    /**
+     * Encapsulates <a href="https://git-scm.com/docs/git-blame">git blame revision -- filePath</a>
+     * <p>
+     * Results are cached in the repository's GIT directory, per version of the file.
+     * Blaming a file again after it changed only processes the commits since the cached version
+     * (as long as it was not changed by a merge or renamed in between).
+     *
+     * @param filePath       path of the file in the given revision
+     * @param revisionString revision String identifying the revision you want
+     * @return the origin of each of the file's lines, in order
+     * @throws IllegalArgumentException if the revision cannot be resolved or the file does not exist in it
+     */
+    List<GitBlameLine> blame(String filePath, String revisionString) throws IOException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-merge-base">git merge-base revision1 revision2</a>
      *
@@ -149,11 +581,20 @@ public interface ThrowingGitWrapper {
      */
     Optional<String> getMergeBase(String revisionString1, String revisionString2) throws IOException;
 
+    /**
+     * Like {@link #getMergeBase(String, String)}, without parsing and creating Strings.
+     */
+    Optional<GitCommitId> getMergeBase(GitCommitId commitId1, GitCommitId commitId2) throws IOException;
+
     /**
      * Encapsulates <a href="https://git-scm.com/docs/git-diff">git diff</a>
      * <p>
      * Returns a mapping file path > {@link GitDiffType} containing the differences between the given revisions.
      * <p>
+     * Besides revisions, {@link #INDEX_REVISION} and {@link #WORKING_TREE_REVISION} (only as the newer one) may be given,
+     * e.g. <code>getFileToDiffTypeForRevision("HEAD", WORKING_TREE_REVISION)</code> for all uncommitted changes.
+     * The working tree includes untracked files that are not ignored. Files whose size and modification time match
+     * their index entry are not read.
      */
     Map<String, GitDiffType> getFileToDiffTypeForRevision(String revisionStringOld, String revisionStringNew) throws IOException;
 
@@ -0,0 +1,257 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitArchiveFormat;
+import com.example.jgit.GitArchiveOptions;
+import com.example.jgit.GitCancellationToken;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the files of a commit to an archive, straight from the object database.
+ * <p>
+ * The tree is walked once up front. Worker threads then inflate the blobs ahead of the writing thread, each with
+ * its own {@link ObjectReader}, as long as the blobs read ahead fit into the configured buffer;
+ * larger blobs are streamed by the writing thread when their turn comes. Entries are written in tree order,
+ * so the archive does not depend on the parallelism.
+ */
+class ArchiveExport {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // bounds the number of pending reads for many small files
+    private static final int READ_AHEAD_PER_THREAD = 16;
+
+    private static class Entry {
+        final String _path;
+        final FileMode _fileMode;
+        final ObjectId _blobId;
+
+        Entry(String path, FileMode fileMode, ObjectId blobId) {
+            _path = path;
+            _fileMode = fileMode;
+            _blobId = blobId;
+        }
+    }
+
+    /**
+     * The part that differs between the formats.
+     */
+    private interface ArchiveWriter {
+        void put(Entry entry, long size, InputStream content) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final Repository _repository;
+    private final GitArchiveOptions _options;
+    private final GitCancellationToken _token;
+
+    ArchiveExport(Repository repository, GitArchiveOptions options, GitCancellationToken token) {
+        _repository = repository;
+        _options = options;
+        _token = token;
+    }
+
+    /**
+     * Writes the whole archive, but does not close the stream.
+     */
+    void export(RevCommit commit, GitArchiveFormat format, OutputStream outputStream) throws IOException {
+        List<Entry> entries = collectEntries(commit);
+        // closing the archive streams releases their Deflaters, but must not close the caller's stream
+        try (OutputStream out = new BufferedOutputStream(new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, BUFFER_SIZE)) {
+            switch (format) {
+                case TAR:
+                    write(entries, tarWriter(out, commit));
+                    break;
+                case TAR_GZ:
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE)) {
+                        write(entries, tarWriter(gzip, commit));
+                    }
+                    break;
+                case ZIP:
+                    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                        zip.setComment(commit.name());
+                        write(entries, zipWriter(zip, commit));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        }
+    }
+
+    private List<Entry> collectEntries(RevCommit commit) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (TreeWalk treeWalk = new TreeWalk(_repository)) {
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            if (!_options.getPaths().isEmpty()) {
+                treeWalk.setFilter(PathFilterGroup.createFromStrings(_options.getPaths()));
+            }
+            while (treeWalk.next()) {
+                FileMode fileMode = treeWalk.getFileMode(0);
+                // no submodules
+                if (fileMode.getObjectType() == Constants.OBJ_BLOB) {
+                    entries.add(new Entry(treeWalk.getPathString(), fileMode, treeWalk.getObjectId(0)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void write(List<Entry> entries, ArchiveWriter writer) throws IOException {
+        long maxBufferedBytes = _options.getMaxBufferedBytes();
+        int threads = Math.max(1, Math.min(_options.getParallelism(), entries.size()));
+        int maxReadAhead = READ_AHEAD_PER_THREAD * threads;
+        List<Future<byte[]>> contents = new ArrayList<>(entries.size());
+        long[] sizes = new long[entries.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "archive-" + _repository.getDirectory().getParentFile().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ObjectReader reader = _repository.newObjectReader()) {
+            long bufferedBytes = 0;
+            int next = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                _token.throwIfCancelled();
+                // entry i itself is always started: nothing is buffered once it is the next one
+                while (next < entries.size() && next - i < maxReadAhead) {
+                    ObjectId blobId = entries.get(next)._blobId;
+                    sizes[next] = reader.getObjectSize(blobId, Constants.OBJ_BLOB);
+                    if (sizes[next] <= maxBufferedBytes) {
+                        if (bufferedBytes + sizes[next] > maxBufferedBytes) {
+                            break;
+                        }
+                        bufferedBytes += sizes[next];
+                        contents.add(executor.submit(() -> inflate(blobId)));
+                    } else {
+                        // streamed
+                        contents.add(null);
+                    }
+                    next++;
+                }
+                Entry entry = entries.get(i);
+                Future<byte[]> content = contents.set(i, null);
+                if (content == null) {
+                    try (InputStream in = reader.open(entry._blobId, Constants.OBJ_BLOB).openStream()) {
+                        writer.put(entry, sizes[i], in);
+                    }
+                } else {
+                    writer.put(entry, sizes[i], new ByteArrayInputStream(await(content)));
+                    bufferedBytes -= sizes[i];
+                }
+            }
+            writer.finish();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private byte[] inflate(ObjectId blobId) throws IOException {
+        try (ObjectReader reader = _repository.newObjectReader()) {
+            return reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+        }
+    }
+
+    private static byte[] await(Future<byte[]> content) throws IOException {
+        try {
+            return content.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading ahead");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static ArchiveWriter tarWriter(OutputStream out, RevCommit commit) throws IOException {
+        TarOutput tar = new TarOutput(out, commit.getCommitTime());
+        tar.putComment(commit.name());
+        return new ArchiveWriter() {
+            @Override
+            public void put(Entry entry, long size, InputStream content) throws IOException {
+                if (entry._fileMode == FileMode.SYMLINK) {
+                    tar.putSymlink(entry._path, RawParseUtils.decode(IO.readWholeStream(content, (int) size).array()));
+                } else {
+                    tar.putFile(entry._path, entry._fileMode == FileMode.EXECUTABLE_FILE ? 0755 : 0644, size);
+                    copy(content, tar);
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                tar.finish();
+            }
+        };
+    }
+
+    /**
+     * Zip entries have no Unix permissions, and symbolic links are stored as files containing their target.
+     */
+    private static ArchiveWriter zipWriter(ZipOutputStream zip, RevCommit commit) {
+        return new ArchiveWriter() {
+            @Override
+            public void put(Entry entry, long size, InputStream content) throws IOException {
+                ZipEntry zipEntry = new ZipEntry(entry._path);
+                zipEntry.setTime(commit.getCommitTime() * 1000L);
+                zip.putNextEntry(zipEntry);
+                copy(content, zip);
+                zip.closeEntry();
+            }
+
+            @Override
+            public void finish() throws IOException {
+                zip.finish();
+            }
+        };
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
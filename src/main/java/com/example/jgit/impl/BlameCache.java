@@ -0,0 +1,120 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitBlameLine;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Blame results stored in the file system, one file per path and blob id.
+ * <p>
+ * The blame of a blob depends on the history leading to it, so each entry also records the commit that introduced the blob,
+ * and is only used when reached through that very commit. The same blob at another path has a history of its own.
+ * Entries are never evicted; deleting the directory is always safe.
+ */
+class BlameCache {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path _directory;
+
+    BlameCache(File directory) {
+        _directory = directory.toPath();
+    }
+
+    /**
+     * @return the cached blame of the blob at the path, if it was introduced by the given commit
+     */
+    Optional<List<GitBlameLine>> read(String path, AnyObjectId blobId, AnyObjectId introducingCommitId) {
+        Path file = _directory.resolve(key(path, blobId));
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(path) || !ObjectId.fromString(in.readUTF()).equals(introducingCommitId)) {
+                return Optional.empty();
+            }
+            GitBlameLine[] commits = new GitBlameLine[in.readInt()];
+            for (int i = 0; i < commits.length; i++) {
+                commits[i] = new GitBlameLine(in.readUTF(), in.readUTF(), in.readUTF(), Instant.ofEpochSecond(in.readLong()), "", 0);
+            }
+            String[] paths = new String[in.readInt()];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = in.readUTF();
+            }
+            List<GitBlameLine> lines = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                GitBlameLine commit = commits[in.readInt()];
+                lines.add(new GitBlameLine(commit.getCommitSha1(), commit.getAuthorName(), commit.getAuthorEmail(), commit.getAuthorTime(),
+                        paths[in.readInt()], in.readInt()));
+            }
+            return Optional.of(lines);
+        } catch (IOException | RuntimeException e) {
+            // unreadable entries (e.g. half-written by a crashed process) are just computed again
+            return Optional.empty();
+        }
+    }
+
+    void write(String path, AnyObjectId blobId, AnyObjectId introducingCommitId, List<GitBlameLine> lines) throws IOException {
+        String key = key(path, blobId);
+        Map<String, Integer> commitIndexes = new LinkedHashMap<>();
+        Map<String, Integer> pathIndexes = new LinkedHashMap<>();
+        List<GitBlameLine> commits = new ArrayList<>();
+        for (GitBlameLine line : lines) {
+            if (commitIndexes.putIfAbsent(line.getCommitSha1(), commitIndexes.size()) == null) {
+                commits.add(line);
+            }
+            pathIndexes.putIfAbsent(line.getSourcePath(), pathIndexes.size());
+        }
+        Files.createDirectories(_directory);
+        // write to a temporary file first, so concurrent readers never see partial entries
+        Path temporaryFile = Files.createTempFile(_directory, key, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(path);
+                out.writeUTF(introducingCommitId.name());
+                out.writeInt(commits.size());
+                for (GitBlameLine commit : commits) {
+                    out.writeUTF(commit.getCommitSha1());
+                    out.writeUTF(commit.getAuthorName());
+                    out.writeUTF(commit.getAuthorEmail());
+                    out.writeLong(commit.getAuthorTime().getEpochSecond());
+                }
+                out.writeInt(pathIndexes.size());
+                for (String sourcePath : pathIndexes.keySet()) {
+                    out.writeUTF(sourcePath);
+                }
+                out.writeInt(lines.size());
+                for (GitBlameLine line : lines) {
+                    out.writeInt(commitIndexes.get(line.getCommitSha1()));
+                    out.writeInt(pathIndexes.get(line.getSourcePath()));
+                    out.writeInt(line.getSourceLineNumber());
+                }
+            }
+            Files.move(temporaryFile, _directory.resolve(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @return SHA-1 of path and blob id, a valid file name whatever the path
+     */
+    private static String key(String path, AnyObjectId blobId) {
+        MessageDigest digest = Constants.newMessageDigest();
+        digest.update(path.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(blobId.name().getBytes(StandardCharsets.US_ASCII));
+        return ObjectId.fromRaw(digest.digest()).name();
+    }
+}
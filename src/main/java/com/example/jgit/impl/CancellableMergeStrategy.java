@@ -0,0 +1,73 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancelledException;
+import com.example.jgit.GitCancellationToken;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.RecursiveMerger;
+import org.eclipse.jgit.merge.ThreeWayMergeStrategy;
+import org.eclipse.jgit.merge.ThreeWayMerger;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+
+import java.io.IOException;
+
+/**
+ * jGit's recursive merge strategy, checking a {@link GitCancellationToken} for each path it walks.
+ * <p>
+ * A cancelled merge is rolled back the way jGit rolls back a failed one: files with conflict markers already written
+ * are restored from the index, which itself is not written. Once the walk is done, the merge is completed.
+ */
+class CancellableMergeStrategy extends ThreeWayMergeStrategy {
+
+    private final GitCancellationToken _token;
+
+    CancellableMergeStrategy(GitCancellationToken token) {
+        _token = token;
+    }
+
+    @Override
+    public String getName() {
+        return MergeStrategy.RECURSIVE.getName();
+    }
+
+    @Override
+    public ThreeWayMerger newMerger(Repository db) {
+        return new CancellableMerger(db, false);
+    }
+
+    @Override
+    public ThreeWayMerger newMerger(Repository db, boolean inCore) {
+        return new CancellableMerger(db, inCore);
+    }
+
+    @Override
+    public ThreeWayMerger newMerger(ObjectInserter inserter, Config config) {
+        return new CancellableMerger(inserter, config);
+    }
+
+    private class CancellableMerger extends RecursiveMerger {
+
+        CancellableMerger(Repository db, boolean inCore) {
+            super(db, inCore);
+        }
+
+        CancellableMerger(ObjectInserter inserter, Config config) {
+            super(inserter, config);
+        }
+
+        @Override
+        protected boolean mergeTreeWalk(TreeWalk treeWalk, boolean ignoreConflicts) throws IOException {
+            _token.throwIfCancelled();
+            treeWalk.setFilter(AndTreeFilter.create(treeWalk.getFilter(), Cancellation.treeFilter(_token)));
+            try {
+                return super.mergeTreeWalk(treeWalk, ignoreConflicts);
+            } catch (GitCancelledException e) {
+                cleanUp();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancellationToken;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Hooks to check a {@link GitCancellationToken} from within jGit's loops.
+ * <p>
+ * jGit 4.11 polls {@link ProgressMonitor#isCancelled()} in a few places only (e.g. not during rename detection),
+ * so the hooks throw from the callbacks jGit makes anyway: progress updates and filters of tree and commit walks.
+ */
+final class Cancellation {
+
+    private Cancellation() {
+    }
+
+    static ProgressMonitor progressMonitor(GitCancellationToken token) {
+        return new ProgressMonitor() {
+            @Override
+            public void start(int totalTasks) {
+                token.throwIfCancelled();
+            }
+
+            @Override
+            public void beginTask(String title, int totalWork) {
+                token.throwIfCancelled();
+            }
+
+            @Override
+            public void update(int completed) {
+                token.throwIfCancelled();
+            }
+
+            @Override
+            public void endTask() {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return token.isCancelled();
+            }
+        };
+    }
+
+    /**
+     * @return a filter including all entries, to be combined with the walk's other filters
+     */
+    static TreeFilter treeFilter(GitCancellationToken token) {
+        return new TreeFilter() {
+            @Override
+            public boolean include(TreeWalk walker) {
+                token.throwIfCancelled();
+                return true;
+            }
+
+            @Override
+            public boolean shouldBeRecursive() {
+                return false;
+            }
+
+            @Override
+            public TreeFilter clone() {
+                return this;
+            }
+        };
+    }
+
+    /**
+     * @return a filter including all commits, to be combined with the walk's other filters
+     */
+    static RevFilter revFilter(GitCancellationToken token) {
+        return new RevFilter() {
+            @Override
+            public boolean include(RevWalk walker, RevCommit commit) {
+                token.throwIfCancelled();
+                return true;
+            }
+
+            @Override
+            public boolean requiresCommitBody() {
+                return false;
+            }
+
+            @Override
+            public RevFilter clone() {
+                return this;
+            }
+        };
+    }
+}
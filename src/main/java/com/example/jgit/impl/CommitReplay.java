@@ -0,0 +1,95 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancellationToken;
+import com.example.jgit.GitReplayResult;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Applies commits one after the other on top of a commit, like
+ * <a href="https://git-scm.com/docs/git-cherry-pick">git cherry-pick</a>, but in memory:
+ * each commit is three-way merged with its parent as base, and the merged trees and new commits are kept
+ * in an {@link InMemoryInserter} until {@link #writeObjects()}. Neither working tree nor index are touched.
+ */
+class CommitReplay {
+
+    private final Repository _repository;
+    private final InMemoryInserter _inserter;
+    private final GitCancellationToken _token;
+
+    CommitReplay(Repository repository, GitCancellationToken token) {
+        _repository = repository;
+        _inserter = new InMemoryInserter(repository);
+        _token = token;
+    }
+
+    /**
+     * Stops at the first commit that conflicts.
+     *
+     * @throws IllegalArgumentException for merge commits, which have no single parent to serve as base
+     */
+    GitReplayResult replay(ObjectId ontoId, List<? extends ObjectId> commitIds) throws IOException {
+        Map<String, String> replayedCommits = new LinkedHashMap<>();
+        PersonIdent committer = new PersonIdent(_repository);
+        try (ObjectReader reader = _inserter.newReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            RevCommit tip = revWalk.parseCommit(ontoId);
+            ObjectId tipTreeId = tip.getTree();
+            for (ObjectId commitId : commitIds) {
+                _token.throwIfCancelled();
+                RevCommit commit = revWalk.parseCommit(commitId);
+                if (commit.getParentCount() > 1) {
+                    throw new IllegalArgumentException("Cannot replay merge commit " + commit.name());
+                }
+                ResolveMerger merger = (ResolveMerger) new CancellableMergeStrategy(_token).newMerger(_inserter, _repository.getConfig());
+                merger.setBase(commit.getParentCount() == 0 ?
+                        new TreeFormatter().insertTo(_inserter) :
+                        revWalk.parseCommit(commit.getParent(0)).getTree());
+                if (!merger.merge(tip, commit)) {
+                    Set<String> conflictingPaths = new TreeSet<>(merger.getUnmergedPaths());
+                    if (conflictingPaths.isEmpty()) {
+                        // in-core merges fail because of conflicts only
+                        throw new IOException("Replaying " + commit.name() + " onto " + tip.name() + " failed: " + merger.getFailingPaths());
+                    }
+                    return new GitReplayResult(replayedCommits, commit.name(), conflictingPaths, null);
+                }
+                if (merger.getResultTreeId().equals(tipTreeId)) {
+                    // changes are there already
+                    continue;
+                }
+                CommitBuilder commitBuilder = new CommitBuilder();
+                commitBuilder.setTreeId(merger.getResultTreeId());
+                commitBuilder.setParentId(tip);
+                commitBuilder.setAuthor(commit.getAuthorIdent());
+                commitBuilder.setCommitter(committer);
+                commitBuilder.setMessage(commit.getFullMessage());
+                tip = revWalk.parseCommit(_inserter.insert(commitBuilder));
+                tipTreeId = tip.getTree();
+                replayedCommits.put(commit.name(), tip.name());
+            }
+            return new GitReplayResult(replayedCommits, null, Collections.emptySet(), tip.name());
+        }
+    }
+
+    /**
+     * Writes the objects created by {@link #replay(ObjectId, List)} to the repository.
+     */
+    void writeObjects() throws IOException {
+        _inserter.writeTo(_repository);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.jgit.impl;
+
+import com.google.common.util.concurrent.Striped;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Commit times of a ref's first-parent history, stored in the file system, one file per ref.
+ * <p>
+ * Each file holds fixed-size records (commit id, commit time), oldest commit first, so it can be binary searched without reading it completely.
+ * Times are clamped to the maximum of all older commits, which keeps them sorted despite skewed clocks.
+ * When the ref moved forward, only the new commits are appended; otherwise (e.g. after a reset) the file is rewritten.
+ */
+class CommitTimeIndex {
+
+    private static final int MAGIC = 0x43544931; // "CTI1"
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_SIZE = Constants.OBJECT_ID_LENGTH + 8;
+    // file locks are held per JVM, so threads have to be kept apart additionally
+    private static final Striped<Lock> LOCKS = Striped.lock(64);
+
+    private final Repository _repository;
+    private final Path _directory;
+
+    CommitTimeIndex(Repository repository, File directory) {
+        _repository = repository;
+        _directory = directory.toPath();
+    }
+
+    /**
+     * @return the newest commit not younger than the given time
+     */
+    Optional<ObjectId> findAtOrBefore(String refName, ObjectId tipId, Instant time) throws IOException {
+        return query(refName, tipId, channel -> {
+            long index = countNotYoungerThan(channel, time) - 1;
+            return index < 0 ? Optional.empty() : Optional.of(readId(channel, index));
+        });
+    }
+
+    /**
+     * @return the commits within the given times (both inclusive), newest first
+     */
+    List<ObjectId> findInRange(String refName, ObjectId tipId, Instant from, Instant to) throws IOException {
+        return query(refName, tipId, channel -> {
+            long start = countNotYoungerThan(channel, from.minusNanos(1));
+            List<ObjectId> result = new ArrayList<>();
+            for (long index = countNotYoungerThan(channel, to) - 1; index >= start; index--) {
+                result.add(readId(channel, index));
+            }
+            return result;
+        });
+    }
+
+    private interface Query<T> {
+        T run(FileChannel channel) throws IOException;
+    }
+
+    private <T> T query(String refName, ObjectId tipId, Query<T> query) throws IOException {
+        Files.createDirectories(_directory);
+        Path file = _directory.resolve(toFileName(refName));
+        Lock lock = LOCKS.get(file);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock fileLock = channel.lock();
+            try {
+                update(channel, tipId);
+                return query.run(channel);
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(FileChannel channel, ObjectId tipId) throws IOException {
+        long count = recordCount(channel);
+        ObjectId lastId = count > 0 ? readId(channel, count - 1) : null;
+        if (tipId.equals(lastId)) {
+            return;
+        }
+        // the commits missing in the index, newest first
+        List<RevCommit> newCommits = new ArrayList<>();
+        try (RevWalk revWalk = new RevWalk(_repository)) {
+            revWalk.setRetainBody(false);
+            RevCommit commit = revWalk.parseCommit(tipId);
+            while (!commit.equals(lastId)) {
+                newCommits.add(commit);
+                if (commit.getParentCount() == 0) {
+                    // the indexed commit is no ancestor of the ref anymore
+                    count = 0;
+                    break;
+                }
+                commit = revWalk.parseCommit(commit.getParent(0));
+            }
+        }
+        Collections.reverse(newCommits);
+        long maxTime = count > 0 ? readTime(channel, count - 1) : Long.MIN_VALUE;
+        // also drops a partial record of an interrupted update
+        channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+        if (count == 0) {
+            channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+        long position = HEADER_SIZE + count * RECORD_SIZE;
+        for (RevCommit commit : newCommits) {
+            maxTime = Math.max(maxTime, commit.getCommitTime());
+            commit.copyRawTo(buffer.array(), buffer.position());
+            buffer.position(buffer.position() + Constants.OBJECT_ID_LENGTH);
+            buffer.putLong(maxTime);
+            if (!buffer.hasRemaining()) {
+                position += write(channel, buffer, position);
+            }
+        }
+        write(channel, buffer, position);
+    }
+
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    private static long recordCount(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            return 0;
+        }
+        return (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Binary search.
+     *
+     * @return the number of records with a time before or equal to the given one
+     */
+    private static long countNotYoungerThan(FileChannel channel, Instant time) throws IOException {
+        long low = 0;
+        long high = recordCount(channel);
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (!Instant.ofEpochSecond(readTime(channel, middle)).isAfter(time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static ObjectId readId(FileChannel channel, long index) throws IOException {
+        return ObjectId.fromRaw(read(channel, index).array());
+    }
+
+    private static long readTime(FileChannel channel, long index) throws IOException {
+        return read(channel, index).getLong(Constants.OBJECT_ID_LENGTH);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long index) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long position = HEADER_SIZE + index * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("Commit time index is truncated");
+            }
+        }
+        return record;
+    }
+
+    private static String toFileName(String refName) throws UnsupportedEncodingException {
+        // flat, so "a" and "a/b" do not clash
+        return URLEncoder.encode(refName, "UTF-8");
+    }
+}
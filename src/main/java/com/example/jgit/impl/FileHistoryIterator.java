@@ -0,0 +1,137 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitDiffType;
+import com.example.jgit.GitFileHistoryEntry;
+import com.example.jgit.GitFileHistoryOptions;
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.FollowFilter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.NullOutputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static com.example.jgit.impl.ChangeTypeMapper.INSTANCE;
+
+/**
+ * Lazily walks the commits touching a path, newest first, computing each commit's change of that path.
+ * Must be closed to release the underlying {@link RevWalk}.
+ */
+class FileHistoryIterator implements Iterator<GitFileHistoryEntry>, AutoCloseable {
+
+    private final RevWalk _revWalk;
+    private final DiffFormatter _diffFormatter;
+    private final boolean _followRenames;
+    private final DiffConfig _diffConfig;
+    private int _remaining;
+    private String _currentPath;
+    private GitFileHistoryEntry _next;
+
+    FileHistoryIterator(Repository repository, String filePath, ObjectId from, GitFileHistoryOptions options) throws IOException {
+        _followRenames = options.isFollowRenames();
+        _remaining = options.getMaxCount();
+        _currentPath = filePath;
+        _diffConfig = repository.getConfig().get(DiffConfig.KEY);
+        _revWalk = new RevWalk(repository);
+        _diffFormatter = new DiffFormatter(NullOutputStream.INSTANCE);
+        _diffFormatter.setRepository(repository);
+        try {
+            _revWalk.markStart(_revWalk.parseCommit(from));
+            _revWalk.setTreeFilter(_followRenames ?
+                    FollowFilter.create(filePath, _diffConfig) :
+                    AndTreeFilter.create(PathFilter.create(filePath), TreeFilter.ANY_DIFF));
+            Date since = options.getSince().map(Date::from).orElse(null);
+            Date until = options.getUntil().map(Date::from).orElse(null);
+            if (since != null && until != null) {
+                _revWalk.setRevFilter(CommitTimeRevFilter.between(since, until));
+            } else if (since != null) {
+                _revWalk.setRevFilter(CommitTimeRevFilter.after(since));
+            } else if (until != null) {
+                _revWalk.setRevFilter(CommitTimeRevFilter.before(until));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (_next == null && _remaining > 0) {
+            try {
+                _next = computeNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return _next != null;
+    }
+
+    @Override
+    public GitFileHistoryEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GitFileHistoryEntry result = _next;
+        _next = null;
+        _remaining--;
+        return result;
+    }
+
+    private Optional<DiffEntry> findDiffEntryOfCurrentPath(RevCommit parent, RevCommit commit) throws IOException {
+        for (DiffEntry diffEntry : _diffFormatter.scan(parent == null ? null : parent.getTree(), commit.getTree())) {
+            String entryPath = diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE ? diffEntry.getOldPath() : diffEntry.getNewPath();
+            if (entryPath.equals(_currentPath)) {
+                return Optional.of(diffEntry);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        _diffFormatter.close();
+        _revWalk.close();
+    }
+
+    private GitFileHistoryEntry computeNext() throws IOException {
+        RevCommit commit = _revWalk.next();
+        if (commit == null) {
+            return null;
+        }
+        RevCommit parent = commit.getParentCount() == 0 ? null : _revWalk.parseCommit(commit.getParent(0));
+        String path = _currentPath;
+        // a merge commit may be included because of another parent - it did not change the file compared to the first one then
+        GitDiffType diffType = GitDiffType.MODIFY;
+        _diffFormatter.setPathFilter(PathFilter.create(_currentPath));
+        Optional<DiffEntry> diffEntry = findDiffEntryOfCurrentPath(parent, commit);
+        if (_followRenames && diffEntry.isPresent() && diffEntry.get().getChangeType() == DiffEntry.ChangeType.ADD) {
+            // DiffFormatter looks for the file's origin in the whole tree, and only returns something if it finds one
+            _diffFormatter.setPathFilter(FollowFilter.create(_currentPath, _diffConfig));
+            Optional<DiffEntry> renameEntry = findDiffEntryOfCurrentPath(parent, commit);
+            if (renameEntry.isPresent()) {
+                diffEntry = renameEntry;
+                // older commits know the file by its old path
+                _currentPath = renameEntry.get().getOldPath();
+            }
+        }
+        if (diffEntry.isPresent()) {
+            diffType = INSTANCE.convert(diffEntry.get().getChangeType());
+        }
+        return new GitFileHistoryEntry(ObjectId.toString(commit), path, diffType, Instant.ofEpochSecond(commit.getCommitTime()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.jgit.impl;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.util.IO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps inserted objects in memory instead of writing them to the repository, and discards them when garbage collected.
+ * <p>
+ * Its readers find the inserted objects as well as the repository's ones, so it can be used for operations
+ * that read back what they inserted, e.g. the virtual merge bases of a recursive merge.
+ */
+class InMemoryInserter extends ObjectInserter {
+
+    private final Repository _repository;
+    private final Map<ObjectId, ObjectLoader> _objects = new ConcurrentHashMap<>();
+
+    InMemoryInserter(Repository repository) {
+        _repository = repository;
+    }
+
+    @Override
+    public ObjectId insert(int type, long length, InputStream in) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Object too large to keep in memory: " + length + " bytes");
+        }
+        byte[] content = new byte[(int) length];
+        // throws an EOFException if the stream is shorter
+        IO.readFully(in, content, 0, content.length);
+        ObjectId objectId = idFor(type, content);
+        _objects.putIfAbsent(objectId, new ObjectLoader.SmallObject(type, content));
+        return objectId;
+    }
+
+    @Override
+    public PackParser newPackParser(InputStream in) {
+        throw new UnsupportedOperationException("In-memory inserters cannot parse packs");
+    }
+
+    @Override
+    public ObjectReader newReader() {
+        ObjectReader delegate = _repository.newObjectReader();
+        return new ObjectReader.Filter() {
+            @Override
+            protected ObjectReader delegate() {
+                return delegate;
+            }
+
+            @Override
+            public boolean has(AnyObjectId objectId) throws IOException {
+                return _objects.containsKey(objectId) || delegate.has(objectId);
+            }
+
+            @Override
+            public boolean has(AnyObjectId objectId, int type) throws IOException {
+                ObjectLoader loader = _objects.get(objectId);
+                return loader != null ? type == OBJ_ANY || loader.getType() == type : delegate.has(objectId, type);
+            }
+
+            @Override
+            public ObjectLoader open(AnyObjectId objectId) throws IOException {
+                return open(objectId, OBJ_ANY);
+            }
+
+            @Override
+            public ObjectLoader open(AnyObjectId objectId, int type) throws IOException {
+                ObjectLoader loader = _objects.get(objectId);
+                if (loader == null) {
+                    return delegate.open(objectId, type);
+                }
+                if (type != OBJ_ANY && loader.getType() != type) {
+                    throw new IncorrectObjectTypeException(objectId.copy(), type);
+                }
+                return loader;
+            }
+
+            @Override
+            public long getObjectSize(AnyObjectId objectId, int type) throws MissingObjectException, IncorrectObjectTypeException, IOException {
+                return _objects.containsKey(objectId) ? open(objectId, type).getSize() : delegate.getObjectSize(objectId, type);
+            }
+
+            @Override
+            public ObjectReader newReader() {
+                return InMemoryInserter.this.newReader();
+            }
+
+            @Override
+            public ObjectInserter getCreatedFromInserter() {
+                return InMemoryInserter.this;
+            }
+        };
+    }
+
+    /**
+     * Writes the inserted objects the repository does not have yet.
+     */
+    void writeTo(Repository repository) throws IOException {
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             ObjectReader reader = inserter.newReader()) {
+            for (Map.Entry<ObjectId, ObjectLoader> object : _objects.entrySet()) {
+                if (!reader.has(object.getKey())) {
+                    inserter.insert(object.getValue().getType(), object.getValue().getCachedBytes());
+                }
+            }
+            inserter.flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        // nothing is written
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitBlameLine;
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.*;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Blames a file by continuing from a cached blame of an older version, if there is one.
+ * <p>
+ * Starting at the requested commit, the first-parent history is walked back until a commit is found whose version of the file
+ * is cached. The changes since are then replayed onto the cached blame, diffing each version against the previous one
+ * just like {@link BlameGenerator} does. If the file was changed by a merge or renamed in between, or nothing is cached,
+ * a full blame is computed by {@link BlameGenerator} instead. Either way, the result is cached for the next call.
+ */
+class IncrementalBlame {
+
+    // replaying more changes than this is unlikely to be faster than a full blame
+    private static final int MAX_CHANGES_TO_REPLAY = 256;
+
+    private final Repository _repository;
+    private final BlameCache _cache;
+
+    IncrementalBlame(Repository repository, BlameCache cache) {
+        _repository = repository;
+        _cache = cache;
+    }
+
+    List<GitBlameLine> blame(String path, ObjectId commitId) throws IOException {
+        try (RevWalk revWalk = new RevWalk(_repository)) {
+            ObjectReader reader = revWalk.getObjectReader();
+            RevCommit commit = revWalk.parseCommit(commitId);
+            ObjectId blobId = findBlob(reader, commit, path);
+            if (blobId == null) {
+                throw new IllegalArgumentException("File does not exist in revision " + commitId.name() + ": " + path);
+            }
+            // changes of the file since the cached blame; the oldest is pushed last
+            Deque<Change> changes = new ArrayDeque<>();
+            RevCommit introducingCommit = null;
+            List<GitBlameLine> cachedLines = null;
+            RevCommit current = commit;
+            ObjectId currentBlobId = blobId;
+            while (changes.size() <= MAX_CHANGES_TO_REPLAY) {
+                RevCommit parent = current.getParentCount() == 0 ? null : revWalk.parseCommit(current.getParent(0));
+                ObjectId parentBlobId = parent == null ? null : findBlob(reader, parent, path);
+                if (currentBlobId.equals(parentBlobId)) {
+                    current = parent;
+                    continue;
+                }
+                if (introducingCommit == null) {
+                    introducingCommit = current;
+                }
+                Optional<List<GitBlameLine>> cached = _cache.read(path, currentBlobId, current);
+                if (cached.isPresent()) {
+                    cachedLines = cached.get();
+                    break;
+                }
+                if (parent == null) {
+                    // the root commit added the file
+                    changes.push(new Change(current, null, currentBlobId));
+                    cachedLines = Collections.emptyList();
+                    break;
+                }
+                if (current.getParentCount() > 1 || parentBlobId == null) {
+                    // lines may come from another parent or path
+                    break;
+                }
+                changes.push(new Change(current, parentBlobId, currentBlobId));
+                current = parent;
+                currentBlobId = parentBlobId;
+            }
+
+            List<GitBlameLine> lines;
+            if (cachedLines == null) {
+                lines = fullBlame(path, commit);
+            } else if (changes.isEmpty()) {
+                return cachedLines;
+            } else {
+                lines = replay(reader, path, cachedLines, changes);
+            }
+            _cache.write(path, blobId, introducingCommit, lines);
+            return lines;
+        }
+    }
+
+    private List<GitBlameLine> fullBlame(String path, RevCommit commit) throws IOException {
+        BlameGenerator generator = new BlameGenerator(_repository, path);
+        generator.push(null, commit);
+        // closes the generator
+        BlameResult result = generator.computeBlameResult();
+        List<GitBlameLine> lines = new ArrayList<>();
+        for (int i = 0; i < result.getResultContents().size(); i++) {
+            lines.add(toBlameLine(result.getSourceCommit(i), result.getSourcePath(i), result.getSourceLine(i)));
+        }
+        return lines;
+    }
+
+    private List<GitBlameLine> replay(ObjectReader reader, String path, List<GitBlameLine> cachedLines, Deque<Change> changes) throws IOException {
+        // the same algorithm and comparator as BlameGenerator's defaults, so results do not depend on the cache
+        DiffAlgorithm diffAlgorithm = new HistogramDiff();
+        List<GitBlameLine> lines = cachedLines;
+        for (Change change : changes) {
+            RawText oldText = change._oldBlobId == null ? RawText.EMPTY_TEXT : loadText(reader, change._oldBlobId);
+            RawText newText = loadText(reader, change._newBlobId);
+            List<GitBlameLine> newLines = new ArrayList<>(newText.size());
+            int oldIndex = 0;
+            for (Edit edit : diffAlgorithm.diff(RawTextComparator.DEFAULT, oldText, newText)) {
+                while (newLines.size() < edit.getBeginB()) {
+                    newLines.add(lines.get(oldIndex++));
+                }
+                for (int newIndex = edit.getBeginB(); newIndex < edit.getEndB(); newIndex++) {
+                    newLines.add(toBlameLine(change._commit, path, newIndex));
+                }
+                oldIndex = edit.getEndA();
+            }
+            while (newLines.size() < newText.size()) {
+                newLines.add(lines.get(oldIndex++));
+            }
+            lines = newLines;
+        }
+        return lines;
+    }
+
+    private static ObjectId findBlob(ObjectReader reader, RevCommit commit, String path) throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree())) {
+            return treeWalk == null ? null : treeWalk.getObjectId(0);
+        }
+    }
+
+    private static RawText loadText(ObjectReader reader, ObjectId blobId) throws IOException {
+        return new RawText(reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+    }
+
+    private static GitBlameLine toBlameLine(RevCommit commit, String path, int lineIndex) {
+        PersonIdent author = commit.getAuthorIdent();
+        return new GitBlameLine(commit.name(), author.getName(), author.getEmailAddress(), author.getWhen().toInstant(), path, lineIndex + 1);
+    }
+
+    private static class Change {
+        private final RevCommit _commit;
+        private final ObjectId _oldBlobId;
+        private final ObjectId _newBlobId;
+
+        private Change(RevCommit commit, ObjectId oldBlobId, ObjectId newBlobId) {
+            _commit = commit;
+            _oldBlobId = oldBlobId;
+            _newBlobId = newBlobId;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitLargeFileOptions;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes blobs streamed from files above the threshold of {@link GitLargeFileOptions} as loose objects,
+ * hashing and deflating them chunk by chunk at the configured compression level. Everything else goes to jGit's inserter.
+ * <p>
+ * Like jGit, the object is written to a temporary file in the objects directory first, then moved to its final name,
+ * so readers never see half written objects.
+ */
+class LargeBlobInserter extends ObjectInserter.Filter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ObjectInserter _delegate;
+    private final ObjectDirectory _objectDirectory;
+    private final GitLargeFileOptions _options;
+
+    LargeBlobInserter(ObjectInserter delegate, ObjectDirectory objectDirectory, GitLargeFileOptions options) {
+        _delegate = delegate;
+        _objectDirectory = objectDirectory;
+        _options = options;
+    }
+
+    @Override
+    protected ObjectInserter delegate() {
+        return _delegate;
+    }
+
+    @Override
+    public ObjectId insert(int objectType, long length, InputStream in) throws IOException {
+        if (objectType != Constants.OBJ_BLOB || length < _options.getThreshold()) {
+            return _delegate.insert(objectType, length, in);
+        }
+        File temporaryFile = File.createTempFile("noz", null, _objectDirectory.getDirectory());
+        try {
+            ObjectId objectId = write(length, in, temporaryFile);
+            moveIntoPlace(temporaryFile, objectId);
+            return objectId;
+        } finally {
+            FileUtils.delete(temporaryFile, FileUtils.SKIP_MISSING);
+        }
+    }
+
+    private ObjectId write(long length, InputStream in, File temporaryFile) throws IOException {
+        MessageDigest digest = Constants.newMessageDigest();
+        Deflater deflater = new Deflater(_options.getCompressionLevel());
+        try (OutputStream out = new DeflaterOutputStream(new FileOutputStream(temporaryFile), deflater, CHUNK_SIZE)) {
+            byte[] header = (Constants.TYPE_BLOB + " " + length + "\0").getBytes(StandardCharsets.US_ASCII);
+            digest.update(header);
+            out.write(header);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            long written = 0;
+            while (written < length) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, length - written));
+                if (read < 0) {
+                    throw new EOFException("File ended after " + written + " of " + length + " bytes");
+                }
+                digest.update(chunk, 0, read);
+                out.write(chunk, 0, read);
+                written += read;
+                long progress = written;
+                _options.getProgressListener().ifPresent(listener -> listener.onProgress(progress, length));
+            }
+        } finally {
+            deflater.end();
+        }
+        return ObjectId.fromRaw(digest.digest());
+    }
+
+    private void moveIntoPlace(File temporaryFile, ObjectId objectId) throws IOException {
+        if (_objectDirectory.has(objectId)) {
+            return;
+        }
+        File objectFile = _objectDirectory.fileFor(objectId);
+        FileUtils.mkdirs(objectFile.getParentFile(), true);
+        try {
+            Files.move(temporaryFile.toPath(), objectFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // written by another thread or process meanwhile
+            return;
+        }
+        objectFile.setReadOnly();
+    }
+}
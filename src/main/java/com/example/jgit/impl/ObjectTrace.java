@@ -0,0 +1,136 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitObjectTrace;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectLoader;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link GitObjectTrace}, filled by the readers of a {@link TracingRepository}.
+ * Each read is also counted by the enclosing trace, if any.
+ */
+class ObjectTrace implements GitObjectTrace {
+
+    private final TracingRepository _repository;
+    private final ObjectTrace _parent;
+    private final LongAdder _commitCount = new LongAdder();
+    private final LongAdder _treeCount = new LongAdder();
+    private final LongAdder _blobCount = new LongAdder();
+    private final LongAdder _tagCount = new LongAdder();
+    private final LongAdder _byteCount = new LongAdder();
+    private final LongAdder _treeEntryCount = new LongAdder();
+    private final LongAdder _missingObjectCount = new LongAdder();
+    private final LongAdder _readNanos = new LongAdder();
+
+    ObjectTrace(TracingRepository repository, ObjectTrace parent) {
+        _repository = repository;
+        _parent = parent;
+    }
+
+    ObjectTrace getParent() {
+        return _parent;
+    }
+
+    void recordRead(ObjectLoader loader, long nanos) {
+        for (ObjectTrace trace = this; trace != null; trace = trace._parent) {
+            trace.record(loader, nanos);
+        }
+    }
+
+    private void record(ObjectLoader loader, long nanos) {
+        switch (loader.getType()) {
+            case Constants.OBJ_COMMIT:
+                _commitCount.increment();
+                break;
+            case Constants.OBJ_TREE:
+                _treeCount.increment();
+                // trees are never large, so their content is in memory already
+                if (!loader.isLarge()) {
+                    _treeEntryCount.add(countTreeEntries(loader.getCachedBytes()));
+                }
+                break;
+            case Constants.OBJ_BLOB:
+                _blobCount.increment();
+                break;
+            default:
+                _tagCount.increment();
+                break;
+        }
+        _byteCount.add(loader.getSize());
+        _readNanos.add(nanos);
+    }
+
+    void recordMissing(long nanos) {
+        for (ObjectTrace trace = this; trace != null; trace = trace._parent) {
+            trace._missingObjectCount.increment();
+            trace._readNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Entries are formatted as "mode name\0" followed by the 20 byte object id.
+     */
+    private static long countTreeEntries(byte[] tree) {
+        long count = 0;
+        for (int i = 0; i < tree.length; i++) {
+            if (tree[i] == 0) {
+                count++;
+                i += Constants.OBJECT_ID_LENGTH;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getObjectCount() {
+        return getCommitCount() + getTreeCount() + getBlobCount() + _tagCount.sum();
+    }
+
+    @Override
+    public long getCommitCount() {
+        return _commitCount.sum();
+    }
+
+    @Override
+    public long getTreeCount() {
+        return _treeCount.sum();
+    }
+
+    @Override
+    public long getBlobCount() {
+        return _blobCount.sum();
+    }
+
+    @Override
+    public long getByteCount() {
+        return _byteCount.sum();
+    }
+
+    @Override
+    public long getTreeEntryCount() {
+        return _treeEntryCount.sum();
+    }
+
+    @Override
+    public long getMissingObjectCount() {
+        return _missingObjectCount.sum();
+    }
+
+    @Override
+    public Duration getReadDuration() {
+        return Duration.ofNanos(_readNanos.sum());
+    }
+
+    @Override
+    public void close() {
+        _repository.endTrace(this);
+    }
+
+    @Override
+    public String toString() {
+        return getObjectCount() + " objects (" + getCommitCount() + " commits, " + getTreeCount() + " trees with " + getTreeEntryCount() + " entries, "
+                + getBlobCount() + " blobs), " + getByteCount() + " bytes, " + getMissingObjectCount() + " missing, read in " + getReadDuration().toMillis() + " ms";
+    }
+}
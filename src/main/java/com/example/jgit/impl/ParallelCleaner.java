@@ -0,0 +1,148 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancellationToken;
+import com.example.jgit.GitCleanOptions;
+import com.example.jgit.GitCleanResult;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implements <a href="https://git-scm.com/docs/git-clean">git clean -df[x] [paths]</a>.
+ * <p>
+ * Unlike jGit's CleanCommand, only the given paths are scanned, and untracked directory trees are deleted
+ * by a fork/join pool, one task per directory.
+ * <p>
+ * Cancelling stops the status computation or the deletion; what was deleted so far stays deleted.
+ */
+class ParallelCleaner {
+
+    private final Git _git;
+    private final GitCleanOptions _options;
+    private final GitCancellationToken _token;
+    private final LongAdder _fileCount = new LongAdder();
+    private final LongAdder _directoryCount = new LongAdder();
+    private final LongAdder _byteCount = new LongAdder();
+
+    ParallelCleaner(Git git, GitCleanOptions options, GitCancellationToken token) {
+        _git = git;
+        _options = options;
+        _token = token;
+    }
+
+    GitCleanResult clean() throws IOException, GitAPIException {
+        Set<String> candidates = findCandidates();
+        File workTree = _git.getRepository().getWorkTree();
+        List<DeleteTask> tasks = new ArrayList<>();
+        Set<String> cleanedPaths = new TreeSet<>();
+        for (String candidate : candidates) {
+            Path path = new File(workTree, candidate).toPath();
+            boolean isDirectory = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+            if (_options.isCollectPaths()) {
+                // same format as jGit's CleanCommand
+                cleanedPaths.add(isDirectory ? candidate + "/" : candidate);
+            }
+            tasks.add(new DeleteTask(path));
+        }
+        ForkJoinPool pool = new ForkJoinPool(_options.getParallelism());
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return new GitCleanResult(cleanedPaths, _fileCount.sum(), _directoryCount.sum(), _byteCount.sum(), _options.isDryRun());
+    }
+
+    /**
+     * Same selection as jGit's CleanCommand with "cleanDirectories" and "force" set,
+     * but the status is only computed for the requested paths.
+     */
+    private Set<String> findCandidates() throws GitAPIException {
+        StatusCommand statusCommand = _git.status().setProgressMonitor(Cancellation.progressMonitor(_token));
+        _options.getPaths().forEach(statusCommand::addPath);
+        Status status = statusCommand.call();
+        Set<String> ignored = status.getIgnoredNotInIndex();
+
+        Set<String> untrackedDirectories = new TreeSet<>(status.getUntrackedFolders());
+        Set<String> untrackedFiles = new TreeSet<>(status.getUntracked());
+        if (_options.isCleanIgnored()) {
+            File workTree = _git.getRepository().getWorkTree();
+            for (String ignoredPath : ignored) {
+                if (new File(workTree, ignoredPath).isDirectory()) {
+                    untrackedDirectories.add(ignoredPath);
+                } else {
+                    untrackedFiles.add(ignoredPath);
+                }
+            }
+        } else {
+            untrackedFiles.removeAll(ignored);
+            // directories containing ignored files are kept, their untracked files are deleted one by one
+            untrackedDirectories.removeIf(directory -> ignored.stream().anyMatch(ignoredPath -> ignoredPath.equals(directory) || ignoredPath.startsWith(directory + "/")));
+        }
+        // files and directories inside directories that are deleted anyway
+        untrackedFiles.removeIf(file -> isInside(file, untrackedDirectories));
+        untrackedDirectories.removeIf(directory -> isInside(directory, untrackedDirectories));
+
+        Set<String> result = new TreeSet<>(untrackedFiles);
+        result.addAll(untrackedDirectories);
+        return result;
+    }
+
+    private static boolean isInside(String path, Set<String> directories) {
+        return directories.stream().anyMatch(directory -> path.startsWith(directory + "/"));
+    }
+
+    private class DeleteTask extends RecursiveAction {
+
+        private final Path _path;
+
+        DeleteTask(Path path) {
+            _path = path;
+        }
+
+        @Override
+        protected void compute() {
+            _token.throwIfCancelled();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(_path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    List<DeleteTask> children = new ArrayList<>();
+                    try (DirectoryStream<Path> entries = Files.newDirectoryStream(_path)) {
+                        entries.forEach(entry -> children.add(new DeleteTask(entry)));
+                    }
+                    invokeAll(children);
+                    _directoryCount.increment();
+                } else {
+                    _fileCount.increment();
+                    _byteCount.add(attributes.size());
+                }
+                if (!_options.isDryRun()) {
+                    Files.deleteIfExists(_path);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
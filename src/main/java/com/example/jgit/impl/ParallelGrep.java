@@ -0,0 +1,190 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitGrepMatch;
+import com.example.jgit.GitGrepOptions;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches the files of a tree in parallel, handing out matches as they are found.
+ * <p>
+ * The tree is walked once up front, collecting each distinct blob with all of its paths.
+ * Worker threads then share the list of blobs, each inflating and searching with its own {@link ObjectReader}.
+ * Binary and oversized blobs are skipped. Must be closed to stop the workers if not consumed completely.
+ */
+class ParallelGrep implements Iterator<GitGrepMatch>, AutoCloseable {
+
+    // marks that all workers are done
+    private static final GitGrepMatch END = new GitGrepMatch("", 0, "");
+    // bounds memory if matches are consumed slower than they are found
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final Repository _repository;
+    private final Pattern _pattern;
+    private final long _maxFileSize;
+    private final List<Map.Entry<ObjectId, List<String>>> _blobs;
+    private final AtomicInteger _nextIndex = new AtomicInteger();
+    private final AtomicInteger _runningWorkers;
+    private final BlockingQueue<GitGrepMatch> _matches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ExecutorService _executor;
+    private volatile Exception _failure;
+    private GitGrepMatch _next;
+    private boolean _done;
+
+    ParallelGrep(Repository repository, RevTree tree, Pattern pattern, GitGrepOptions options) throws IOException {
+        _repository = repository;
+        _pattern = pattern;
+        // larger blobs do not fit into a byte array
+        _maxFileSize = Math.min(options.getMaxFileSize(), Integer.MAX_VALUE - 8);
+        _blobs = new ArrayList<>(collectBlobs(tree, options.getPaths()).entrySet());
+        int threads = Math.max(1, Math.min(options.getParallelism(), _blobs.size()));
+        _runningWorkers = new AtomicInteger(threads);
+        _executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "grep-" + _repository.getDirectory().getParentFile().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            _executor.execute(this::work);
+        }
+        _executor.shutdown();
+    }
+
+    private Map<ObjectId, List<String>> collectBlobs(RevTree tree, Set<String> paths) throws IOException {
+        Map<ObjectId, List<String>> blobIdToPaths = new LinkedHashMap<>();
+        try (TreeWalk treeWalk = new TreeWalk(_repository)) {
+            treeWalk.addTree(tree);
+            treeWalk.setRecursive(true);
+            if (!paths.isEmpty()) {
+                treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+            }
+            while (treeWalk.next()) {
+                FileMode fileMode = treeWalk.getFileMode(0);
+                // no submodules or symbolic links
+                if (fileMode.getObjectType() == Constants.OBJ_BLOB && (fileMode.getBits() & FileMode.TYPE_MASK) != FileMode.TYPE_SYMLINK) {
+                    blobIdToPaths.computeIfAbsent(treeWalk.getObjectId(0), blobId -> new ArrayList<>()).add(treeWalk.getPathString());
+                }
+            }
+        }
+        return blobIdToPaths;
+    }
+
+    /**
+     * Searches blobs until there are none left, sharing the position with other workers
+     */
+    private void work() {
+        try (ObjectReader reader = _repository.newObjectReader()) {
+            int i;
+            while (_failure == null && (i = _nextIndex.getAndIncrement()) < _blobs.size()) {
+                search(reader, _blobs.get(i).getKey(), _blobs.get(i).getValue());
+            }
+        } catch (InterruptedException e) {
+            // closed
+            return;
+        } catch (IOException | RuntimeException e) {
+            _failure = e;
+        }
+        if (_runningWorkers.decrementAndGet() == 0) {
+            try {
+                _matches.put(END);
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }
+    }
+
+    private void search(ObjectReader reader, ObjectId blobId, List<String> paths) throws IOException, InterruptedException {
+        if (reader.getObjectSize(blobId, Constants.OBJ_BLOB) > _maxFileSize) {
+            return;
+        }
+        byte[] content = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+        if (RawText.isBinary(content)) {
+            return;
+        }
+        String text = RawParseUtils.decode(content);
+        Matcher matcher = _pattern.matcher(text);
+        int lineNumber = 0;
+        for (int lineStart = 0; lineStart < text.length(); ) {
+            int lineBreak = text.indexOf('\n', lineStart);
+            int nextLineStart = lineBreak < 0 ? text.length() : lineBreak + 1;
+            int lineEnd = lineBreak < 0 ? text.length() : lineBreak;
+            if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            lineNumber++;
+            // region bounds are anchoring bounds, so ^ and $ match at line start and end
+            if (matcher.region(lineStart, lineEnd).find()) {
+                String line = text.substring(lineStart, lineEnd);
+                for (String path : paths) {
+                    _matches.put(new GitGrepMatch(path, lineNumber, line));
+                }
+            }
+            lineStart = nextLineStart;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (_next == null && !_done) {
+            try {
+                GitGrepMatch match = _matches.take();
+                if (match == END) {
+                    _done = true;
+                    throwFailure();
+                } else {
+                    _next = match;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for matches"));
+            }
+        }
+        return _next != null;
+    }
+
+    private void throwFailure() {
+        Exception failure = _failure;
+        if (failure instanceof IOException) {
+            throw new UncheckedIOException((IOException) failure);
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    @Override
+    public GitGrepMatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GitGrepMatch result = _next;
+        _next = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        // interrupts workers waiting for space in the queue
+        _executor.shutdownNow();
+        _matches.clear();
+    }
+}
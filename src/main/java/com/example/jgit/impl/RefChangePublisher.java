@@ -0,0 +1,135 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitRefChangeEvent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes changes of refs by comparing them to a snapshot taken before.
+ * <p>
+ * Changes are looked for after each writing call of the wrapper, whenever jGit notices changed refs
+ * (it fires a {@link org.eclipse.jgit.events.RefsChangedEvent} when reading refs that were changed on disk),
+ * and on each poll if polling is enabled. Nothing is compared while there are no subscribers.
+ * <p>
+ * Comparing and publishing happens on a thread of its own: subscribers may call the wrapper (and thereby trigger
+ * a comparison) while the publisher waits for space in their buffers, and writers are not slowed down.
+ */
+class RefChangePublisher implements Flow.Publisher<GitRefChangeEvent> {
+
+    private final Repository _repository;
+    private final SubmissionPublisher<GitRefChangeEvent> _publisher = new SubmissionPublisher<>();
+    private final ScheduledExecutorService _executor;
+    // guarded by this
+    private Map<String, Ref> _snapshot;
+    private ScheduledFuture<?> _poll;
+
+    RefChangePublisher(Repository repository) {
+        _repository = repository;
+        _executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ref-changes-" + _repository.getDirectory().getParentFile().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        _repository.getListenerList().addRefsChangedListener(event -> publishChangesLater());
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super GitRefChangeEvent> subscriber) {
+        if (_snapshot == null) {
+            try {
+                _snapshot = _repository.getRefDatabase().getRefs(RefDatabase.ALL);
+            } catch (IOException e) {
+                // the next change is not published then, but all after it are
+            }
+        }
+        _publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Compares the refs to the snapshot and publishes the differences, soon.
+     */
+    void publishChangesLater() {
+        _executor.execute(this::publishChanges);
+    }
+
+    /**
+     * Runs on the publishing thread only, so events are published in order.
+     * Blocks while a subscriber's buffer is full.
+     */
+    private void publishChanges() {
+        List<GitRefChangeEvent> events = new ArrayList<>();
+        synchronized (this) {
+            if (!_publisher.hasSubscribers()) {
+                // changes are relative to the snapshot taken for the next subscriber
+                _snapshot = null;
+                return;
+            }
+            Map<String, Ref> refs;
+            try {
+                refs = _repository.getRefDatabase().getRefs(RefDatabase.ALL);
+            } catch (IOException e) {
+                // keep the snapshot, so the changes are published next time
+                return;
+            }
+            if (_snapshot != null) {
+                TreeSet<String> refNames = new TreeSet<>(_snapshot.keySet());
+                refNames.addAll(refs.keySet());
+                for (String refName : refNames) {
+                    Ref oldRef = _snapshot.get(refName);
+                    Ref newRef = refs.get(refName);
+                    if (!isSame(oldRef, newRef)) {
+                        events.add(new GitRefChangeEvent(refName, toSha1(oldRef), toSha1(newRef)));
+                    }
+                }
+            }
+            _snapshot = refs;
+        }
+        events.forEach(_publisher::submit);
+    }
+
+    synchronized void setPollInterval(Duration interval) {
+        if (_poll != null) {
+            _poll.cancel(false);
+            _poll = null;
+        }
+        if (!interval.isZero()) {
+            _poll = _executor.scheduleWithFixedDelay(() -> {
+                try {
+                    // fires a RefsChangedEvent if refs changed on disk
+                    _repository.scanForRepoChanges();
+                } catch (IOException e) {
+                    // try again with the next poll
+                }
+            }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static boolean isSame(Ref oldRef, Ref newRef) {
+        if (oldRef == null || newRef == null) {
+            return oldRef == newRef;
+        }
+        // a symbolic ref (HEAD) also changes if it is linked to another branch pointing to the same commit
+        return Objects.equals(oldRef.getObjectId(), newRef.getObjectId())
+                && Objects.equals(oldRef.getLeaf().getName(), newRef.getLeaf().getName());
+    }
+
+    private static String toSha1(Ref ref) {
+        // HEAD of a new repository has no commit yet
+        return ref == null || ref.getObjectId() == null ? null : ref.getObjectId().name();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitRefUpdateResult;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface RefUpdateResultMapper {
+
+    RefUpdateResultMapper INSTANCE = Mappers.getMapper(RefUpdateResultMapper.class);
+
+    GitRefUpdateResult convert(ReceiveCommand.Result result);
+}
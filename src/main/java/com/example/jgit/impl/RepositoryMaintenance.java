@@ -0,0 +1,141 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitMaintenanceOptions;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts writes to a repository and packs its objects and refs in a background thread once thresholds are crossed.
+ * <p>
+ * Writes share a lock, which packing takes exclusively: reads never wait, writes wait while packing.
+ * Unreachable loose objects are only pruned after <code>gc.pruneExpire</code> (two weeks by default),
+ * so objects of writes in progress are never removed.
+ */
+class RepositoryMaintenance {
+
+    /**
+     * Marks the end of a write, see {@link #beginWrite()}.
+     */
+    interface Write extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    static final Write NO_WRITE = () -> {
+    };
+
+    private final FileRepository _repository;
+    private final GitMaintenanceOptions _options;
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+    private final AtomicInteger _writesSinceCheck = new AtomicInteger();
+    private final AtomicBoolean _checkScheduled = new AtomicBoolean();
+    private final List<Exception> _failures = new CopyOnWriteArrayList<>();
+    private final ExecutorService _executor;
+
+    RepositoryMaintenance(FileRepository repository, GitMaintenanceOptions options) {
+        _repository = repository;
+        // copied, so later changes of the options have no effect
+        _options = new GitMaintenanceOptions()
+                .setWritesBetweenChecks(options.getWritesBetweenChecks())
+                .setLooseObjectThreshold(options.getLooseObjectThreshold())
+                .setPackThreshold(options.getPackThreshold())
+                .setLooseRefThreshold(options.getLooseRefThreshold());
+        _executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "maintenance-" + _repository.getDirectory().getParentFile().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * To be closed when the write is done, which may schedule a check of the thresholds.
+     */
+    Write beginWrite() {
+        Lock lock = _lock.readLock();
+        lock.lock();
+        return () -> {
+            lock.unlock();
+            if (_writesSinceCheck.incrementAndGet() >= _options.getWritesBetweenChecks() && _checkScheduled.compareAndSet(false, true)) {
+                _writesSinceCheck.set(0);
+                try {
+                    _executor.execute(this::checkAndPack);
+                } catch (RejectedExecutionException e) {
+                    // closed in the meantime
+                }
+            }
+        };
+    }
+
+    private void checkAndPack() {
+        // writes from now on may schedule the next check
+        _checkScheduled.set(false);
+        try {
+            GC gc = new GC(_repository);
+            GC.RepoStatistics statistics = gc.getStatistics();
+            boolean packRefs = statistics.numberOfLooseRefs >= _options.getLooseRefThreshold();
+            boolean repack = statistics.numberOfLooseObjects >= _options.getLooseObjectThreshold()
+                    || statistics.numberOfPackFiles >= _options.getPackThreshold();
+            if (!packRefs && !repack) {
+                return;
+            }
+            Lock lock = _lock.writeLock();
+            lock.lock();
+            try {
+                if (packRefs) {
+                    gc.packRefs();
+                }
+                if (repack) {
+                    gc.repack();
+                    gc.prune(Collections.emptySet());
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException | ParseException | RuntimeException e) {
+            // reported on close; the next check tries again
+            _failures.add(e);
+        }
+    }
+
+    /**
+     * Waits for a running check to finish, and stops checking.
+     *
+     * @throws IOException if any check failed
+     */
+    void close() throws IOException {
+        _executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (_executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (!_failures.isEmpty()) {
+            IOException exception = new IOException("Maintenance of " + _repository.getDirectory() + " failed", _failures.get(0));
+            _failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitWarmUpResult;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the parts of a repository that jGit loads lazily on first use and keeps cached afterwards.
+ * <p>
+ * Pack indexes are cached by the pack files of the object directory (until the pack is removed),
+ * refs by the ref directory (until they are modified), and objects by the process-wide window cache.
+ */
+class RepositoryWarmUp {
+
+    // warming up many repositories at startup is I/O bound, but should not start a thread per repository
+    private static final int SHARED_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * Runs the warm-ups without an explicit executor; its threads stop when idle.
+     */
+    static final Executor SHARED_EXECUTOR = createSharedExecutor();
+
+    private static Executor createSharedExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_THREADS, SHARED_THREADS, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "warm-up-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static GitWarmUpResult warmUp(FileRepository repository, Duration openDuration) throws IOException {
+        long start = System.nanoTime();
+        Collection<PackFile> packs = repository.getObjectDatabase().getPacks();
+        for (PackFile pack : packs) {
+            // reads the index, if not read yet
+            pack.getIndex();
+        }
+        long packIndexesRead = System.nanoTime();
+
+        int refCount = repository.getRefDatabase().getRefs(RefDatabase.ALL).size();
+        long refsRead = System.nanoTime();
+
+        ObjectId headId = repository.resolve(Constants.HEAD);
+        // a new repository has no commit yet
+        if (headId != null) {
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevCommit head = revWalk.parseCommit(headId);
+                revWalk.parseTree(head.getTree());
+            }
+        }
+        long headCommitRead = System.nanoTime();
+
+        return new GitWarmUpResult(openDuration,
+                Duration.ofNanos(packIndexesRead - start), packs.size(),
+                Duration.ofNanos(refsRead - packIndexesRead), refCount,
+                Duration.ofNanos(headCommitRead - refsRead));
+    }
+}
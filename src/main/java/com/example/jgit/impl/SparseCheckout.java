@@ -0,0 +1,86 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitStatus;
+
+import java.util.*;
+
+/**
+ * Immutable set of path prefixes ("/"-separated, relative to the repository root) selecting the part of the tree
+ * that is materialised in the working tree. An empty set selects the whole tree.
+ */
+class SparseCheckout {
+
+    static final SparseCheckout FULL = new SparseCheckout(Collections.emptySet());
+
+    private final SortedSet<String> _pathPrefixes;
+
+    SparseCheckout(Set<String> pathPrefixes) {
+        SortedSet<String> normalized = new TreeSet<>();
+        for (String pathPrefix : pathPrefixes) {
+            String trimmed = pathPrefix.replaceAll("^/+|/+$", "");
+            if (trimmed.isEmpty()) {
+                throw new IllegalArgumentException("Path prefix must not be empty: " + pathPrefix);
+            }
+            normalized.add(trimmed);
+        }
+        _pathPrefixes = Collections.unmodifiableSortedSet(normalized);
+    }
+
+    boolean isEnabled() {
+        return !_pathPrefixes.isEmpty();
+    }
+
+    SortedSet<String> getPathPrefixes() {
+        return _pathPrefixes;
+    }
+
+    /**
+     * @return true if the given file path is part of the working tree
+     */
+    boolean includes(String path) {
+        return !isEnabled() || _pathPrefixes.stream().anyMatch(prefix -> path.equals(prefix) || path.startsWith(prefix + "/"));
+    }
+
+    /**
+     * Restricts a file pattern as used by {@link com.example.jgit.ThrowingGitWrapper#add(String)} to the selected part of the tree.
+     *
+     * @return the patterns covering the intersection (possibly empty)
+     */
+    Collection<String> restrict(String filePattern) {
+        if (!isEnabled() || includes(filePattern)) {
+            return Collections.singleton(filePattern);
+        }
+        if (filePattern.equals(".")) {
+            return _pathPrefixes;
+        }
+        List<String> result = new ArrayList<>();
+        for (String prefix : _pathPrefixes) {
+            if (prefix.startsWith(filePattern + "/")) {
+                result.add(prefix);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the status without files outside of the selected part of the tree, which are always missing
+     */
+    GitStatus filter(GitStatus status) {
+        if (!isEnabled()) {
+            return status;
+        }
+        Set<String> deleted = new TreeSet<>(status.getDeleted());
+        deleted.removeIf(path -> !includes(path));
+        return new GitStatus(status.getAdded(), status.getModified(), deleted, status.getUntracked());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SparseCheckout && _pathPrefixes.equals(((SparseCheckout) o)._pathPrefixes);
+    }
+
+    @Override
+    public int hashCode() {
+        return _pathPrefixes.hashCode();
+    }
+}
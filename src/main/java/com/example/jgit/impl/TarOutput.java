@@ -0,0 +1,217 @@
+package com.example.jgit.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a tar archive in the POSIX.1-2001 (pax) format, like <a href="https://git-scm.com/docs/git-archive">git archive</a> does:
+ * ustar headers, plus extended headers for paths, link targets and sizes that do not fit into them.
+ * <p>
+ * After {@link #putFile(String, int, long)}, exactly the given number of bytes must be written before the next entry.
+ */
+class TarOutput extends OutputStream {
+
+    private static final int BLOCK_SIZE = 512;
+    // blocking factor 20, like tar's default
+    private static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_SYMLINK = '2';
+    private static final byte TYPE_EXTENDED = 'x';
+    private static final byte TYPE_GLOBAL_EXTENDED = 'g';
+
+    private final OutputStream _out;
+    private final long _modificationTime;
+    private long _written;
+    private long _remaining;
+
+    /**
+     * @param modificationTime of all entries, in seconds since the epoch
+     */
+    TarOutput(OutputStream out, long modificationTime) {
+        _out = out;
+        _modificationTime = modificationTime;
+    }
+
+    /**
+     * Writes a global extended header with the given comment, which <code>git get-tar-commit-id</code> reads the commit from.
+     */
+    void putComment(String comment) throws IOException {
+        Map<String, String> records = new LinkedHashMap<>();
+        records.put("comment", comment);
+        putExtendedHeader("pax_global_header", TYPE_GLOBAL_EXTENDED, records);
+    }
+
+    /**
+     * @param mode permissions, e.g. 0644
+     */
+    void putFile(String path, int mode, long size) throws IOException {
+        Map<String, String> records = new LinkedHashMap<>();
+        if (size > MAX_OCTAL_SIZE) {
+            records.put("size", Long.toString(size));
+        }
+        putHeader(path, mode, size > MAX_OCTAL_SIZE ? 0 : size, TYPE_FILE, "", records);
+        _remaining = size;
+    }
+
+    void putSymlink(String path, String target) throws IOException {
+        putHeader(path, 0777, 0, TYPE_SYMLINK, target, new LinkedHashMap<>());
+    }
+
+    private void putHeader(String path, int mode, long size, byte type, String linkTarget, Map<String, String> records) throws IOException {
+        closeEntry();
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        // longer paths are split into prefix and name at a "/"
+        int split = -1;
+        if (pathBytes.length > 100) {
+            for (int i = pathBytes.length - 1; i > 0; i--) {
+                if (pathBytes[i] == '/' && i <= 155 && pathBytes.length - i - 1 <= 100) {
+                    split = i;
+                    break;
+                }
+            }
+            if (split < 0) {
+                records.put("path", path);
+            }
+        }
+        byte[] linkTargetBytes = linkTarget.getBytes(StandardCharsets.UTF_8);
+        if (linkTargetBytes.length > 100) {
+            records.put("linkpath", linkTarget);
+        }
+        if (!records.isEmpty()) {
+            putExtendedHeader("PaxHeaders/" + path.substring(path.lastIndexOf('/') + 1), TYPE_EXTENDED, records);
+        }
+
+        byte[] header = newHeader(mode, size, type);
+        if (split < 0) {
+            // truncated if an extended header holds the path
+            System.arraycopy(pathBytes, 0, header, 0, Math.min(pathBytes.length, 100));
+        } else {
+            System.arraycopy(pathBytes, split + 1, header, 0, pathBytes.length - split - 1);
+            System.arraycopy(pathBytes, 0, header, 345, split);
+        }
+        System.arraycopy(linkTargetBytes, 0, header, 157, Math.min(linkTargetBytes.length, 100));
+        writeChecksum(header);
+        writeRaw(header, 0, header.length);
+    }
+
+    private void putExtendedHeader(String name, byte type, Map<String, String> records) throws IOException {
+        StringBuilder content = new StringBuilder();
+        records.forEach((key, value) -> content.append(extendedRecord(key, value)));
+        byte[] contentBytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] header = newHeader(0666, contentBytes.length, type);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        writeChecksum(header);
+        writeRaw(header, 0, header.length);
+        writeRaw(contentBytes, 0, contentBytes.length);
+        padToBlock();
+    }
+
+    /**
+     * @return a ustar header without name, link target and checksum, owned by root
+     */
+    private byte[] newHeader(int mode, long size, byte type) {
+        byte[] header = new byte[BLOCK_SIZE];
+        writeOctal(header, 100, 8, mode);
+        writeOctal(header, 108, 8, 0);
+        writeOctal(header, 116, 8, 0);
+        writeOctal(header, 124, 12, size);
+        writeOctal(header, 136, 12, _modificationTime);
+        header[156] = type;
+        writeAscii(header, 257, "ustar\0");
+        writeAscii(header, 263, "00");
+        writeAscii(header, 265, "root");
+        writeAscii(header, 297, "root");
+        return header;
+    }
+
+    /**
+     * @return "length key=value\n", where the length counts the whole record including its own digits
+     */
+    private static String extendedRecord(String key, String value) {
+        int length = key.getBytes(StandardCharsets.UTF_8).length + value.getBytes(StandardCharsets.UTF_8).length + 3;
+        int digits = Integer.toString(length).length();
+        if (Integer.toString(length + digits).length() > digits) {
+            digits++;
+        }
+        return (length + digits) + " " + key + "=" + value + "\n";
+    }
+
+    private static void writeOctal(byte[] header, int offset, int length, long value) {
+        // zero-padded, terminated by NUL
+        String octal = Long.toOctalString(value);
+        for (int i = 0; i < length - 1 - octal.length(); i++) {
+            header[offset + i] = '0';
+        }
+        writeAscii(header, offset + length - 1 - octal.length(), octal);
+    }
+
+    private static void writeAscii(byte[] header, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            header[offset + i] = (byte) value.charAt(i);
+        }
+    }
+
+    private static void writeChecksum(byte[] header) {
+        // computed with the checksum field itself filled with spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        writeOctal(header, 148, 7, checksum);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > _remaining) {
+            throw new IOException("Entry is " + (len - _remaining) + " bytes longer than its size");
+        }
+        writeRaw(b, off, len);
+        _remaining -= len;
+    }
+
+    private void writeRaw(byte[] b, int off, int len) throws IOException {
+        _out.write(b, off, len);
+        _written += len;
+    }
+
+    private void closeEntry() throws IOException {
+        if (_remaining > 0) {
+            throw new IOException("Entry is " + _remaining + " bytes shorter than its size");
+        }
+        padToBlock();
+    }
+
+    private void padToBlock() throws IOException {
+        int padding = (int) ((BLOCK_SIZE - _written % BLOCK_SIZE) % BLOCK_SIZE);
+        writeRaw(new byte[padding], 0, padding);
+    }
+
+    /**
+     * Writes the end of the archive, without closing the underlying stream.
+     */
+    void finish() throws IOException {
+        closeEntry();
+        // two empty blocks, padded to a full record
+        writeRaw(new byte[2 * BLOCK_SIZE], 0, 2 * BLOCK_SIZE);
+        int padding = (int) ((RECORD_SIZE - _written % RECORD_SIZE) % RECORD_SIZE);
+        writeRaw(new byte[padding], 0, padding);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _out.flush();
+    }
+}
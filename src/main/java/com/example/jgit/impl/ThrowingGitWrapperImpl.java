@@ -1,23 +1,63 @@
 package com.example.jgit.impl;
 
+import com.example.jgit.GitArchiveFormat;
+import com.example.jgit.GitArchiveOptions;
+import com.example.jgit.GitBlameLine;
+import com.example.jgit.GitCancellationScope;
+import com.example.jgit.GitCancellationToken;
+import com.example.jgit.GitCancelledException;
+import com.example.jgit.GitCleanOptions;
+import com.example.jgit.GitCleanResult;
+import com.example.jgit.GitCommitId;
+import com.example.jgit.GitCommitIdList;
 import com.example.jgit.GitDiffType;
+import com.example.jgit.GitFileContent;
+import com.example.jgit.GitFileHistoryEntry;
+import com.example.jgit.GitFileHistoryOptions;
+import com.example.jgit.GitGrepMatch;
+import com.example.jgit.GitGrepOptions;
+import com.example.jgit.GitLargeFileOptions;
+import com.example.jgit.GitMaintenanceOptions;
+import com.example.jgit.GitMergeResult;
+import com.example.jgit.GitObjectTrace;
+import com.example.jgit.GitRefChangeEvent;
+import com.example.jgit.GitRefUpdateResult;
+import com.example.jgit.GitReplayResult;
+import com.example.jgit.GitStatus;
+import com.example.jgit.GitWarmUpResult;
 import com.example.jgit.ThrowingGitWrapper;
 import com.google.common.annotations.VisibleForTesting;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand;
 import org.eclipse.jgit.api.MergeResult;
-import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.api.errors.RefNotFoundException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.revwalk.filter.SkipRevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
@@ -25,12 +65,27 @@ import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.example.jgit.impl.ChangeTypeMapper.INSTANCE;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 /**
@@ -42,14 +97,92 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
      * Create or open a GIT repository at the given directory
      */
     public static ThrowingGitWrapper createForLocalOnlyRepository(File directory) throws IOException, GitAPIException {
-        return new ThrowingGitWrapperImpl(directory);
+        return WritingCallProxy.wrap(new ThrowingGitWrapperImpl(directory));
+    }
+
+    /**
+     * Create or open a bare GIT repository at the given directory.
+     * Only operations that do not need a working tree (e.g. {@link #commitFiles(String, Map, Set, String)}) are supported.
+     */
+    public static ThrowingGitWrapper createForLocalOnlyBareRepository(File directory) throws IOException, GitAPIException {
+        return WritingCallProxy.wrap(new ThrowingGitWrapperImpl(directory, true));
+    }
+
+    /**
+     * Create or open a worktree of the given repository at the given directory, with the given branch checked out.
+     * <p>
+     * A worktree is a repository of its own, with its own HEAD, index, refs and working tree, so different branches can be
+     * checked out and built in parallel. It reads the objects of the given repository through
+     * <a href="https://git-scm.com/docs/gitrepository-layout">objects/info/alternates</a> instead of copying them,
+     * like <a href="https://git-scm.com/docs/git-clone">git clone --shared</a>; only objects it creates itself are stored in it.
+     * Any commit of the given repository can be checked out in the worktree by its SHA-1, e.g. by {@link #resetHardTo(String)}.
+     * <p>
+     * jGit 4.11 does not support git's linked worktrees, which also share refs: branches are copied when the worktree is created,
+     * and commits made in the worktree are not visible in the given repository.
+     * As with <code>git clone --shared</code>, commits of the given repository that the worktree uses must stay reachable there,
+     * or its maintenance may prune them. Deleting the directory removes the worktree.
+     *
+     * @param repositoryDirectory working tree or bare repository directory of the repository to share objects with
+     * @param branchName          existing branch of that repository, checked out when the worktree is created
+     */
+    public static ThrowingGitWrapper createWorktree(File repositoryDirectory, File worktreeDirectory, String branchName) throws IOException, GitAPIException {
+        File objectDirectory = new File(findGitDirectory(repositoryDirectory), "objects").getCanonicalFile();
+        File alternates = new File(worktreeDirectory, Constants.DOT_GIT + "/objects/info/alternates");
+        if (new File(worktreeDirectory, Constants.DOT_GIT).exists()) {
+            if (!alternates.isFile() || !Files.readAllLines(alternates.toPath()).contains(objectDirectory.getPath())) {
+                throw new IllegalArgumentException("Not a worktree of " + repositoryDirectory + ": " + worktreeDirectory);
+            }
+            return createForLocalOnlyRepository(worktreeDirectory);
+        }
+        ObjectId branchId;
+        try (Repository repository = new FileRepositoryBuilder().setGitDir(objectDirectory.getParentFile()).setMustExist(true).build()) {
+            Ref branch = repository.exactRef(Constants.R_HEADS + branchName);
+            if (branch == null) {
+                throw new IllegalArgumentException("Branch does not exist: " + branchName);
+            }
+            branchId = branch.getObjectId();
+        }
+        Git.init().setBare(false).setDirectory(worktreeDirectory).call().close();
+        Files.write(alternates.toPath(), (objectDirectory.getPath() + "\n").getBytes(StandardCharsets.UTF_8));
+        ThrowingGitWrapper worktree = createForLocalOnlyRepository(worktreeDirectory);
+        worktree.createBranches(Collections.singletonMap(branchName, branchId.name()));
+        worktree.checkOutBranch(branchName);
+        return worktree;
+    }
+
+    private static File findGitDirectory(File repositoryDirectory) {
+        File gitDirectory = new File(repositoryDirectory, Constants.DOT_GIT);
+        if (gitDirectory.isDirectory()) {
+            return gitDirectory;
+        }
+        if (new File(repositoryDirectory, Constants.HEAD).isFile()) {
+            return repositoryDirectory;
+        }
+        throw new IllegalArgumentException("Not a GIT repository: " + repositoryDirectory);
     }
 
     private final Git _git;
+    private final Duration _openDuration;
+    private volatile WorkingTreeWatcher _workingTreeWatcher;
+    private volatile RepositoryMaintenance _maintenance;
+    private volatile RefChangePublisher _refChangePublisher;
+    private volatile SparseCheckout _sparseCheckout = SparseCheckout.FULL;
+    // what the working tree currently looks like
+    private volatile SparseCheckout _appliedSparseCheckout = SparseCheckout.FULL;
+    private volatile boolean _treeIndexEnabled;
+    // writing files is I/O bound, so more threads than cores pay off
+    private volatile int _checkoutParallelism = 2 * Runtime.getRuntime().availableProcessors();
+    private final ThreadLocal<GitCancellationToken> _cancellationToken = new ThreadLocal<>();
 
     @VisibleForTesting
     ThrowingGitWrapperImpl(File directory) throws IOException, GitAPIException {
-        _git = localSetup(directory);
+        this(directory, false);
+    }
+
+    private ThrowingGitWrapperImpl(File directory, boolean bare) throws IOException, GitAPIException {
+        long start = System.nanoTime();
+        _git = bare ? bareSetup(directory) : localSetup(directory);
+        _openDuration = Duration.ofNanos(System.nanoTime() - start);
     }
 
     private Git localSetup(File directory) throws IOException, GitAPIException {
@@ -62,7 +195,16 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
             // We don't want that - plus, init att this point would be unexpected.
             init(directory);
         }
-        Repository repository = builder.build();
+        // instead of builder.build(), which creates a plain FileRepository
+        Repository repository = new TracingRepository(builder.setup());
+        return new Git(repository);
+    }
+
+    private Git bareSetup(File directory) throws IOException, GitAPIException {
+        if (!new File(directory, Constants.HEAD).exists()) {
+            Git.init().setBare(true).setDirectory(directory).call();
+        }
+        Repository repository = new TracingRepository(new FileRepositoryBuilder().setGitDir(directory).setBare().setup());
         return new Git(repository);
     }
 
@@ -73,33 +215,188 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
     }
 
     @Override
+    @Writing
     public void add(String filePattern) throws GitAPIException {
-        _git.add().addFilepattern(filePattern).call();
-        // workaround: AddCommand does not consider removed files in the current version, only if updated is set true
-        // (but then added files are ignored, so we do 2 calls here)
-        _git.add().setUpdate(true).addFilepattern(filePattern).call();
+        try {
+            _git.add().addFilepattern(filePattern).call();
+            // workaround: AddCommand does not consider removed files in the current version, only if updated is set true
+            // (but then added files are ignored, and all tracked files would be hashed a second time, so deletions are staged here)
+            // (files outside of a sparse checkout are missing, but must not be removed)
+            Collection<String> updatePatterns = _appliedSparseCheckout.restrict(filePattern);
+            if (!updatePatterns.isEmpty()) {
+                stageDeletions(updatePatterns);
+            }
+        } catch (IOException e) {
+            throw new JGitInternalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes index entries matching the patterns whose files are missing in the working tree, like <code>git add --update</code> does.
+     */
+    private void stageDeletions(Collection<String> filePatterns) throws IOException {
+        Repository repository = _git.getRepository();
+        DirCache dirCache = repository.lockDirCache();
+        try {
+            DirCacheEditor editor = dirCache.editor();
+            boolean changed = false;
+            for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                DirCacheEntry entry = dirCache.getEntry(i);
+                String path = entry.getPathString();
+                if (entry.isAssumeValid() || entry.getFileMode() == FileMode.GITLINK || !matchesAny(filePatterns, path)) {
+                    continue;
+                }
+                if (!Files.exists(new File(repository.getWorkTree(), path).toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                    editor.add(new DirCacheEditor.DeletePath(entry));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                editor.commit();
+            }
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    private static boolean matchesAny(Collection<String> filePatterns, String path) {
+        // same matching as AddCommand's PathFilterGroup
+        for (String filePattern : filePatterns) {
+            String prefix = filePattern.endsWith("/") ? filePattern.substring(0, filePattern.length() - 1) : filePattern;
+            if (prefix.equals(".") || path.equals(prefix) || path.startsWith(prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
+    @Writing
     public void addAll() throws GitAPIException {
         add(".");
     }
 
     @Override
     public Set<String> clean() throws GitAPIException {
-        return _git.clean()
-                .setCleanDirectories(true)
-                .setForce(true)
-                .setIgnore(false)
-                .call();
+        // same as jGit's CleanCommand with "cleanDirectories", "force" and not "ignore", but cancellable
+        try {
+            return new ParallelCleaner(_git, new GitCleanOptions(), cancellationToken()).clean().getCleanedPaths();
+        } catch (IOException e) {
+            throw new JGitInternalException(e.getMessage(), e);
+        }
     }
 
     @Override
+    public GitCleanResult clean(GitCleanOptions options) throws IOException, GitAPIException {
+        return new ParallelCleaner(_git, options, cancellationToken()).clean();
+    }
+
+    @Override
+    public GitStatus status() throws IOException, GitAPIException {
+        WorkingTreeWatcher workingTreeWatcher = _workingTreeWatcher;
+        GitStatus status = workingTreeWatcher != null ?
+                workingTreeWatcher.status() :
+                WorkingTreeWatcher.toGitStatus(_git.status().call());
+        return _appliedSparseCheckout.filter(status);
+    }
+
+    @Override
+    public synchronized void setWatchWorkingTree(boolean watch) throws IOException {
+        if (watch && _workingTreeWatcher == null) {
+            _workingTreeWatcher = new WorkingTreeWatcher(_git);
+        } else if (!watch && _workingTreeWatcher != null) {
+            _workingTreeWatcher.close();
+            _workingTreeWatcher = null;
+        }
+    }
+
+    @Override
+    @Writing
     public String commit(String message) throws GitAPIException {
         RevCommit revision = _git.commit().setMessage(message).call();
         return ObjectId.toString(revision);
     }
 
+    @Override
+    @Writing
+    public String commitFiles(String branchName, Map<String, byte[]> changes, Set<String> deletions, String message) throws IOException, GitAPIException {
+        Map<String, GitFileContent> contents = new LinkedHashMap<>();
+        changes.forEach((path, content) -> contents.put(path, GitFileContent.of(content)));
+        return commitFileContents(branchName, contents, deletions, message);
+    }
+
+    @Override
+    @Writing
+    public String commitFileContents(String branchName, Map<String, GitFileContent> changes, Set<String> deletions, String message) throws IOException, GitAPIException {
+        Set<String> changedAndDeleted = new HashSet<>(changes.keySet());
+        changedAndDeleted.retainAll(deletions);
+        if (!changedAndDeleted.isEmpty()) {
+            throw new IllegalArgumentException("Paths must not be changed and deleted at the same time: " + changedAndDeleted);
+        }
+        Repository repository = _git.getRepository();
+        String refName = Constants.R_HEADS + branchName;
+        Ref branch = repository.exactRef(refName);
+        ObjectId parentId = branch == null ? null : branch.getObjectId();
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             ObjectReader reader = inserter.newReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            // in-core index, seeded from the parent's tree - the repository's index file is not touched
+            DirCache index = DirCache.newInCore();
+            if (parentId != null) {
+                DirCacheBuilder builder = index.builder();
+                builder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, revWalk.parseCommit(parentId).getTree());
+                builder.finish();
+            }
+            DirCacheEditor editor = index.editor();
+            for (Map.Entry<String, GitFileContent> change : changes.entrySet()) {
+                ObjectId blobId;
+                try (InputStream in = change.getValue().open()) {
+                    blobId = inserter.insert(Constants.OBJ_BLOB, change.getValue().getLength(), in);
+                }
+                editor.add(new DirCacheEditor.PathEdit(change.getKey()) {
+                    @Override
+                    public void apply(DirCacheEntry entry) {
+                        // keep the executable bit of existing files
+                        if (entry.getFileMode() != FileMode.EXECUTABLE_FILE) {
+                            entry.setFileMode(FileMode.REGULAR_FILE);
+                        }
+                        entry.setObjectId(blobId);
+                    }
+                });
+            }
+            for (String deletion : deletions) {
+                editor.add(new DirCacheEditor.DeletePath(deletion));
+            }
+            editor.finish();
+
+            PersonIdent ident = new PersonIdent(repository);
+            CommitBuilder commitBuilder = new CommitBuilder();
+            commitBuilder.setTreeId(index.writeTree(inserter));
+            if (parentId != null) {
+                commitBuilder.setParentId(parentId);
+            }
+            commitBuilder.setAuthor(ident);
+            commitBuilder.setCommitter(ident);
+            commitBuilder.setMessage(message);
+            ObjectId commitId = inserter.insert(commitBuilder);
+            inserter.flush();
+
+            RefUpdate refUpdate = repository.updateRef(refName);
+            refUpdate.setNewObjectId(commitId);
+            // fails if someone else moved the branch in the meantime
+            refUpdate.setExpectedOldObjectId(parentId == null ? ObjectId.zeroId() : parentId);
+            refUpdate.setRefLogMessage("commit: " + revWalk.parseCommit(commitId).getShortMessage(), false);
+            RefUpdate.Result result = refUpdate.update(revWalk);
+            switch (result) {
+                case NEW:
+                case FAST_FORWARD:
+                    return ObjectId.toString(commitId);
+                default:
+                    throw new ConcurrentRefUpdateException("Could not update " + refName, refUpdate.getRef(), result);
+            }
+        }
+    }
+
     @Override
     public String getLastLogEntry() throws GitAPIException {
         RevCommit logEntry = getOnlyElement(_git.log().setMaxCount(1).call());
@@ -120,6 +417,11 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
         return ObjectId.toString(logEntry);
     }
 
+    @Override
+    public GitCommitId getLastLogCommitId() throws GitAPIException {
+        return toCommitId(getOnlyElement(_git.log().setMaxCount(1).call()));
+    }
+
     @Override
     public String getLastLogMessage() throws GitAPIException {
         RevCommit logEntry = getOnlyElement(_git.log().setMaxCount(1).call());
@@ -127,48 +429,557 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
     }
 
     @Override
-    public String createBranchAndCheckout(String branchName) throws GitAPIException {
-        Ref ref = _git.checkout().setCreateBranch(true).setName(branchName).call();
-        return ObjectId.toString(ref.getObjectId());
+    @Writing
+    public String createBranchAndCheckout(String branchName) throws IOException, GitAPIException {
+        _git.branchCreate().setName(branchName).call();
+        return checkOutBranch(branchName);
     }
 
     @Override
-    public String checkOutBranch(String branchName) throws GitAPIException {
-        Ref ref = _git.checkout().setName(branchName).call();
-        return ObjectId.toString(ref.getObjectId());
+    @Writing
+    public String checkOutBranch(String branchName) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        SparseCheckout sparseCheckout = _sparseCheckout;
+        Ref branch = repository.exactRef(Constants.R_HEADS + branchName);
+        ObjectId targetId = branch != null ? branch.getObjectId() : repository.resolve(branchName);
+        if (targetId == null) {
+            throw new RefNotFoundException("Ref " + branchName + " cannot be resolved");
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit head = parseHead(revWalk);
+            RevCommit target = revWalk.parseCommit(targetId);
+            // fast path: nothing to write if only HEAD moves (e.g. for a new branch)
+            if (head == null || !head.getTree().equals(target.getTree()) || !sparseCheckout.equals(_appliedSparseCheckout)) {
+                new WorkingTreeCheckout(repository, sparseCheckout, _checkoutParallelism, cancellationToken()).checkout(head, target);
+                _appliedSparseCheckout = sparseCheckout;
+            }
+            // detached HEAD if the name was not a branch
+            RefUpdate refUpdate = repository.updateRef(Constants.HEAD, branch == null);
+            refUpdate.setRefLogMessage("checkout: moving from " + repository.getBranch() + " to " + branchName, false);
+            RefUpdate.Result result;
+            if (branch != null) {
+                result = refUpdate.link(branch.getName());
+            } else {
+                refUpdate.setNewObjectId(targetId);
+                result = refUpdate.forceUpdate();
+            }
+            checkHeadUpdate(refUpdate, result);
+        }
+        return ObjectId.toString(targetId);
+    }
+
+    private RevCommit parseHead(RevWalk revWalk) throws IOException {
+        ObjectId headId = _git.getRepository().resolve(Constants.HEAD);
+        return headId == null ? null : revWalk.parseCommit(headId);
+    }
+
+    private void checkHeadUpdate(RefUpdate refUpdate, RefUpdate.Result result) throws ConcurrentRefUpdateException {
+        switch (result) {
+            case NEW:
+            case FORCED:
+            case FAST_FORWARD:
+            case NO_CHANGE:
+                return;
+            default:
+                throw new ConcurrentRefUpdateException("Could not update " + Constants.HEAD, refUpdate.getRef(), result);
+        }
     }
 
     @Override
-    public String checkoutMasterAndDeleteBranch(String branchName) throws GitAPIException {
+    @Writing
+    public String checkoutMasterAndDeleteBranch(String branchName) throws IOException, GitAPIException {
         checkOutBranch("master");
         return getOnlyElement(_git.branchDelete().setForce(true).setBranchNames(branchName).call());
     }
 
     @Override
+    @Writing
+    public Map<String, GitRefUpdateResult> createBranches(Map<String, String> branchNameToRevision) throws IOException {
+        Repository repository = _git.getRepository();
+        Map<String, ReceiveCommand> commands = new LinkedHashMap<>();
+        for (Map.Entry<String, String> branchAndRevision : branchNameToRevision.entrySet()) {
+            ObjectId revisionId = repository.resolve(branchAndRevision.getValue());
+            if (revisionId == null) {
+                throw new IllegalArgumentException("Revision does not exist: " + branchAndRevision.getValue());
+            }
+            commands.put(branchAndRevision.getKey(), createBranchCommand(branchAndRevision.getKey(), revisionId));
+        }
+        return executeAtomically(commands, "branch: Created in batch");
+    }
+
+    @Override
+    @Writing
+    public Map<String, GitRefUpdateResult> deleteBranches(Set<String> branchNames) throws IOException {
+        Map<String, ReceiveCommand> commands = new LinkedHashMap<>();
+        for (String branchName : branchNames) {
+            commands.put(branchName, deleteBranchCommand(branchName));
+        }
+        return executeAtomically(commands, "branch: Deleted in batch");
+    }
+
+    @Override
+    @Writing
+    public Map<String, GitRefUpdateResult> renameBranches(Map<String, String> oldToNewBranchName) throws IOException {
+        Map<String, ReceiveCommand> commands = new LinkedHashMap<>();
+        for (Map.Entry<String, String> oldAndNewName : oldToNewBranchName.entrySet()) {
+            ReceiveCommand deleteCommand = deleteBranchCommand(oldAndNewName.getKey());
+            putRenameCommand(commands, oldAndNewName.getKey(), deleteCommand);
+            putRenameCommand(commands, oldAndNewName.getValue(), createBranchCommand(oldAndNewName.getValue(), deleteCommand.getOldId()));
+        }
+        return executeAtomically(commands, "branch: Renamed in batch");
+    }
+
+    private static void putRenameCommand(Map<String, ReceiveCommand> commands, String branchName, ReceiveCommand command) {
+        // chained renames and swaps would need a temporary name, as one transaction updates each ref once
+        if (commands.putIfAbsent(branchName, command) != null) {
+            throw new IllegalArgumentException("Branch is renamed from or to more than once: " + branchName);
+        }
+    }
+
+    private ReceiveCommand createBranchCommand(String branchName, ObjectId objectId) throws IOException {
+        String refName = toBranchRefName(branchName);
+        ReceiveCommand command = new ReceiveCommand(ObjectId.zeroId(), objectId, refName, ReceiveCommand.Type.CREATE);
+        if (_git.getRepository().exactRef(refName) != null) {
+            command.setResult(ReceiveCommand.Result.REJECTED_NOCREATE);
+        }
+        return command;
+    }
+
+    private ReceiveCommand deleteBranchCommand(String branchName) throws IOException {
+        String refName = toBranchRefName(branchName);
+        Ref ref = _git.getRepository().exactRef(refName);
+        if (ref == null) {
+            // a command is needed for reporting only
+            ReceiveCommand command = new ReceiveCommand(ObjectId.zeroId(), ObjectId.zeroId(), refName);
+            command.setResult(ReceiveCommand.Result.REJECTED_NODELETE);
+            return command;
+        }
+        ReceiveCommand command = new ReceiveCommand(ref.getObjectId(), ObjectId.zeroId(), refName, ReceiveCommand.Type.DELETE);
+        if (refName.equals(_git.getRepository().getFullBranch())) {
+            command.setResult(ReceiveCommand.Result.REJECTED_CURRENT_BRANCH);
+        }
+        return command;
+    }
+
+    private String toBranchRefName(String branchName) {
+        String refName = Constants.R_HEADS + branchName;
+        if (!Repository.isValidRefName(refName)) {
+            throw new IllegalArgumentException("Invalid branch name: " + branchName);
+        }
+        return refName;
+    }
+
+    /**
+     * Executes all commands as one {@link BatchRefUpdate}, which locks packed-refs once instead of writing one loose ref per command.
+     * If any command was rejected up front, none are executed.
+     */
+    private Map<String, GitRefUpdateResult> executeAtomically(Map<String, ReceiveCommand> branchNameToCommand, String refLogMessage) throws IOException {
+        Repository repository = _git.getRepository();
+        Collection<ReceiveCommand> commands = branchNameToCommand.values();
+        if (commands.stream().anyMatch(command -> command.getResult() != ReceiveCommand.Result.NOT_ATTEMPTED)) {
+            ReceiveCommand.abort(commands);
+        } else if (!commands.isEmpty()) {
+            BatchRefUpdate batchRefUpdate = repository.getRefDatabase().newBatchUpdate()
+                    .setAtomic(true)
+                    .setRefLogIdent(new PersonIdent(repository))
+                    .setRefLogMessage(refLogMessage, false)
+                    .addCommand(commands);
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                batchRefUpdate.execute(revWalk, NullProgressMonitor.INSTANCE);
+            }
+        }
+        Map<String, GitRefUpdateResult> result = new LinkedHashMap<>();
+        branchNameToCommand.forEach((branchName, command) -> result.put(branchName, RefUpdateResultMapper.INSTANCE.convert(command.getResult())));
+        return result;
+    }
+
+    @Override
+    @Writing
     public String merge(String branchName) throws GitAPIException {
         Optional<Ref> branchWithMatchingName = findBranchByName(branchName);
         Ref aCommit = branchWithMatchingName.orElseThrow(() -> new IllegalArgumentException("Branch does not exist: " + branchName));
-        MergeResult mergeResult = _git.merge()
-                .include(aCommit)
-                .setCommit(true) // no dry run
-                .setFastForward(MergeCommand.FastForwardMode.NO_FF) // create a merge commit
-                .call();
+        MergeResult mergeResult;
+        try {
+            mergeResult = _git.merge()
+                    .setStrategy(new CancellableMergeStrategy(cancellationToken()))
+                    .include(aCommit)
+                    .setCommit(true) // no dry run
+                    .setFastForward(MergeCommand.FastForwardMode.NO_FF) // create a merge commit
+                    .call();
+        } catch (GitCancelledException e) {
+            // jGit writes them before merging, and removes them only once the merge is done
+            Repository repository = _git.getRepository();
+            try {
+                repository.writeMergeCommitMsg(null);
+                repository.writeMergeHeads(null);
+            } catch (IOException cleanUpException) {
+                e.addSuppressed(cleanUpException);
+            }
+            throw e;
+        }
         return ObjectId.toString(mergeResult.getNewHead());
     }
 
     @Override
-    public String resetHard() throws GitAPIException {
-        Ref ref = _git.reset().setMode(ResetCommand.ResetType.HARD).call();
-        return ObjectId.toString(ref.getObjectId());
+    public GitMergeResult predictMerge(String ours, String theirs) throws IOException {
+        Repository repository = _git.getRepository();
+        ObjectId oursId = resolveRevision(repository, ours);
+        ObjectId theirsId = resolveRevision(repository, theirs);
+        try (ObjectInserter inserter = new InMemoryInserter(repository)) {
+            return mergeInCore(repository, inserter, oursId, theirsId);
+        }
     }
 
     @Override
-    public String resetHardTo(String sha1OrBranch) throws GitAPIException {
-        Ref ref = _git.reset()
-                .setMode(ResetCommand.ResetType.HARD)
-                .setRef(sha1OrBranch)
-                .call();
-        return ObjectId.toString(ref.getObjectId());
+    @Writing
+    public GitMergeResult mergeWithoutCheckout(String branchName, String theirs, String message) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        String refName = Constants.R_HEADS + branchName;
+        Ref branch = repository.exactRef(refName);
+        if (branch == null) {
+            throw new IllegalArgumentException("Branch does not exist: " + branchName);
+        }
+        ObjectId theirsId = resolveRevision(repository, theirs);
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             ObjectReader reader = inserter.newReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            RevCommit oursCommit = revWalk.parseCommit(branch.getObjectId());
+            RevCommit theirsCommit = revWalk.parseCommit(theirsId);
+            if (revWalk.isMergedInto(theirsCommit, oursCommit)) {
+                // already up to date
+                return new GitMergeResult(Collections.emptySet(), Collections.emptySet(), oursCommit.getTree().name(), oursCommit.name());
+            }
+            revWalk.reset();
+            GitMergeResult result = mergeInCore(repository, inserter, oursCommit, theirsCommit);
+            if (!result.isSuccessful()) {
+                return result;
+            }
+
+            PersonIdent ident = new PersonIdent(repository);
+            CommitBuilder commitBuilder = new CommitBuilder();
+            commitBuilder.setTreeId(ObjectId.fromString(result.getTreeSha1().get()));
+            commitBuilder.setParentIds(oursCommit, theirsCommit);
+            commitBuilder.setAuthor(ident);
+            commitBuilder.setCommitter(ident);
+            commitBuilder.setMessage(message);
+            ObjectId commitId = inserter.insert(commitBuilder);
+            inserter.flush();
+
+            RefUpdate refUpdate = repository.updateRef(refName);
+            refUpdate.setNewObjectId(commitId);
+            // fails if someone else moved the branch in the meantime
+            refUpdate.setExpectedOldObjectId(oursCommit);
+            refUpdate.setRefLogMessage("merge " + theirs + ": Merge made by the 'recursive' strategy.", false);
+            RefUpdate.Result updateResult = refUpdate.update(revWalk);
+            if (updateResult != RefUpdate.Result.FAST_FORWARD) {
+                throw new ConcurrentRefUpdateException("Could not update " + refName, refUpdate.getRef(), updateResult);
+            }
+            return new GitMergeResult(result.getMergedPaths(), Collections.emptySet(), result.getTreeSha1().get(), commitId.name());
+        }
+    }
+
+    @Override
+    @Writing
+    public GitReplayResult cherryPick(String branchName, List<String> revisions, boolean updateWorkingTree) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        Ref branch = findBranchForReplay(repository, branchName);
+        List<ObjectId> commitIds = new ArrayList<>();
+        for (String revision : revisions) {
+            commitIds.add(resolveRevision(repository, revision));
+        }
+        return replay(branch, branch.getObjectId(), commitIds, updateWorkingTree, "cherry-pick: " + revisions);
+    }
+
+    @Override
+    @Writing
+    public GitReplayResult rebase(String branchName, String upstream, boolean updateWorkingTree) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        Ref branch = findBranchForReplay(repository, branchName);
+        ObjectId upstreamId = resolveRevision(repository, upstream);
+        List<RevCommit> commits = new ArrayList<>();
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit branchCommit = revWalk.parseCommit(branch.getObjectId());
+            RevCommit upstreamCommit = revWalk.parseCommit(upstreamId);
+            if (revWalk.isMergedInto(upstreamCommit, branchCommit)) {
+                // up to date
+                return new GitReplayResult(Collections.emptyMap(), null, Collections.emptySet(), branchCommit.name());
+            }
+            revWalk.reset();
+            revWalk.sort(RevSort.TOPO);
+            revWalk.sort(RevSort.REVERSE, true);
+            revWalk.setRevFilter(RevFilter.NO_MERGES);
+            revWalk.markStart(branchCommit);
+            revWalk.markUninteresting(upstreamCommit);
+            revWalk.forEach(commits::add);
+        }
+        return replay(branch, upstreamId, commits, updateWorkingTree, "rebase finished: " + branch.getName() + " onto " + upstreamId.name());
+    }
+
+    private static Ref findBranchForReplay(Repository repository, String branchName) throws IOException {
+        Ref branch = repository.exactRef(Constants.R_HEADS + branchName);
+        if (branch == null) {
+            throw new IllegalArgumentException("Branch does not exist: " + branchName);
+        }
+        return branch;
+    }
+
+    /**
+     * Replays the commits onto the given one in memory, and if that succeeds, writes the new objects,
+     * updates the working tree if asked to and finally the branch.
+     */
+    private GitReplayResult replay(Ref branch, ObjectId ontoId, List<? extends ObjectId> commitIds, boolean updateWorkingTree, String refLogMessage) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        CommitReplay replay = new CommitReplay(repository, cancellationToken());
+        GitReplayResult result = replay.replay(ontoId, commitIds);
+        ObjectId oldId = branch.getObjectId();
+        ObjectId newId = ObjectId.fromString(result.getCommitSha1().orElse(oldId.name()));
+        if (!result.isSuccessful() || newId.equals(oldId)) {
+            return result;
+        }
+        replay.writeObjects();
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit oldCommit = revWalk.parseCommit(oldId);
+            RevCommit newCommit = revWalk.parseCommit(newId);
+            WorkingTreeCheckout checkout = null;
+            if (updateWorkingTree && branch.getName().equals(repository.getFullBranch())) {
+                SparseCheckout sparseCheckout = _sparseCheckout;
+                checkout = new WorkingTreeCheckout(repository, sparseCheckout, _checkoutParallelism, cancellationToken());
+                // before the branch moves, so the branch stays unchanged if local changes would be overwritten
+                checkout.checkout(oldCommit, newCommit);
+                _appliedSparseCheckout = sparseCheckout;
+            }
+            RefUpdate refUpdate = repository.updateRef(branch.getName());
+            refUpdate.setNewObjectId(newId);
+            // fails if someone else moved the branch in the meantime
+            refUpdate.setExpectedOldObjectId(oldId);
+            refUpdate.setRefLogMessage(refLogMessage, false);
+            RefUpdate.Result updateResult = refUpdate.forceUpdate();
+            if (updateResult != RefUpdate.Result.FAST_FORWARD && updateResult != RefUpdate.Result.FORCED) {
+                if (checkout != null) {
+                    // local changes were kept, so they survive the way back, too
+                    checkout.checkout(newCommit, oldCommit);
+                }
+                throw new ConcurrentRefUpdateException("Could not update " + branch.getName(), refUpdate.getRef(), updateResult);
+            }
+        }
+        return result;
+    }
+
+    private static ObjectId resolveRevision(Repository repository, String revisionString) throws IOException {
+        ObjectId objectId = repository.resolve(revisionString);
+        if (objectId == null) {
+            throw new IllegalArgumentException("Revision does not exist: " + revisionString);
+        }
+        return objectId;
+    }
+
+    /**
+     * Merges like {@link MergeCommand} does by default, but in-core: the merged blobs and trees are inserted only.
+     * Reports the files changed on <code>theirs</code> side since the merge base as merged, unless they conflict.
+     */
+    private static GitMergeResult mergeInCore(Repository repository, ObjectInserter inserter, ObjectId oursId, ObjectId theirsId) throws IOException {
+        ResolveMerger merger = (ResolveMerger) MergeStrategy.RECURSIVE.newMerger(inserter, repository.getConfig());
+        boolean merged = merger.merge(oursId, theirsId);
+        Set<String> conflictingPaths = new TreeSet<>(merger.getUnmergedPaths());
+        Set<String> mergedPaths = new TreeSet<>();
+        try (ObjectReader reader = inserter.newReader();
+             RevWalk revWalk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            // the base may be a virtual commit, which only the inserter's reader knows
+            ObjectId baseId = merger.getBaseCommitId();
+            treeWalk.addTree(baseId == null ? new EmptyTreeIterator() : new CanonicalTreeParser(null, reader, revWalk.parseCommit(baseId).getTree()));
+            treeWalk.addTree(revWalk.parseCommit(theirsId).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            while (treeWalk.next()) {
+                if (!conflictingPaths.contains(treeWalk.getPathString())) {
+                    mergedPaths.add(treeWalk.getPathString());
+                }
+            }
+        }
+        if (!merged && conflictingPaths.isEmpty()) {
+            // in-core merges fail because of conflicts only
+            throw new IOException("Merging " + theirsId.name() + " into " + oursId.name() + " failed: " + merger.getFailingPaths());
+        }
+        return merged ?
+                new GitMergeResult(mergedPaths, Collections.emptySet(), merger.getResultTreeId().name(), null) :
+                new GitMergeResult(mergedPaths, conflictingPaths, null, null);
+    }
+
+    @Override
+    @Writing
+    public String resetHard() throws IOException, GitAPIException {
+        if (_git.getRepository().resolve(Constants.HEAD) == null) {
+            // nothing to reset to yet
+            return ObjectId.toString(null);
+        }
+        return resetHardTo(Constants.HEAD);
+    }
+
+    @Override
+    @Writing
+    public String resetHardTo(String sha1OrBranch) throws IOException, GitAPIException {
+        ObjectId targetId = _git.getRepository().resolve(sha1OrBranch);
+        if (targetId == null) {
+            throw new RefNotFoundException("Ref " + sha1OrBranch + " cannot be resolved");
+        }
+        return ObjectId.toString(resetHardTo(targetId, sha1OrBranch));
+    }
+
+    @Override
+    @Writing
+    public GitCommitId resetHardTo(GitCommitId commitId) throws IOException, GitAPIException {
+        return toCommitId(resetHardTo(toObjectId(commitId), commitId.name()));
+    }
+
+    private ObjectId resetHardTo(ObjectId targetId, String sha1OrBranch) throws IOException, GitAPIException {
+        Repository repository = _git.getRepository();
+        SparseCheckout sparseCheckout = _sparseCheckout;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit head = parseHead(revWalk);
+            new WorkingTreeCheckout(repository, sparseCheckout, _checkoutParallelism, cancellationToken()).reset(head, revWalk.parseCommit(targetId));
+            _appliedSparseCheckout = sparseCheckout;
+            RefUpdate refUpdate = repository.updateRef(Constants.HEAD);
+            refUpdate.setNewObjectId(targetId);
+            refUpdate.setRefLogMessage("reset: moving to " + sha1OrBranch, false);
+            checkHeadUpdate(refUpdate, refUpdate.forceUpdate());
+            if (head != null) {
+                repository.writeOrigHead(head);
+            }
+            // like ResetCommand: a merge, cherry-pick or revert in progress is aborted
+            repository.writeMergeHeads(null);
+            repository.writeMergeCommitMsg(null);
+            repository.writeCherryPickHead(null);
+            repository.writeRevertHead(null);
+        }
+        return targetId;
+    }
+
+    @Override
+    public void setCheckoutParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + threads);
+        }
+        _checkoutParallelism = threads;
+    }
+
+    @Override
+    public void setSparseCheckoutPaths(Set<String> pathPrefixes) {
+        _sparseCheckout = new SparseCheckout(pathPrefixes);
+    }
+
+    @Override
+    public Set<String> getSparseCheckoutPaths() {
+        return _sparseCheckout.getPathPrefixes();
+    }
+
+    @Override
+    public synchronized void enableMaintenance(GitMaintenanceOptions options) throws IOException {
+        disableMaintenance();
+        _maintenance = new RepositoryMaintenance((FileRepository) _git.getRepository(), options);
+    }
+
+    @Override
+    public synchronized void disableMaintenance() throws IOException {
+        RepositoryMaintenance maintenance = _maintenance;
+        if (maintenance != null) {
+            _maintenance = null;
+            maintenance.close();
+        }
+    }
+
+    @Override
+    public void enableLargeFileStaging(GitLargeFileOptions options) {
+        ((TracingRepository) _git.getRepository()).setLargeFileOptions(options);
+    }
+
+    @Override
+    public void disableLargeFileStaging() {
+        ((TracingRepository) _git.getRepository()).setLargeFileOptions(null);
+    }
+
+    @Override
+    public CompletableFuture<GitWarmUpResult> warmUp() {
+        return warmUp(RepositoryWarmUp.SHARED_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<GitWarmUpResult> warmUp(Executor executor) {
+        CompletableFuture<GitWarmUpResult> result = new CompletableFuture<>();
+        Repository repository = _git.getRepository();
+        executor.execute(() -> {
+            try {
+                result.complete(RepositoryWarmUp.warmUp((FileRepository) repository, _openDuration));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public GitObjectTrace startObjectTrace() {
+        return ((TracingRepository) _git.getRepository()).startTrace();
+    }
+
+    @Override
+    public GitCancellationScope startCancellationScope(GitCancellationToken token) {
+        GitCancellationToken enclosingToken = _cancellationToken.get();
+        _cancellationToken.set(token);
+        return () -> {
+            if (enclosingToken == null) {
+                _cancellationToken.remove();
+            } else {
+                _cancellationToken.set(enclosingToken);
+            }
+        };
+    }
+
+    /**
+     * @return the token of the current thread's scope, or one that is never cancelled; checked once, so the operation does not start if cancelled
+     */
+    private GitCancellationToken cancellationToken() {
+        GitCancellationToken token = _cancellationToken.get();
+        if (token == null) {
+            return new GitCancellationToken();
+        }
+        token.throwIfCancelled();
+        return token;
+    }
+
+    /**
+     * Called by {@link WritingCallProxy} around each writing call.
+     */
+    RepositoryMaintenance.Write beginWrite() {
+        RepositoryMaintenance maintenance = _maintenance;
+        RepositoryMaintenance.Write write = maintenance == null ? RepositoryMaintenance.NO_WRITE : maintenance.beginWrite();
+        return () -> {
+            write.close();
+            RefChangePublisher refChangePublisher = _refChangePublisher;
+            if (refChangePublisher != null) {
+                refChangePublisher.publishChangesLater();
+            }
+        };
+    }
+
+    @Override
+    public Flow.Publisher<GitRefChangeEvent> getRefChangePublisher() {
+        return refChangePublisher();
+    }
+
+    @Override
+    public void setRefChangePollInterval(Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Interval must not be negative: " + interval);
+        }
+        refChangePublisher().setPollInterval(interval);
+    }
+
+    private synchronized RefChangePublisher refChangePublisher() {
+        if (_refChangePublisher == null) {
+            _refChangePublisher = new RefChangePublisher(_git.getRepository());
+        }
+        return _refChangePublisher;
     }
 
     @Override
@@ -176,6 +987,11 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
         return ObjectId.toString(_git.getRepository().resolve("HEAD"));
     }
 
+    @Override
+    public Optional<GitCommitId> getHeadCommitId() throws IOException {
+        return Optional.ofNullable(_git.getRepository().resolve(Constants.HEAD)).map(ThrowingGitWrapperImpl::toCommitId);
+    }
+
     @Override
     public String getCurrentBranchName() throws IOException {
         return _git.getRepository().getBranch();
@@ -188,14 +1004,23 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
              TreeWalk treeWalk = new TreeWalk(_git.getRepository())) {
             RevCommit parsedCommit = revWalk.parseCommit(revisionObjectId);
             RevTree tree = parsedCommit.getTree();
-            treeWalk.addTree(tree);
-            treeWalk.setRecursive(true);
-            treeWalk.setFilter(PathFilter.create(filePath));
-            if (!treeWalk.next()) {
-                return Optional.empty();
+            ObjectId fileObjectId;
+            if (_treeIndexEnabled) {
+                Optional<ObjectId> indexedObjectId = openTreeIndex(tree).findFirst(filePath);
+                if (!indexedObjectId.isPresent()) {
+                    return Optional.empty();
+                }
+                fileObjectId = indexedObjectId.get();
+            } else {
+                treeWalk.addTree(tree);
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathFilter.create(filePath));
+                if (!treeWalk.next()) {
+                    return Optional.empty();
+                }
+                // get first matching only
+                fileObjectId = treeWalk.getObjectId(0);
             }
-            // get first matching only
-            ObjectId fileObjectId = treeWalk.getObjectId(0);
             ObjectLoader loader = _git.getRepository().open(fileObjectId, Constants.OBJ_BLOB);
             return Optional.of(new String(loader.getBytes()));
         }
@@ -217,6 +1042,10 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
         ) {
             RevCommit parsedCommit = revWalk.parseCommit(objectId);
             RevTree tree = parsedCommit.getTree();
+            if (_treeIndexEnabled) {
+                TreeIndex treeIndex = openTreeIndex(tree);
+                return filter == TreeFilter.ALL ? treeIndex.listAll() : treeIndex.list(directoryPath);
+            }
             treeWalkRecursive.addTree(tree);
             treeWalkRecursive.setRecursive(true);
             treeWalkRecursive.setFilter(filter);
@@ -227,53 +1056,191 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
         return result;
     }
 
+    @Override
+    public void setTreeIndexEnabled(boolean enabled) {
+        _treeIndexEnabled = enabled;
+    }
+
+    private TreeIndex openTreeIndex(RevTree tree) throws IOException {
+        return TreeIndex.open(_git.getRepository(), new File(_git.getRepository().getDirectory(), "tree-index"), tree);
+    }
+
     @Override
     public List<String> getCommitsBetween(String olderExclusive, String youngerExclusive) throws IOException {
         List<String> result = new ArrayList<>();
+        walkCommitsBetween(_git.getRepository().resolve(olderExclusive), _git.getRepository().resolve(youngerExclusive),
+                revision -> result.add(ObjectId.toString(revision)));
+        return result;
+    }
+
+    @Override
+    public GitCommitIdList getCommitIdsBetween(String olderExclusive, String youngerExclusive) throws IOException {
+        return getCommitIdsBetween(_git.getRepository().resolve(olderExclusive), _git.getRepository().resolve(youngerExclusive));
+    }
+
+    @Override
+    public GitCommitIdList getCommitIdsBetween(GitCommitId olderExclusive, GitCommitId youngerExclusive) throws IOException {
+        return getCommitIdsBetween(toObjectId(olderExclusive), toObjectId(youngerExclusive));
+    }
+
+    private GitCommitIdList getCommitIdsBetween(ObjectId olderExclusive, ObjectId youngerExclusive) throws IOException {
+        GitCommitIdList.Builder result = new GitCommitIdList.Builder();
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        walkCommitsBetween(olderExclusive, youngerExclusive, revision -> {
+            revision.copyRawTo(raw, 0);
+            result.add(raw, 0);
+        });
+        return result.build();
+    }
+
+    private void walkCommitsBetween(ObjectId olderExclusive, ObjectId youngerExclusive, Consumer<RevCommit> consumer) throws IOException {
         try (RevWalk revWalk = new RevWalk(_git.getRepository())) {
             revWalk.sort(RevSort.TOPO);
-            RevFilter revFilter = SkipRevFilter.create(1);
+            // the filter also sees the commits walked while sorting, before the first one is returned
+            RevFilter revFilter = AndRevFilter.create(Cancellation.revFilter(cancellationToken()), SkipRevFilter.create(1));
             revWalk.setRevFilter(revFilter);
-            ObjectId oldRevisionId = _git.getRepository().resolve(olderExclusive);
-            RevCommit oldRevisionCommit = revWalk.parseCommit(oldRevisionId);
-            ObjectId youngRevisionId = _git.getRepository().resolve(youngerExclusive);
-            RevCommit youngRevisionCommit = revWalk.parseCommit(youngRevisionId);
+            RevCommit oldRevisionCommit = revWalk.parseCommit(olderExclusive);
+            RevCommit youngRevisionCommit = revWalk.parseCommit(youngerExclusive);
 
             if (oldRevisionCommit.equals(youngRevisionCommit)) {
-                return result;
+                return;
             }
             revWalk.markStart(youngRevisionCommit);
             for (RevCommit revision : revWalk) {
                 if (revision.equals(oldRevisionCommit)) {
                     break;
                 }
-                result.add(ObjectId.toString(revision));
+                consumer.accept(revision);
             }
         }
-        return result;
+    }
+
+    @Override
+    public Stream<GitGrepMatch> grep(String revisionString, Pattern pattern, GitGrepOptions options) throws IOException {
+        ObjectId revisionId = _git.getRepository().resolve(revisionString);
+        if (revisionId == null) {
+            throw new IllegalArgumentException("Revision does not exist: " + revisionString);
+        }
+        RevTree tree;
+        try (RevWalk revWalk = new RevWalk(_git.getRepository())) {
+            tree = revWalk.parseCommit(revisionId).getTree();
+        }
+        ParallelGrep iterator = new ParallelGrep(_git.getRepository(), tree, pattern, options);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, OutputStream outputStream) throws IOException {
+        Repository repository = _git.getRepository();
+        ObjectId revisionId = resolveRevision(repository, revisionString);
+        RevCommit commit;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            commit = revWalk.parseCommit(revisionId);
+        }
+        new ArchiveExport(repository, options, cancellationToken()).export(commit, format, outputStream);
+    }
+
+    @Override
+    public void exportArchive(String revisionString, GitArchiveOptions options, GitArchiveFormat format, WritableByteChannel channel) throws IOException {
+        exportArchive(revisionString, options, format, Channels.newOutputStream(channel));
+    }
+
+    @Override
+    public Optional<String> findCommitAtOrBefore(String refName, Instant time) throws IOException {
+        Ref ref = findRefForTimeIndex(refName);
+        if (ref.getObjectId() == null) {
+            return Optional.empty();
+        }
+        return createCommitTimeIndex().findAtOrBefore(ref.getName(), ref.getObjectId(), time).map(ObjectId::name);
+    }
+
+    @Override
+    public List<String> getCommitsInTimeRange(String refName, Instant from, Instant to) throws IOException {
+        Ref ref = findRefForTimeIndex(refName);
+        if (ref.getObjectId() == null) {
+            return Collections.emptyList();
+        }
+        return createCommitTimeIndex().findInRange(ref.getName(), ref.getObjectId(), from, to).stream()
+                .map(ObjectId::name)
+                .collect(toList());
+    }
+
+    private Ref findRefForTimeIndex(String refName) throws IOException {
+        Ref ref = _git.getRepository().findRef(refName);
+        if (ref == null) {
+            throw new IllegalArgumentException("Ref does not exist: " + refName);
+        }
+        // HEAD shares the index of its branch
+        return ref.getLeaf();
+    }
+
+    private CommitTimeIndex createCommitTimeIndex() {
+        return new CommitTimeIndex(_git.getRepository(), new File(_git.getRepository().getDirectory(), "time-index"));
+    }
+
+    @Override
+    public Stream<GitFileHistoryEntry> getFileHistory(String filePath, String fromRevision, GitFileHistoryOptions options) throws IOException {
+        ObjectId fromRevisionId = _git.getRepository().resolve(fromRevision);
+        if (fromRevisionId == null) {
+            throw new IllegalArgumentException("Revision does not exist: " + fromRevision);
+        }
+        FileHistoryIterator iterator = new FileHistoryIterator(_git.getRepository(), filePath, fromRevisionId, options);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public List<GitBlameLine> blame(String filePath, String revisionString) throws IOException {
+        Repository repository = _git.getRepository();
+        ObjectId revisionId = repository.resolve(revisionString);
+        if (revisionId == null) {
+            throw new IllegalArgumentException("Revision does not exist: " + revisionString);
+        }
+        BlameCache cache = new BlameCache(new File(repository.getDirectory(), "blame-cache"));
+        return new IncrementalBlame(repository, cache).blame(filePath, revisionId);
     }
 
     @Override
     public Optional<String> getMergeBase(String revisionString1, String revisionString2) throws IOException {
+        return findMergeBase(_git.getRepository().resolve(revisionString1), _git.getRepository().resolve(revisionString2))
+                .map(ObjectId::name);
+    }
+
+    @Override
+    public Optional<GitCommitId> getMergeBase(GitCommitId commitId1, GitCommitId commitId2) throws IOException {
+        return findMergeBase(toObjectId(commitId1), toObjectId(commitId2)).map(ThrowingGitWrapperImpl::toCommitId);
+    }
+
+    private Optional<ObjectId> findMergeBase(ObjectId revisionId1, ObjectId revisionId2) throws IOException {
         try (RevWalk revWalk = new RevWalk(_git.getRepository())) {
             revWalk.sort(RevSort.TOPO);
             revWalk.setRevFilter(RevFilter.MERGE_BASE);
-            ObjectId revisionId1 = _git.getRepository().resolve(revisionString1);
             RevCommit parsedCommit = revWalk.parseCommit(revisionId1);
             revWalk.markStart(parsedCommit);
-            ObjectId revisionId2 = _git.getRepository().resolve(revisionString2);
             RevCommit parsedCommit2 = revWalk.parseCommit(revisionId2);
             revWalk.markStart(parsedCommit2);
             Iterator<RevCommit> it = revWalk.iterator();
             if (it.hasNext()) {
-                RevCommit revision = it.next();
-                return Optional.of(ObjectId.toString(revision));
+                return Optional.of(it.next());
             }
         }
         // in case of abandoned commits etc
         return Optional.empty();
     }
 
+    private static ObjectId toObjectId(GitCommitId commitId) {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        commitId.copyRawTo(raw, 0);
+        return ObjectId.fromRaw(raw);
+    }
+
+    private static GitCommitId toCommitId(AnyObjectId objectId) {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        objectId.copyRawTo(raw, 0);
+        return GitCommitId.fromRaw(raw, 0);
+    }
+
     @Override
     public Map<String, GitDiffType> getFileToDiffTypeForRevision(String revisionStringOld, String revisionStringNew) throws IOException {
         return getFileToDiffTypeForRevision(revisionStringOld, revisionStringNew, false);
@@ -281,18 +1248,52 @@ public class ThrowingGitWrapperImpl implements ThrowingGitWrapper {
 
     @Override
     public Map<String, GitDiffType> getFileToDiffTypeForRevision(String revisionStringOld, String revisionStringNew, boolean recognizeRenames) throws IOException {
-        OutputStream outputStream = new ByteArrayOutputStream();
-        try (DiffFormatter formatter = new DiffFormatter(outputStream)) {
-            formatter.setRepository(_git.getRepository());
-            formatter.setDetectRenames(recognizeRenames);
-            ObjectId revisionIdOld = _git.getRepository().resolve(revisionStringOld);
-            ObjectId revisionIdNew = _git.getRepository().resolve(revisionStringNew);
-            List<DiffEntry> diffs = formatter.scan(revisionIdOld, revisionIdNew);
-            return diffs.stream().collect(toMap(
-                    diffEntry -> diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE ?
-                            diffEntry.getOldPath() :
-                            diffEntry.getNewPath(),
-                    diffEntry -> INSTANCE.convert(diffEntry.getChangeType())));
+        if (WORKING_TREE_REVISION.equals(revisionStringOld)) {
+            throw new IllegalArgumentException("The working tree can only be compared as the newer revision");
+        }
+        Repository repository = _git.getRepository();
+        GitCancellationToken token = cancellationToken();
+        List<DiffEntry> diffs;
+        try (ObjectReader reader = repository.newObjectReader()) {
+            AbstractTreeIterator oldTree = diffTreeIterator(revisionStringOld, reader);
+            if (WORKING_TREE_REVISION.equals(revisionStringNew) && !INDEX_REVISION.equals(revisionStringOld)) {
+                diffs = new WorkingTreeDiff(repository, token).scan(oldTree, recognizeRenames);
+            } else {
+                OutputStream outputStream = new ByteArrayOutputStream();
+                try (DiffFormatter formatter = new DiffFormatter(outputStream)) {
+                    formatter.setRepository(repository);
+                    formatter.setDetectRenames(recognizeRenames);
+                    formatter.setPathFilter(Cancellation.treeFilter(token));
+                    formatter.setProgressMonitor(Cancellation.progressMonitor(token));
+                    // index against working tree: jGit uses the index's stat information itself
+                    diffs = formatter.scan(oldTree, diffTreeIterator(revisionStringNew, reader));
+                }
+            }
+        }
+        return diffs.stream().collect(toMap(
+                diffEntry -> diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE ?
+                        diffEntry.getOldPath() :
+                        diffEntry.getNewPath(),
+                diffEntry -> INSTANCE.convert(diffEntry.getChangeType())));
+    }
+
+    /**
+     * @return an iterator over the index, the working tree, or the tree of the revision (empty if it does not exist)
+     */
+    private AbstractTreeIterator diffTreeIterator(String revisionString, ObjectReader reader) throws IOException {
+        Repository repository = _git.getRepository();
+        if (INDEX_REVISION.equals(revisionString)) {
+            return new DirCacheIterator(repository.readDirCache());
+        }
+        if (WORKING_TREE_REVISION.equals(revisionString)) {
+            return new FileTreeIterator(repository);
+        }
+        ObjectId revisionId = repository.resolve(revisionString);
+        if (revisionId == null) {
+            return new EmptyTreeIterator();
+        }
+        try (RevWalk revWalk = new RevWalk(reader)) {
+            return new CanonicalTreeParser(null, reader, revWalk.parseTree(revisionId));
         }
     }
 
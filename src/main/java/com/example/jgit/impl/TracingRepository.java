@@ -0,0 +1,130 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitLargeFileOptions;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BaseRepositoryBuilder;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import java.io.IOException;
+
+/**
+ * File repository whose object readers count their reads while an {@link ObjectTrace} is open on the current thread.
+ * <p>
+ * Readers are wrapped only while tracing, so jGit's optimizations for its own reader implementation are not lost otherwise.
+ * <p>
+ * While large file staging is enabled, inserters stream large blobs through a {@link LargeBlobInserter}.
+ */
+class TracingRepository extends FileRepository {
+
+    private final ThreadLocal<ObjectTrace> _trace = new ThreadLocal<>();
+    private volatile GitLargeFileOptions _largeFileOptions;
+
+    TracingRepository(BaseRepositoryBuilder<?, ?> options) throws IOException {
+        super(options);
+    }
+
+    ObjectTrace startTrace() {
+        ObjectTrace trace = new ObjectTrace(this, _trace.get());
+        _trace.set(trace);
+        return trace;
+    }
+
+    void endTrace(ObjectTrace trace) {
+        // traces are closed in reverse order of starting them
+        if (_trace.get() == trace) {
+            if (trace.getParent() == null) {
+                _trace.remove();
+            } else {
+                _trace.set(trace.getParent());
+            }
+        }
+    }
+
+    /**
+     * @param options null to disable large file staging
+     */
+    void setLargeFileOptions(GitLargeFileOptions options) {
+        _largeFileOptions = options;
+    }
+
+    @Override
+    public ObjectInserter newObjectInserter() {
+        GitLargeFileOptions options = _largeFileOptions;
+        return options == null ? super.newObjectInserter() : new LargeBlobInserter(super.newObjectInserter(), getObjectDatabase(), options);
+    }
+
+    @Override
+    public ObjectReader newObjectReader() {
+        ObjectTrace trace = _trace.get();
+        return trace == null ? super.newObjectReader() : new TracingReader(super.newObjectReader(), trace);
+    }
+
+    @Override
+    public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+        if (_trace.get() == null) {
+            return super.open(objectId, typeHint);
+        }
+        try (ObjectReader reader = newObjectReader()) {
+            return reader.open(objectId, typeHint);
+        }
+    }
+
+    private static class TracingReader extends ObjectReader.Filter {
+
+        private final ObjectReader _delegate;
+        private final ObjectTrace _trace;
+
+        TracingReader(ObjectReader delegate, ObjectTrace trace) {
+            _delegate = delegate;
+            _trace = trace;
+        }
+
+        @Override
+        protected ObjectReader delegate() {
+            return _delegate;
+        }
+
+        @Override
+        public ObjectReader newReader() {
+            return new TracingReader(_delegate.newReader(), _trace);
+        }
+
+        @Override
+        public boolean has(AnyObjectId objectId) throws IOException {
+            return has(objectId, OBJ_ANY);
+        }
+
+        @Override
+        public boolean has(AnyObjectId objectId, int typeHint) throws IOException {
+            long start = System.nanoTime();
+            boolean result = _delegate.has(objectId, typeHint);
+            if (!result) {
+                _trace.recordMissing(System.nanoTime() - start);
+            }
+            return result;
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId objectId) throws IOException {
+            return open(objectId, OBJ_ANY);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+            long start = System.nanoTime();
+            ObjectLoader loader;
+            try {
+                loader = _delegate.open(objectId, typeHint);
+            } catch (MissingObjectException e) {
+                _trace.recordMissing(System.nanoTime() - start);
+                throw e;
+            }
+            _trace.recordRead(loader, System.nanoTime() - start);
+            return loader;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.jgit.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Immutable index of all files of a tree, mapping path > (mode, object id), stored in the file system and memory-mapped.
+ * <p>
+ * Entries are sorted by path bytes, which equals the order of a recursive {@link TreeWalk},
+ * so looking up a path or listing a directory is a binary search instead of a walk from the root.
+ * The file consists of a header (magic number, entry count), an offset per entry, and the entries
+ * (path length, path bytes, mode, object id). Indexes are built on first access and shared by all wrappers of the JVM.
+ */
+class TreeIndex {
+
+    private static final int MAGIC = 0x54494431; // "TID1"
+    private static final int HEADER_SIZE = 8;
+    // mapped indexes are unmapped by garbage collection only, so do not keep too many of them
+    private static final Cache<Path, TreeIndex> OPEN_INDEXES = CacheBuilder.newBuilder().maximumSize(256).build();
+
+    private final ByteBuffer _buffer;
+    private final int _entryCount;
+
+    private TreeIndex(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tree index");
+        }
+        _buffer = buffer;
+        _entryCount = buffer.getInt(4);
+    }
+
+    /**
+     * Opens the index of the given tree, building it if necessary.
+     *
+     * @param directory where the indexes of the repository are stored
+     */
+    static TreeIndex open(Repository repository, File directory, AnyObjectId treeId) throws IOException {
+        Path file = directory.toPath().resolve(treeId.name());
+        try {
+            return OPEN_INDEXES.get(file, () -> {
+                if (!Files.isRegularFile(file)) {
+                    build(repository, file, treeId);
+                }
+                try (FileChannel channel = FileChannel.open(file)) {
+                    return new TreeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            });
+        } catch (ExecutionException e) {
+            // the loader throws IOExceptions only
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private static void build(Repository repository, Path file, AnyObjectId treeId) throws IOException {
+        List<byte[]> paths = new ArrayList<>();
+        List<ObjectId> objectIds = new ArrayList<>();
+        List<Integer> modes = new ArrayList<>();
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(treeId);
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                paths.add(treeWalk.getRawPath());
+                objectIds.add(treeWalk.getObjectId(0));
+                modes.add(treeWalk.getRawMode(0));
+            }
+        }
+        // should be sorted already, but binary search depends on it
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(paths::get, TreeIndex::compare));
+
+        Files.createDirectories(file.getParent());
+        // indexes are immutable: write to a temporary file first, so readers never see partial ones
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(paths.size());
+                int offset = HEADER_SIZE + 4 * paths.size();
+                for (int i : order) {
+                    out.writeInt(offset);
+                    offset += 2 + paths.get(i).length + 4 + Constants.OBJECT_ID_LENGTH;
+                }
+                byte[] rawObjectId = new byte[Constants.OBJECT_ID_LENGTH];
+                for (int i : order) {
+                    out.writeShort(paths.get(i).length);
+                    out.write(paths.get(i));
+                    out.writeInt(modes.get(i));
+                    objectIds.get(i).copyRawTo(rawObjectId, 0);
+                    out.write(rawObjectId);
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Equivalent to a recursive {@link TreeWalk} with a {@link org.eclipse.jgit.treewalk.filter.PathFilter}.
+     *
+     * @return the object id of the given file, or of the first file below the given directory
+     */
+    Optional<ObjectId> findFirst(String path) {
+        byte[] key = Constants.encode(trimSlashes(path));
+        int index = lowerBound(key);
+        if (index < _entryCount && compare(getPath(index), key) == 0) {
+            return Optional.of(getObjectId(index));
+        }
+        index = lowerBound(directoryPrefix(key));
+        if (index < _entryCount && startsWith(getPath(index), directoryPrefix(key))) {
+            return Optional.of(getObjectId(index));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Equivalent to a recursive {@link TreeWalk} with a {@link org.eclipse.jgit.treewalk.filter.PathFilter}.
+     *
+     * @return the paths of the given file, or of all files below the given directory
+     */
+    List<String> list(String path) {
+        byte[] key = Constants.encode(trimSlashes(path));
+        List<String> result = new ArrayList<>();
+        int index = lowerBound(key);
+        if (index < _entryCount && compare(getPath(index), key) == 0) {
+            result.add(new String(getPath(index)));
+        }
+        byte[] prefix = directoryPrefix(key);
+        for (index = lowerBound(prefix); index < _entryCount; index++) {
+            byte[] entryPath = getPath(index);
+            if (!startsWith(entryPath, prefix)) {
+                break;
+            }
+            result.add(new String(entryPath));
+        }
+        return result;
+    }
+
+    List<String> listAll() {
+        List<String> result = new ArrayList<>(_entryCount);
+        for (int index = 0; index < _entryCount; index++) {
+            result.add(new String(getPath(index)));
+        }
+        return result;
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = _entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(getPath(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private byte[] getPath(int index) {
+        int offset = _buffer.getInt(HEADER_SIZE + 4 * index);
+        byte[] path = new byte[_buffer.getShort(offset) & 0xFFFF];
+        // absolute reads only, so the buffer can be shared by threads
+        for (int i = 0; i < path.length; i++) {
+            path[i] = _buffer.get(offset + 2 + i);
+        }
+        return path;
+    }
+
+    private ObjectId getObjectId(int index) {
+        int offset = _buffer.getInt(HEADER_SIZE + 4 * index);
+        byte[] rawObjectId = new byte[Constants.OBJECT_ID_LENGTH];
+        int objectIdOffset = offset + 2 + (_buffer.getShort(offset) & 0xFFFF) + 4;
+        for (int i = 0; i < rawObjectId.length; i++) {
+            rawObjectId[i] = _buffer.get(objectIdOffset + i);
+        }
+        return ObjectId.fromRaw(rawObjectId);
+    }
+
+    private static String trimSlashes(String path) {
+        return path.replaceAll("^/+|/+$", "");
+    }
+
+    private static byte[] directoryPrefix(byte[] path) {
+        byte[] prefix = new byte[path.length + 1];
+        System.arraycopy(path, 0, prefix, 0, path.length);
+        prefix[path.length] = '/';
+        return prefix;
+    }
+
+    private static boolean startsWith(byte[] path, byte[] prefix) {
+        return path.length >= prefix.length && compare(prefix, path, prefix.length) == 0;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int result = compare(a, b, Math.min(a.length, b.length));
+        return result != 0 ? result : Integer.compare(a.length, b.length);
+    }
+
+    private static int compare(byte[] a, byte[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            int result = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+}
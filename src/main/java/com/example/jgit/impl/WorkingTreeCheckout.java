@@ -0,0 +1,331 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancellationToken;
+import com.example.jgit.GitCancelledException;
+import org.eclipse.jgit.api.errors.CheckoutConflictException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.NameConflictTreeWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.eclipse.jgit.treewalk.TreeWalk.OperationType.CHECKOUT_OP;
+
+/**
+ * Replacement for jGit's {@link DirCacheCheckout}.
+ * <p>
+ * The list of changed entries is computed in a single walk, then files are inflated and written by a pool of workers,
+ * each with its own {@link ObjectReader}, and the index is written once at the end.
+ * <p>
+ * A {@link SparseCheckout} is honoured: index entries outside of it are kept, but flagged as "assume valid"
+ * and not written to the working tree. jGit cannot set the skip-worktree flag, which is why "assume valid" is used here.
+ * <p>
+ * The token is checked for each path walked, and for a reset also for each file deleted or written.
+ * Cancelling leaves the index unchanged; a reset may have written some files then.
+ * <p>
+ * Moving HEAD is left to the caller.
+ */
+class WorkingTreeCheckout {
+
+    // below that, starting threads costs more than it saves
+    private static final int MIN_FILES_PER_THREAD = 32;
+
+    private static final int INDEX = 0;
+    private static final int HEAD = 1;
+    private static final int TARGET = 2;
+    private static final int WORKING_TREE = 3;
+
+    private final Repository _repository;
+    private final SparseCheckout _sparseCheckout;
+    private final int _parallelism;
+    private final GitCancellationToken _token;
+
+    WorkingTreeCheckout(Repository repository, SparseCheckout sparseCheckout, int parallelism, GitCancellationToken token) {
+        _repository = repository;
+        _sparseCheckout = sparseCheckout;
+        _parallelism = parallelism;
+        _token = token;
+    }
+
+    /**
+     * Like <a href="https://git-scm.com/docs/git-checkout">git checkout</a>: local changes are kept, staged or not,
+     * unless they touch files that differ between HEAD and the target (and do not already match the target).
+     *
+     * @throws CheckoutConflictException if local changes would be overwritten; nothing is changed then
+     */
+    void checkout(RevCommit head, RevCommit target) throws IOException, CheckoutConflictException {
+        run(head, target, false);
+    }
+
+    /**
+     * Like <a href="https://git-scm.com/docs/git-reset">git reset --hard</a>: local changes to tracked files are discarded.
+     */
+    void reset(RevCommit head, RevCommit target) throws IOException {
+        try {
+            run(head, target, true);
+        } catch (CheckoutConflictException e) {
+            throw new IllegalStateException("reset must not fail with conflicts", e);
+        }
+    }
+
+    private void run(RevCommit head, RevCommit target, boolean reset) throws IOException, CheckoutConflictException {
+        DirCache dirCache = _repository.lockDirCache();
+        try (ObjectReader reader = _repository.newObjectReader();
+             TreeWalk treeWalk = new NameConflictTreeWalk(_repository, reader)) {
+            DirCacheBuilder builder = dirCache.builder();
+            treeWalk.setOperationType(CHECKOUT_OP);
+            treeWalk.addTree(new DirCacheIterator(dirCache));
+            treeWalk.addTree(treeIterator(reader, head == null ? null : head.getTree()));
+            treeWalk.addTree(treeIterator(reader, target.getTree()));
+            FileTreeIterator workingTreeIterator = new FileTreeIterator(_repository);
+            treeWalk.addTree(workingTreeIterator);
+            workingTreeIterator.setDirCacheIterator(treeWalk, INDEX);
+            treeWalk.setRecursive(true);
+            // untracked directories (e.g. build output) are not entered at all
+            treeWalk.setFilter(new TrackedFilter());
+
+            List<String> conflicts = new ArrayList<>();
+            List<String> toDelete = new ArrayList<>();
+            List<DirCacheEntry> toWrite = new ArrayList<>();
+            List<DirCacheCheckout.CheckoutMetadata> toWriteMetadata = new ArrayList<>();
+            String previousPath = null;
+            while (treeWalk.next()) {
+                _token.throwIfCancelled();
+                String path = treeWalk.getPathString();
+                if (path.equals(previousPath)) {
+                    // further stages of a merge conflict
+                    continue;
+                }
+                previousPath = path;
+                DirCacheIterator indexIterator = treeWalk.getTree(INDEX, DirCacheIterator.class);
+                DirCacheEntry indexEntry = indexIterator == null ? null : indexIterator.getDirCacheEntry();
+                WorkingTreeIterator file = treeWalk.getTree(WORKING_TREE, WorkingTreeIterator.class);
+                boolean hasTarget = isFile(treeWalk, TARGET);
+                boolean skipped = indexEntry != null && indexEntry.isAssumeValid();
+                boolean included = _sparseCheckout.includes(path);
+                boolean sameAsTarget = indexEntry != null && hasTarget && indexEntry.getStage() == DirCacheEntry.STAGE_0
+                        && treeWalk.idEqual(INDEX, TARGET) && treeWalk.getRawMode(INDEX) == treeWalk.getRawMode(TARGET);
+
+                boolean headSameAsTarget = treeWalk.getRawMode(HEAD) == treeWalk.getRawMode(TARGET) && treeWalk.idEqual(HEAD, TARGET);
+
+                if (!reset && headSameAsTarget && included && !skipped
+                        && (indexEntry == null || indexEntry.getStage() == DirCacheEntry.STAGE_0)
+                        && isLocallyChanged(treeWalk, indexEntry, file, skipped, reader)) {
+                    // the target does not change the path, so its local change is kept, staged or not
+                    if (indexEntry != null) {
+                        builder.add(new DirCacheEntry(indexEntry));
+                    }
+                    continue;
+                }
+                if (!reset && isLocallyChanged(treeWalk, indexEntry, file, skipped, reader)
+                        && (!sameAsTarget || !included)) {
+                    conflicts.add(path);
+                    continue;
+                }
+                if (!reset && indexEntry == null && hasTarget && file != null && included) {
+                    // untracked file would be overwritten
+                    conflicts.add(path);
+                    continue;
+                }
+                if (!hasTarget) {
+                    if (indexEntry != null && !skipped) {
+                        toDelete.add(path);
+                    }
+                    continue;
+                }
+                DirCacheEntry newEntry;
+                if (sameAsTarget) {
+                    // keeps the entry's stat information
+                    newEntry = new DirCacheEntry(indexEntry);
+                } else {
+                    newEntry = new DirCacheEntry(path, DirCacheEntry.STAGE_0);
+                    newEntry.setFileMode(treeWalk.getFileMode(TARGET));
+                    newEntry.setObjectId(treeWalk.getObjectId(TARGET));
+                }
+                newEntry.setAssumeValid(!included);
+                builder.add(newEntry);
+                if (!included) {
+                    if (indexEntry != null && !skipped) {
+                        toDelete.add(path);
+                    }
+                } else if (!sameAsTarget || skipped || (reset && isModified(indexEntry, file, reader))) {
+                    toWrite.add(newEntry);
+                    toWriteMetadata.add(new DirCacheCheckout.CheckoutMetadata(
+                            treeWalk.getEolStreamType(CHECKOUT_OP),
+                            treeWalk.getFilterCommand(Constants.ATTR_FILTER_TYPE_SMUDGE)));
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                throw new CheckoutConflictException(conflicts,
+                        new org.eclipse.jgit.errors.CheckoutConflictException(conflicts.toArray(new String[0])));
+            }
+
+            _token.throwIfCancelled();
+            // a checkout keeps local changes, so it must not stop halfway: files written or deleted so far would look like local changes
+            GitCancellationToken writeToken = reset ? _token : new GitCancellationToken();
+            for (String path : toDelete) {
+                writeToken.throwIfCancelled();
+                delete(path);
+            }
+            write(toWrite, toWriteMetadata, writeToken);
+            if (!builder.commit()) {
+                throw new IOException("Could not write index " + _repository.getIndexFile());
+            }
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    private void write(List<DirCacheEntry> entries, List<DirCacheCheckout.CheckoutMetadata> metadata, GitCancellationToken token) throws IOException {
+        int threads = Math.min(_parallelism, entries.size() / MIN_FILES_PER_THREAD);
+        if (threads <= 1) {
+            writeFrom(new AtomicInteger(), entries, metadata, token);
+            return;
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "checkout-" + _repository.getWorkTree().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> writeFrom(nextIndex, entries, metadata, token)));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checking out " + _repository.getWorkTree());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof GitCancelledException) {
+                throw (GitCancelledException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes entries until there are none left, sharing the position with other workers
+     */
+    private Void writeFrom(AtomicInteger nextIndex, List<DirCacheEntry> entries, List<DirCacheCheckout.CheckoutMetadata> metadata,
+                           GitCancellationToken token) throws IOException {
+        try (ObjectReader reader = _repository.newObjectReader()) {
+            int i;
+            while ((i = nextIndex.getAndIncrement()) < entries.size()) {
+                DirCacheEntry entry = entries.get(i);
+                if (entry.getFileMode() == FileMode.GITLINK) {
+                    // submodules are not checked out
+                    continue;
+                }
+                try {
+                    token.throwIfCancelled();
+                    DirCacheCheckout.checkoutEntry(_repository, entry, reader, true, metadata.get(i));
+                } catch (IOException | RuntimeException e) {
+                    // stop the other workers, too
+                    nextIndex.set(entries.size());
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static AbstractTreeIterator treeIterator(ObjectReader reader, RevTree tree) throws IOException {
+        if (tree == null) {
+            return new EmptyTreeIterator();
+        }
+        CanonicalTreeParser parser = new CanonicalTreeParser();
+        parser.reset(reader, tree);
+        return parser;
+    }
+
+    private static boolean isFile(TreeWalk treeWalk, int treeIndex) {
+        int rawMode = treeWalk.getRawMode(treeIndex);
+        return rawMode != 0 && !FileMode.TREE.equals(rawMode);
+    }
+
+    /**
+     * @return true if the index differs from HEAD, or the working tree from the index
+     */
+    private static boolean isLocallyChanged(TreeWalk treeWalk, DirCacheEntry indexEntry, WorkingTreeIterator file,
+                                            boolean skipped, ObjectReader reader) throws IOException {
+        boolean hasHead = isFile(treeWalk, HEAD);
+        if (indexEntry == null) {
+            // staged deletion
+            return hasHead;
+        }
+        if (!hasHead || indexEntry.getStage() != DirCacheEntry.STAGE_0
+                || !treeWalk.idEqual(INDEX, HEAD) || treeWalk.getRawMode(INDEX) != treeWalk.getRawMode(HEAD)) {
+            return true;
+        }
+        return !skipped && isModified(indexEntry, file, reader);
+    }
+
+    private static boolean isModified(DirCacheEntry indexEntry, WorkingTreeIterator file, ObjectReader reader) throws IOException {
+        return indexEntry == null || indexEntry.isAssumeValid() || file == null || file.isModified(indexEntry, true, reader);
+    }
+
+    private void delete(String path) throws IOException {
+        File file = new File(_repository.getWorkTree(), path);
+        if (!file.delete() && file.exists()) {
+            throw new IOException("Could not delete " + file);
+        }
+        File parent = file.getParentFile();
+        while (parent != null && !parent.equals(_repository.getWorkTree()) && parent.delete()) {
+            parent = parent.getParentFile();
+        }
+    }
+
+    /**
+     * Includes paths that are tracked in the index, HEAD or target
+     */
+    private static class TrackedFilter extends TreeFilter {
+        @Override
+        public boolean include(TreeWalk treeWalk) {
+            return treeWalk.getRawMode(INDEX) != 0 || treeWalk.getRawMode(HEAD) != 0 || treeWalk.getRawMode(TARGET) != 0;
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitCancellationToken;
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.eclipse.jgit.treewalk.TreeWalk.OperationType.CHECKIN_OP;
+
+/**
+ * Diff of a tree against the working tree, without staging anything.
+ * <p>
+ * jGit's DiffFormatter can only use the index's stat information when diffing the index itself against the working tree.
+ * Here the index is walked along with the tree, so files whose size and modification time match their index entry
+ * are not hashed, but take the entry's id, like for <a href="https://git-scm.com/docs/git-status">git status</a>.
+ * Untracked files are included unless they are ignored, as if all changes were staged.
+ */
+class WorkingTreeDiff {
+
+    private static final int OLD = 0;
+    private static final int INDEX = 1;
+    private static final int WORKING_TREE = 2;
+
+    private final Repository _repository;
+    private final GitCancellationToken _token;
+
+    WorkingTreeDiff(Repository repository, GitCancellationToken token) {
+        _repository = repository;
+        _token = token;
+    }
+
+    List<DiffEntry> scan(AbstractTreeIterator oldTree, boolean detectRenames) throws IOException {
+        List<DiffEntry> entries = new ArrayList<>();
+        try (ObjectReader reader = _repository.newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(_repository, reader)) {
+            treeWalk.setOperationType(CHECKIN_OP);
+            treeWalk.addTree(oldTree);
+            treeWalk.addTree(new DirCacheIterator(_repository.readDirCache()));
+            FileTreeIterator workingTreeIterator = new FileTreeIterator(_repository);
+            treeWalk.addTree(workingTreeIterator);
+            workingTreeIterator.setDirCacheIterator(treeWalk, INDEX);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(AndTreeFilter.create(Cancellation.treeFilter(_token), new NotIgnoredFilter()));
+
+            while (treeWalk.next()) {
+                FileMode oldMode = treeWalk.getFileMode(OLD);
+                WorkingTreeIterator file = treeWalk.getTree(WORKING_TREE, WorkingTreeIterator.class);
+                FileMode newMode = file == null ? FileMode.MISSING : file.getIndexFileMode(treeWalk.getTree(INDEX, DirCacheIterator.class));
+                if (oldMode == FileMode.MISSING && newMode == FileMode.MISSING) {
+                    // staged only
+                    continue;
+                }
+                ObjectId oldId = treeWalk.getObjectId(OLD);
+                // the index entry's id if the file's stat information matches it, hashed otherwise
+                ObjectId newId = file == null ? ObjectId.zeroId() : file.getEntryObjectId();
+                if (oldMode == newMode && oldId.equals(newId)) {
+                    continue;
+                }
+                entries.add(new Entry(treeWalk.getPathString(), oldMode, oldId, newMode, newId));
+            }
+        }
+        if (!detectRenames) {
+            return entries;
+        }
+        RenameDetector renameDetector = new RenameDetector(_repository);
+        renameDetector.addAll(entries);
+        try (ObjectReader reader = _repository.newObjectReader()) {
+            ContentSource.Pair contentSource = new ContentSource.Pair(ContentSource.create(reader), ContentSource.create(new FileTreeIterator(_repository)));
+            return renameDetector.compute(contentSource, Cancellation.progressMonitor(_token));
+        }
+    }
+
+    private static class Entry extends DiffEntry {
+        Entry(String path, FileMode oldMode, ObjectId oldId, FileMode newMode, ObjectId newId) {
+            this.oldPath = oldMode == FileMode.MISSING ? DEV_NULL : path;
+            this.newPath = newMode == FileMode.MISSING ? DEV_NULL : path;
+            this.oldMode = oldMode;
+            this.newMode = newMode;
+            this.oldId = AbbreviatedObjectId.fromObjectId(oldId);
+            this.newId = AbbreviatedObjectId.fromObjectId(newId);
+            if (oldMode == FileMode.MISSING) {
+                this.changeType = ChangeType.ADD;
+            } else if (newMode == FileMode.MISSING) {
+                this.changeType = ChangeType.DELETE;
+            } else {
+                this.changeType = ChangeType.MODIFY;
+            }
+        }
+    }
+
+    /**
+     * Excludes ignored files and directories, unless they are in the tree or the index
+     */
+    private static class NotIgnoredFilter extends TreeFilter {
+        @Override
+        public boolean include(TreeWalk treeWalk) throws IOException {
+            WorkingTreeIterator file = treeWalk.getTree(WORKING_TREE, WorkingTreeIterator.class);
+            return file == null || treeWalk.getRawMode(OLD) != 0 || treeWalk.getRawMode(INDEX) != 0 || !file.isEntryIgnored();
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitStatus;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the last {@link GitStatus} and a {@link WatchService} on all directories of the working tree, so that
+ * {@link #status()} only re-scans paths that changed since the last call.
+ * <p>
+ * A full scan is done if HEAD, the index, the packed refs or an ignore file changed, or if the watch service lost events.
+ * File system events are delivered asynchronously, so each call creates a barrier file in the GIT directory and waits
+ * for its event: all changes made before the call are delivered before it. If it does not arrive in time, a full scan is done.
+ * <p>
+ * The JDK's polling watch service (e.g. on macOS) delivers events seconds late, so every call would wait for the timeout
+ * and scan anyway. Nothing is watched then, and every call is a full scan, which only hashes files whose stat
+ * information differs from the index.
+ */
+class WorkingTreeWatcher implements Closeable {
+
+    private static final Set<String> GIT_DIR_FILES_INVALIDATING_STATUS = new HashSet<>(Arrays.asList(
+            Constants.HEAD, "index", Constants.PACKED_REFS));
+    private static final String INFO_DIRECTORY = "info";
+    private static final String EXCLUDE_FILE = "exclude";
+    private static final String BARRIER_PREFIX = "status-barrier";
+    private static final long BARRIER_TIMEOUT_MILLIS = 500;
+    private static final String POLLING_WATCH_SERVICE = "sun.nio.fs.PollingWatchService";
+
+    private final Git _git;
+    private final Path _workTree;
+    private final Path _gitDir;
+    private final Path _infoDir;
+    // null for a polling watch service
+    private final WatchService _watchService;
+    private final Map<WatchKey, Path> _keyToDirectory = new HashMap<>();
+    private GitStatus _lastStatus;
+    private ObjectId _lastHeadId;
+
+    WorkingTreeWatcher(Git git) throws IOException {
+        _git = git;
+        _workTree = git.getRepository().getWorkTree().toPath();
+        _gitDir = git.getRepository().getDirectory().toPath();
+        _infoDir = _gitDir.resolve(INFO_DIRECTORY);
+        WatchService watchService = _workTree.getFileSystem().newWatchService();
+        if (watchService.getClass().getName().equals(POLLING_WATCH_SERVICE)) {
+            watchService.close();
+            _watchService = null;
+            return;
+        }
+        _watchService = watchService;
+        registerRecursively(_workTree);
+        _keyToDirectory.put(_gitDir.register(_watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), _gitDir);
+        registerInfoDirectory();
+    }
+
+    /**
+     * For info/exclude; the directory may be created later
+     */
+    private void registerInfoDirectory() throws IOException {
+        if (Files.isDirectory(_infoDir, LinkOption.NOFOLLOW_LINKS) && !_keyToDirectory.containsValue(_infoDir)) {
+            _keyToDirectory.put(_infoDir.register(_watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), _infoDir);
+        }
+    }
+
+    synchronized GitStatus status() throws IOException, GitAPIException {
+        Set<String> dirtyPaths = drainEvents();
+        ObjectId headId = _git.getRepository().resolve(Constants.HEAD);
+        if (_lastStatus == null || dirtyPaths == null || !Objects.equals(headId, _lastHeadId)) {
+            _lastStatus = toGitStatus(_git.status().call());
+        } else if (!dirtyPaths.isEmpty()) {
+            StatusCommand statusCommand = _git.status();
+            dirtyPaths.forEach(statusCommand::addPath);
+            GitStatus partialStatus = toGitStatus(statusCommand.call());
+            _lastStatus = new GitStatus(
+                    merge(_lastStatus, partialStatus, dirtyPaths, GitStatus::getAdded),
+                    merge(_lastStatus, partialStatus, dirtyPaths, GitStatus::getModified),
+                    merge(_lastStatus, partialStatus, dirtyPaths, GitStatus::getDeleted),
+                    merge(_lastStatus, partialStatus, dirtyPaths, GitStatus::getUntracked));
+        }
+        _lastHeadId = headId;
+        return _lastStatus;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (_watchService != null) {
+            _watchService.close();
+        }
+    }
+
+    static GitStatus toGitStatus(Status status) {
+        Set<String> modified = new TreeSet<>(status.getChanged());
+        modified.addAll(status.getModified());
+        Set<String> deleted = new TreeSet<>(status.getRemoved());
+        deleted.addAll(status.getMissing());
+        return new GitStatus(new TreeSet<>(status.getAdded()), modified, deleted, new TreeSet<>(status.getUntracked()));
+    }
+
+    /**
+     * Waits for the events of all changes made before the call.
+     *
+     * @return paths changed since the last call, or null if a full scan is needed
+     */
+    private Set<String> drainEvents() throws IOException {
+        if (_watchService == null) {
+            return null;
+        }
+        Set<String> dirtyPaths = new TreeSet<>();
+        boolean fullScanNeeded = false;
+        Path barrier = Files.createTempFile(_gitDir, BARRIER_PREFIX, null);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BARRIER_TIMEOUT_MILLIS);
+            boolean barrierSeen = false;
+            while (true) {
+                // once the barrier is seen, earlier events are queued, possibly for keys queued after the barrier's one
+                WatchKey key = barrierSeen ? _watchService.poll() : _watchService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    // events are late if the barrier was not seen, so the ones seen may be incomplete
+                    fullScanNeeded |= !barrierSeen;
+                    break;
+                }
+                Path directory = _keyToDirectory.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW || directory == null) {
+                        fullScanNeeded = true;
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (directory.equals(_gitDir)) {
+                        String fileName = path.getFileName().toString();
+                        barrierSeen |= path.equals(barrier) && event.kind() == ENTRY_CREATE;
+                        fullScanNeeded |= GIT_DIR_FILES_INVALIDATING_STATUS.contains(fileName);
+                        if (path.equals(_infoDir)) {
+                            registerInfoDirectory();
+                            fullScanNeeded = true;
+                        }
+                        continue;
+                    }
+                    if (directory.equals(_infoDir)) {
+                        fullScanNeeded |= path.getFileName().toString().equals(EXCLUDE_FILE);
+                        continue;
+                    }
+                    if (path.getFileName().toString().equals(Constants.DOT_GIT_IGNORE)) {
+                        // changes which files are ignored anywhere below
+                        fullScanNeeded = true;
+                    }
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        registerRecursively(path);
+                    }
+                    dirtyPaths.add(toRepositoryPath(path));
+                }
+                if (!key.reset()) {
+                    // directory was deleted - its parent's event covers it
+                    _keyToDirectory.remove(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for file system events");
+        } finally {
+            Files.deleteIfExists(barrier);
+        }
+        return fullScanNeeded ? null : dirtyPaths;
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                if (directory.equals(_gitDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                _keyToDirectory.put(directory.register(_watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // deleted in the meantime
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private String toRepositoryPath(Path path) {
+        return _workTree.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static Set<String> merge(GitStatus oldStatus, GitStatus partialStatus, Set<String> rescannedPaths, Function<GitStatus, Set<String>> getter) {
+        Set<String> result = new TreeSet<>();
+        for (String path : getter.apply(oldStatus)) {
+            if (rescannedPaths.stream().noneMatch(rescanned -> path.equals(rescanned) || path.startsWith(rescanned + "/"))) {
+                result.add(path);
+            }
+        }
+        result.addAll(getter.apply(partialStatus));
+        return result;
+    }
+}
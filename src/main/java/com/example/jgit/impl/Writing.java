@@ -0,0 +1,14 @@
+package com.example.jgit.impl;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the methods of {@link ThrowingGitWrapperImpl} that write to the repository, see {@link WritingCallProxy}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@interface Writing {
+}
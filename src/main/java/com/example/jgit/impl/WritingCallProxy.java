@@ -0,0 +1,49 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.ThrowingGitWrapper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps each call of a method marked {@link Writing} in {@link ThrowingGitWrapperImpl#beginWrite()}.
+ * <p>
+ * Calls within the wrapper do not go through the proxy, so a writing call that uses other writing methods
+ * (e.g. {@link ThrowingGitWrapper#createBranchAndCheckout(String)}) counts as one write.
+ */
+class WritingCallProxy {
+
+    private static final Set<Method> WRITING_METHODS = Arrays.stream(ThrowingGitWrapper.class.getMethods())
+            .filter(WritingCallProxy::isWriting)
+            .collect(Collectors.toSet());
+
+    private static boolean isWriting(Method method) {
+        try {
+            return ThrowingGitWrapperImpl.class.getMethod(method.getName(), method.getParameterTypes()).isAnnotationPresent(Writing.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Not implemented: " + method, e);
+        }
+    }
+
+    static ThrowingGitWrapper wrap(ThrowingGitWrapperImpl wrapper) {
+        return (ThrowingGitWrapper) Proxy.newProxyInstance(WritingCallProxy.class.getClassLoader(), new Class<?>[]{ThrowingGitWrapper.class}, (proxy, method, args) -> {
+            try {
+                if (!WRITING_METHODS.contains(method)) {
+                    return method.invoke(wrapper, args);
+                }
+                RepositoryMaintenance.Write write = wrapper.beginWrite();
+                try {
+                    return method.invoke(wrapper, args);
+                } finally {
+                    write.close();
+                }
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
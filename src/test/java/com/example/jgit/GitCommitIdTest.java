@@ -0,0 +1,56 @@
+package com.example.jgit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitCommitIdTest {
+
+    private static final List<String> SHA1S = Arrays.asList(
+            "ffffffffffffffffffffffffffffffffffffffff",
+            "0123456789abcdef0123456789abcdef01234567",
+            "0000000000000000000000000000000000000000",
+            "80000000000000000000000000000000000000ff",
+            "7fffffffffffffffffffffffffffffffffffff00");
+
+    @Test
+    public void test_that_ids_convert_back_and_forth() {
+        for (String sha1 : SHA1S) {
+            GitCommitId commitId = GitCommitId.fromString(sha1);
+            assertEquals(sha1, commitId.name());
+            assertEquals(commitId, GitCommitId.fromString(sha1.toUpperCase()));
+            assertEquals(commitId.hashCode(), GitCommitId.fromString(sha1).hashCode());
+
+            byte[] raw = new byte[22];
+            commitId.copyRawTo(raw, 2);
+            assertEquals(commitId, GitCommitId.fromRaw(raw, 2));
+        }
+        assertThrows(IllegalArgumentException.class, () -> GitCommitId.fromString("0123"));
+        assertThrows(IllegalArgumentException.class, () -> GitCommitId.fromString("g123456789abcdef0123456789abcdef01234567"));
+    }
+
+    @Test
+    public void test_that_ids_are_ordered_like_their_names() {
+        List<GitCommitId> sorted = SHA1S.stream().map(GitCommitId::fromString).sorted().collect(toList());
+
+        assertEquals(new TreeSet<>(SHA1S).stream().collect(toList()), sorted.stream().map(GitCommitId::name).collect(toList()));
+    }
+
+    @Test
+    public void test_GitCommitIdList() {
+        GitCommitIdList.Builder builder = new GitCommitIdList.Builder(1);
+        SHA1S.forEach(sha1 -> builder.add(GitCommitId.fromString(sha1)));
+        GitCommitIdList list = builder.build();
+
+        assertEquals(SHA1S, list.stream().map(GitCommitId::name).collect(toList()));
+        byte[] raw = new byte[20];
+        list.copyRawTo(1, raw, 0);
+        assertEquals(list.get(1), GitCommitId.fromRaw(raw, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(SHA1S.size()));
+    }
+}
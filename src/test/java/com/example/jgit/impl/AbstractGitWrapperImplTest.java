@@ -1,8 +1,43 @@
 package com.example.jgit.impl;
 
+import com.example.jgit.GitArchiveFormat;
+import com.example.jgit.GitArchiveOptions;
+import com.example.jgit.GitBlameLine;
+import com.example.jgit.GitCancellationScope;
+import com.example.jgit.GitCancellationToken;
+import com.example.jgit.GitCancelledException;
+import com.example.jgit.GitCleanOptions;
+import com.example.jgit.GitCleanResult;
+import com.example.jgit.GitCommitId;
 import com.example.jgit.GitDiffType;
+import com.example.jgit.GitFileContent;
+import com.example.jgit.GitFileHistoryEntry;
+import com.example.jgit.GitFileHistoryOptions;
+import com.example.jgit.GitGrepMatch;
+import com.example.jgit.GitGrepOptions;
+import com.example.jgit.GitLargeFileOptions;
+import com.example.jgit.GitMaintenanceOptions;
+import com.example.jgit.GitMergeResult;
+import com.example.jgit.GitObjectTrace;
+import com.example.jgit.GitRefChangeEvent;
+import com.example.jgit.GitRefUpdateResult;
+import com.example.jgit.GitReplayResult;
+import com.example.jgit.GitStatus;
+import com.example.jgit.GitTimeoutException;
+import com.example.jgit.GitWarmUpResult;
 import com.example.jgit.ThrowingGitWrapper;
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.attributes.FilterCommand;
+import org.eclipse.jgit.attributes.FilterCommandFactory;
+import org.eclipse.jgit.attributes.FilterCommandRegistry;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RepositoryState;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,16 +45,31 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.*;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.*;
 
 public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
@@ -27,6 +77,8 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
     private static final String MASTER = "master";
     private static final String TEST_BRANCH = "TEST_Branch";
     protected File _tempDir;
+    // built-in filter commands registered by the test, see filterCancelFiles()
+    private final List<String> _filterCommands = new ArrayList<>();
 
     @BeforeEach
     public void setUp() throws IOException {
@@ -35,6 +87,7 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
 
     @AfterEach
     public void tearDown() throws IOException {
+        _filterCommands.forEach(FilterCommandRegistry::unregister);
         FileUtils.delete(_tempDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
     }
 
@@ -74,6 +127,61 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(sut.getLastLogEntry().contains(logMessage));
     }
 
+    @Test
+    public void test_commitFiles_commits_without_touching_the_working_tree() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+
+        String sha1 = sut.commitFiles(MASTER, singletonMap("directory/generated.txt", "generated".getBytes(StandardCharsets.UTF_8)),
+                emptySet(), "committing generated content");
+
+        assertEquals(sha1, sut.getHeadSha1());
+        assertEquals("committing generated content", sut.getLastLogMessage());
+        assertEquals(Optional.of("generated"), sut.getFileContentOfRevision(sha1, "directory/generated.txt"));
+        assertTrue(sut.lsTree(sha1, ".").contains("blah1.txt"));
+        assertFalse(new File(_tempDir, "directory").exists());
+    }
+
+    @Test
+    public void test_commitFiles_can_delete_files_on_a_new_branch() throws Exception {
+        T sut = createGitWrapper();
+        String sha1Master = commitSomething(sut, "blah1.txt");
+        assertFalse(sut.doesBranchExist(TEST_BRANCH));
+
+        String sha1 = sut.commitFiles(TEST_BRANCH, singletonMap("blah2.txt", new byte[]{1, 2, 3}), singleton("blah1.txt"), "replace blah1.txt");
+
+        assertTrue(sut.doesBranchExist(TEST_BRANCH));
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertEquals(sha1Master, sut.getHeadSha1());
+        assertEquals(singletonList("blah2.txt"), sut.lsTree(sha1, "."));
+        assertEquals(asMap("blah1.txt", GitDiffType.DELETE, "blah2.txt", GitDiffType.ADD), sut.getFileToDiffTypeForRevision(sha1Master, TEST_BRANCH));
+    }
+
+    @Test
+    public void test_commitFileContents_streams_files_and_input_streams() throws Exception {
+        T sut = createGitWrapper();
+        String sha1Master = commitSomething(sut, "blah1.txt");
+        Path outside = Files.createTempFile("content", ".txt");
+        try {
+            Files.write(outside, "from a file".getBytes(StandardCharsets.UTF_8));
+            Map<String, GitFileContent> changes = new HashMap<>();
+            changes.put("file.txt", GitFileContent.of(outside));
+            changes.put("stream.txt", GitFileContent.of(11, () -> new ByteArrayInputStream("from a stream".getBytes(StandardCharsets.UTF_8))));
+
+            String sha1 = sut.commitFileContents(MASTER, changes, emptySet(), "committing streamed content");
+
+            assertEquals(Optional.of("from a file"), sut.getFileContentOfRevision(sha1, "file.txt"));
+            // only the given length is read
+            assertEquals(Optional.of("from a stre"), sut.getFileContentOfRevision(sha1, "stream.txt"));
+            Map<String, GitFileContent> tooShort = singletonMap("short.txt", GitFileContent.of(100, () -> new ByteArrayInputStream(new byte[10])));
+            assertThrows(Exception.class, () -> sut.commitFileContents(MASTER, tooShort, emptySet(), "too short"));
+            assertEquals(sha1, sut.getHeadSha1());
+            assertNotEquals(sha1Master, sha1);
+        } finally {
+            Files.delete(outside);
+        }
+    }
+
     @Test
     public void test_getLastCommitTimeRoundedToSeconds() throws Exception {
         File file = createNewFileWithContent("blah1.txt", "12345");
@@ -91,6 +199,78 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(expectedAfter.isAfter(actual));
     }
 
+    @Test
+    public void test_status() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        commitSomething(sut, "blah2.txt");
+        assertTrue(sut.status().isClean());
+        writeContentToFile(new File(_tempDir, "blah1.txt"), "modified");
+        deleteFile("blah2.txt");
+        createNewFileWithContent("blah3.txt", "added");
+        sut.add("blah3.txt");
+        assertTrue(new File(_tempDir, "directory").mkdir());
+        createNewFileWithContent("directory/blah4.txt", "untracked");
+
+        GitStatus actual = sut.status();
+
+        assertFalse(actual.isClean());
+        assertEquals(singleton("blah1.txt"), actual.getModified());
+        assertEquals(singleton("blah2.txt"), actual.getDeleted());
+        assertEquals(singleton("blah3.txt"), actual.getAdded());
+        assertEquals(singleton("directory/blah4.txt"), actual.getUntracked());
+    }
+
+    @Test
+    public void test_status_when_watching_the_working_tree() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        sut.setWatchWorkingTree(true);
+        try {
+            assertTrue(sut.status().isClean());
+            File directory = new File(_tempDir, "directory");
+            assertTrue(directory.mkdir());
+            createNewFileWithContent("directory/blah2.txt", "untracked");
+            writeContentToFile(new File(_tempDir, "blah1.txt"), "modified");
+
+            GitStatus dirty = sut.status();
+            assertEquals(singleton("directory/blah2.txt"), dirty.getUntracked());
+            assertEquals(singleton("blah1.txt"), dirty.getModified());
+
+            sut.addAll();
+            sut.commit("commit everything");
+            assertTrue(sut.status().isClean());
+        } finally {
+            sut.setWatchWorkingTree(false);
+        }
+    }
+
+    @Test
+    public void test_status_when_watching_the_working_tree_rescans_after_ignore_files_change() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        assertTrue(new File(_tempDir, "directory").mkdir());
+        createNewFileWithContent("directory/build.log", "log");
+        createNewFileWithContent("directory/build.tmp", "tmp");
+        sut.setWatchWorkingTree(true);
+        try {
+            assertEquals(new TreeSet<>(asList("directory/build.log", "directory/build.tmp")), sut.status().getUntracked());
+
+            createNewFileWithContent(".gitignore", "*.log");
+            assertEquals(new TreeSet<>(asList(".gitignore", "directory/build.tmp")), sut.status().getUntracked());
+
+            File exclude = new File(_tempDir, ".git/info/exclude");
+            assertTrue(exclude.getParentFile().isDirectory() || exclude.getParentFile().mkdir());
+            Files.write(exclude.toPath(), "*.tmp\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals(singleton(".gitignore"), sut.status().getUntracked());
+
+            writeContentToFile(new File(_tempDir, ".gitignore"), "");
+            assertEquals(new TreeSet<>(asList(".gitignore", "directory/build.log")), sut.status().getUntracked());
+        } finally {
+            sut.setWatchWorkingTree(false);
+        }
+    }
+
     @Test
     public void test_that_add_works_for_deletions() throws Exception {
         T sut = createGitWrapper();
@@ -160,6 +340,115 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertEquals(sha1Master, sut.getHeadSha1());
     }
 
+    @Test
+    public void test_that_GitWrapper_can_create_and_delete_branches_in_batch() throws Exception {
+        T sut = createGitWrapper();
+        String sha1Master = commitSomething(sut, "blah1.txt");
+        Map<String, String> branchToRevision = new HashMap<>();
+        branchToRevision.put(TEST_BRANCH, MASTER);
+        branchToRevision.put("feature/" + TEST_BRANCH, sha1Master);
+
+        Map<String, GitRefUpdateResult> createResult = sut.createBranches(branchToRevision);
+
+        assertEquals(asResultMap(GitRefUpdateResult.OK, TEST_BRANCH, "feature/" + TEST_BRANCH), createResult);
+        assertTrue(sut.doesBranchExist(TEST_BRANCH));
+        assertTrue(sut.doesBranchExist("feature/" + TEST_BRANCH));
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertEquals(Optional.of(sha1Master), sut.getMergeBase(TEST_BRANCH, "feature/" + TEST_BRANCH));
+
+        Map<String, GitRefUpdateResult> deleteResult = sut.deleteBranches(branchToRevision.keySet());
+
+        assertEquals(asResultMap(GitRefUpdateResult.OK, TEST_BRANCH, "feature/" + TEST_BRANCH), deleteResult);
+        assertFalse(sut.doesBranchExist(TEST_BRANCH));
+        assertFalse(sut.doesBranchExist("feature/" + TEST_BRANCH));
+        assertEquals(sha1Master, sut.getHeadSha1());
+    }
+
+    @Test
+    public void test_that_batch_branch_updates_are_atomic() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        sut.createBranches(singletonMap(TEST_BRANCH, MASTER));
+        Map<String, String> branchToRevision = new HashMap<>();
+        branchToRevision.put(TEST_BRANCH, MASTER);
+        branchToRevision.put("other", MASTER);
+
+        Map<String, GitRefUpdateResult> createResult = sut.createBranches(branchToRevision);
+        Map<String, GitRefUpdateResult> deleteResult = sut.deleteBranches(new HashSet<>(asList(TEST_BRANCH, MASTER)));
+
+        assertEquals(GitRefUpdateResult.REJECTED_NOCREATE, createResult.get(TEST_BRANCH));
+        assertEquals(GitRefUpdateResult.REJECTED_OTHER_REASON, createResult.get("other"));
+        assertFalse(sut.doesBranchExist("other"));
+        assertEquals(GitRefUpdateResult.REJECTED_CURRENT_BRANCH, deleteResult.get(MASTER));
+        assertEquals(GitRefUpdateResult.REJECTED_OTHER_REASON, deleteResult.get(TEST_BRANCH));
+        assertTrue(sut.doesBranchExist(TEST_BRANCH));
+    }
+
+    @Test
+    public void test_that_GitWrapper_can_rename_branches_in_batch() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        String sha1Branch = commitSomething(sut, "blah2.txt");
+        sut.checkOutBranch(MASTER);
+
+        Map<String, GitRefUpdateResult> actual = sut.renameBranches(singletonMap(TEST_BRANCH, "renamed"));
+
+        assertEquals(asResultMap(GitRefUpdateResult.OK, TEST_BRANCH, "renamed"), actual);
+        assertFalse(sut.doesBranchExist(TEST_BRANCH));
+        assertEquals(sha1Branch, sut.checkOutBranch("renamed"));
+    }
+
+    @Test
+    public void test_that_chained_renames_and_swaps_of_branches_are_rejected() throws Exception {
+        T sut = createGitWrapper();
+        String sha1Master = commitSomething(sut, "blah1.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        String sha1Branch = commitSomething(sut, "blah2.txt");
+        sut.checkOutBranch(MASTER);
+        sut.createBranches(singletonMap("other", sha1Master));
+        Map<String, String> chained = new LinkedHashMap<>();
+        chained.put(TEST_BRANCH, "other");
+        chained.put("other", "renamed");
+        Map<String, String> swapped = new LinkedHashMap<>();
+        swapped.put(TEST_BRANCH, "other");
+        swapped.put("other", TEST_BRANCH);
+        Map<String, String> merged = new LinkedHashMap<>();
+        merged.put(TEST_BRANCH, "renamed");
+        merged.put("other", "renamed");
+
+        assertThrows(IllegalArgumentException.class, () -> sut.renameBranches(chained));
+        assertThrows(IllegalArgumentException.class, () -> sut.renameBranches(swapped));
+        assertThrows(IllegalArgumentException.class, () -> sut.renameBranches(merged));
+
+        assertEquals(sha1Branch, sut.checkOutBranch(TEST_BRANCH));
+        assertEquals(sha1Master, sut.checkOutBranch("other"));
+        assertFalse(sut.doesBranchExist("renamed"));
+    }
+
+    @Test
+    public void test_GitCommitId_overloads() throws Exception {
+        T sut = createGitWrapper();
+        assertEquals(Optional.empty(), sut.getHeadCommitId());
+        String sha1Initial = commitSomething(sut, "blah1.txt");
+        String sha1Master = commitSomething(sut, "blah2.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        commitSomething(sut, "blah3.txt");
+        String sha1Branch = commitSomething(sut, "blah4.txt");
+
+        GitCommitId initial = GitCommitId.fromString(sha1Initial);
+        GitCommitId branch = sut.getHeadCommitId().get();
+        assertEquals(sha1Branch, branch.name());
+        assertEquals(branch, sut.getLastLogCommitId());
+        assertEquals(sut.getCommitsBetween(sha1Initial, sha1Branch), sut.getCommitIdsBetween(initial, branch).stream().map(GitCommitId::name).collect(toList()));
+        assertEquals(2, sut.getCommitIdsBetween(sha1Initial, "HEAD").size());
+        assertEquals(Optional.of(initial), sut.getMergeBase(branch, initial));
+
+        assertEquals(initial, sut.resetHardTo(initial));
+        assertEquals(sha1Initial, sut.getHeadSha1());
+        assertFalse(new File(_tempDir, "blah2.txt").exists());
+    }
+
     @Test
     public void test_merge() throws Exception {
         T sut = createGitWrapper();
@@ -194,6 +483,540 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(exceptionOccurred);
     }
 
+    @Test
+    public void test_predictMerge_and_mergeWithoutCheckout() throws Exception {
+        T sut = createGitWrapper();
+        sut.commitFiles(MASTER, singletonMap("blah.txt", "1\n2\n3\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        sut.createBranches(singletonMap(TEST_BRANCH, MASTER));
+        sut.createBranches(singletonMap("conflicting", MASTER));
+        sut.commitFiles(MASTER, singletonMap("blah.txt", "1\n2\nthree\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "change on master");
+        sut.commitFiles(TEST_BRANCH, singletonMap("blah.txt", "one\n2\n3\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "change on branch");
+        String conflicting = sut.commitFiles("conflicting", singletonMap("blah.txt", "1\n2\n3!\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "conflicting change");
+        long objectCount;
+        try (Stream<Path> objects = Files.walk(new File(_tempDir, ".git/objects").toPath())) {
+            objectCount = objects.count();
+        }
+
+        GitMergeResult prediction = sut.predictMerge(MASTER, TEST_BRANCH);
+        assertTrue(prediction.isSuccessful());
+        assertEquals(singleton("blah.txt"), prediction.getMergedPaths());
+        assertTrue(prediction.getTreeSha1().isPresent());
+        assertFalse(prediction.getCommitSha1().isPresent());
+        prediction = sut.predictMerge(MASTER, "conflicting");
+        assertFalse(prediction.isSuccessful());
+        assertEquals(singleton("blah.txt"), prediction.getConflictingPaths());
+        try (Stream<Path> objects = Files.walk(new File(_tempDir, ".git/objects").toPath())) {
+            assertEquals(objectCount, objects.count());
+        }
+
+        GitMergeResult merge = sut.mergeWithoutCheckout(TEST_BRANCH, MASTER, "merge master");
+        assertTrue(merge.isSuccessful());
+        assertEquals(Optional.of("one\n2\nthree\n"), sut.getFileContentOfRevision(TEST_BRANCH, "blah.txt"));
+        try (Git git = Git.open(_tempDir)) {
+            assertEquals(merge.getCommitSha1().get(), git.getRepository().resolve(TEST_BRANCH).name());
+            assertEquals(2, git.getRepository().parseCommit(git.getRepository().resolve(TEST_BRANCH)).getParentCount());
+        }
+        assertEquals(merge.getCommitSha1(), sut.mergeWithoutCheckout(TEST_BRANCH, MASTER, "merged already").getCommitSha1());
+        assertFalse(sut.mergeWithoutCheckout("conflicting", MASTER, "conflicts").isSuccessful());
+        try (Git git = Git.open(_tempDir)) {
+            assertEquals(conflicting, git.getRepository().resolve("conflicting").name());
+        }
+        assertThrows(IllegalArgumentException.class, () -> sut.predictMerge(MASTER, "doesNotExist"));
+    }
+
+    @Test
+    public void test_cherryPick_and_rebase_in_memory() throws Exception {
+        T sut = createGitWrapper();
+        sut.commitFiles(MASTER, singletonMap("blah.txt", "1\n2\n3\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        sut.createBranches(singletonMap(TEST_BRANCH, MASTER));
+        sut.createBranches(singletonMap("conflicting", MASTER));
+        String branchChange = sut.commitFiles(TEST_BRANCH, singletonMap("blah.txt", "one\n2\n3\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "change on branch");
+        String branchAddition = sut.commitFiles(TEST_BRANCH, singletonMap("new.txt", "new".getBytes(StandardCharsets.UTF_8)), emptySet(), "addition on branch");
+        String masterChange = sut.commitFiles(MASTER, singletonMap("blah.txt", "1\n2\nthree\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "change on master");
+        String conflicting = sut.commitFiles("conflicting", singletonMap("blah.txt", "1\n2\n3!\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "conflicting change");
+        sut.resetHard();
+        long objectCount;
+        try (Stream<Path> objects = Files.walk(new File(_tempDir, ".git/objects").toPath())) {
+            objectCount = objects.count();
+        }
+
+        GitReplayResult conflict = sut.cherryPick(MASTER, Arrays.asList(branchChange, conflicting), true);
+        assertFalse(conflict.isSuccessful());
+        assertEquals(Optional.of(conflicting), conflict.getConflictingCommitSha1());
+        assertEquals(singleton("blah.txt"), conflict.getConflictingPaths());
+        assertEquals(singleton(branchChange), conflict.getReplayedCommits().keySet());
+        assertEquals(masterChange, sut.getHeadSha1());
+        try (Stream<Path> objects = Files.walk(new File(_tempDir, ".git/objects").toPath())) {
+            assertEquals(objectCount, objects.count());
+        }
+
+        GitReplayResult rebase = sut.rebase(TEST_BRANCH, MASTER, true);
+        assertTrue(rebase.isSuccessful());
+        assertEquals(Arrays.asList(branchChange, branchAddition), new ArrayList<>(rebase.getReplayedCommits().keySet()));
+        assertEquals(Optional.of("one\n2\nthree\n"), sut.getFileContentOfRevision(TEST_BRANCH, "blah.txt"));
+        assertEquals(Optional.of("new"), sut.getFileContentOfRevision(TEST_BRANCH, "new.txt"));
+        assertEquals(Collections.singletonList(rebase.getReplayedCommits().get(branchChange)), sut.getCommitsBetween(masterChange, rebase.getCommitSha1().get()));
+        try (Git git = Git.open(_tempDir)) {
+            RevCommit rebased = git.getRepository().parseCommit(git.getRepository().resolve(TEST_BRANCH));
+            assertEquals(rebase.getCommitSha1().get(), rebased.name());
+            assertEquals("addition on branch", rebased.getFullMessage());
+        }
+        assertEquals(rebase.getCommitSha1(), sut.rebase(TEST_BRANCH, MASTER, false).getCommitSha1());
+        // not checked out
+        assertFalse(new File(_tempDir, "new.txt").exists());
+
+        GitReplayResult cherryPick = sut.cherryPick(MASTER, Arrays.asList(branchAddition, rebase.getCommitSha1().get()), true);
+        assertTrue(cherryPick.isSuccessful());
+        // the second commit adds nothing new
+        assertEquals(singleton(branchAddition), cherryPick.getReplayedCommits().keySet());
+        assertEquals(cherryPick.getCommitSha1().get(), sut.getHeadSha1());
+        assertFileContent(new File(_tempDir, "new.txt"), "new");
+        assertTrue(sut.status().isClean());
+        assertThrows(IllegalArgumentException.class, () -> sut.rebase("doesNotExist", MASTER, false));
+    }
+
+    @Test
+    public void test_that_cherryPick_restores_the_working_tree_if_the_branch_cannot_be_updated() throws Exception {
+        T sut = createGitWrapper();
+        String initial = sut.commitFiles(MASTER, singletonMap("blah.txt", "1\n2\n3\n".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        sut.createBranches(singletonMap(TEST_BRANCH, MASTER));
+        String branchChange = sut.commitFiles(TEST_BRANCH, singletonMap("new.txt", "new".getBytes(StandardCharsets.UTF_8)), emptySet(), "change on branch");
+        sut.resetHard();
+        File localChange = createNewFileWithContent("local.txt", "local");
+        // as if someone else was updating the branch
+        File lockFile = new File(_tempDir, ".git/refs/heads/" + MASTER + ".lock");
+        assertTrue(lockFile.createNewFile());
+
+        assertThrows(Exception.class, () -> sut.cherryPick(MASTER, singletonList(branchChange), true));
+
+        assertEquals(initial, sut.getHeadSha1());
+        assertFalse(new File(_tempDir, "new.txt").exists());
+        assertTrue(localChange.exists());
+        GitStatus status = sut.status();
+        assertEquals(singleton("local.txt"), status.getUntracked());
+        assertTrue(status.getAdded().isEmpty());
+        assertTrue(lockFile.delete());
+        assertTrue(sut.cherryPick(MASTER, singletonList(branchChange), true).isSuccessful());
+        assertTrue(new File(_tempDir, "new.txt").exists());
+    }
+
+    @Test
+    public void test_that_maintenance_packs_objects_and_refs_in_the_background() throws Exception {
+        T sut = createGitWrapper();
+        File packedRefs = new File(_tempDir, ".git/packed-refs");
+        File packDirectory = new File(_tempDir, ".git/objects/pack");
+        sut.enableMaintenance(new GitMaintenanceOptions()
+                .setWritesBetweenChecks(2)
+                .setLooseObjectThreshold(3)
+                .setLooseRefThreshold(3));
+        try {
+            commitSomething(sut, "blah1.txt");
+            sut.createBranches(singletonMap(TEST_BRANCH, MASTER));
+            commitSomething(sut, "blah2.txt");
+
+            long timeout = System.currentTimeMillis() + 10_000;
+            while (!(packedRefs.exists() && hasPackFile(packDirectory)) && System.currentTimeMillis() < timeout) {
+                Thread.sleep(50);
+            }
+        } finally {
+            sut.disableMaintenance();
+        }
+
+        assertTrue(Files.readAllLines(packedRefs.toPath()).stream().anyMatch(line -> line.endsWith("refs/heads/" + TEST_BRANCH)));
+        assertTrue(hasPackFile(packDirectory));
+        assertEquals(asList("blah1.txt", "blah2.txt"), sut.lsTree("HEAD", "."));
+        commitSomething(sut, "blah3.txt");
+        assertTrue(sut.status().isClean());
+    }
+
+    @Test
+    public void test_that_maintenance_counts_nested_writes_once() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        File packedRefs = new File(_tempDir, ".git/packed-refs");
+        GitMaintenanceOptions options = new GitMaintenanceOptions()
+                .setWritesBetweenChecks(2)
+                .setLooseRefThreshold(1);
+
+        sut.enableMaintenance(options);
+        // checks out the new branch by another writing call
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        // waits for a scheduled check
+        sut.disableMaintenance();
+        assertFalse(packedRefs.exists());
+
+        sut.enableMaintenance(options);
+        sut.checkOutBranch(MASTER);
+        sut.createBranches(singletonMap("other", MASTER));
+        sut.disableMaintenance();
+        assertTrue(packedRefs.exists());
+    }
+
+    @Test
+    public void test_warmUp() throws Exception {
+        T sut = createGitWrapper();
+        assertEquals(0, sut.warmUp().get().getRefCount());
+
+        commitSomething(sut, "blah1.txt");
+        try (Git git = Git.open(_tempDir)) {
+            git.gc().call();
+        }
+        commitSomething(sut, "blah2.txt");
+        GitWarmUpResult result = sut.warmUp().get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, result.getPackCount());
+        // HEAD and master
+        assertEquals(2, result.getRefCount());
+        assertFalse(result.getHeadCommitDuration().isNegative());
+        assertEquals(result.getPackIndexDuration().plus(result.getRefDatabaseDuration()).plus(result.getHeadCommitDuration()), result.getWarmUpDuration());
+    }
+
+    @Test
+    public void test_warmUp_on_a_given_executor() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<GitWarmUpResult> result = sut.warmUp(tasks::add);
+
+        assertFalse(result.isDone());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals(2, result.get().getRefCount());
+    }
+
+    @Test
+    public void test_that_object_reads_are_traced() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        commitSomething(sut, "blah2.txt");
+
+        GitObjectTrace trace;
+        GitObjectTrace nestedTrace;
+        try (GitObjectTrace outerTrace = sut.startObjectTrace()) {
+            trace = outerTrace;
+            assertEquals(asList("blah1.txt", "blah2.txt"), sut.lsTree("HEAD", "."));
+            assertEquals(0, trace.getBlobCount());
+            try (GitObjectTrace innerTrace = sut.startObjectTrace()) {
+                nestedTrace = innerTrace;
+                assertEquals(Optional.of(""), sut.getFileContentOfRevision("HEAD", "blah1.txt"));
+            }
+        }
+        sut.getFileContentOfRevision("HEAD", "blah2.txt");
+
+        assertEquals(1, nestedTrace.getBlobCount());
+        assertEquals(1, trace.getBlobCount());
+        assertTrue(trace.getCommitCount() >= 2);
+        assertTrue(trace.getTreeCount() >= 2);
+        assertTrue(trace.getTreeEntryCount() >= 4);
+        assertEquals(trace.getCommitCount() + trace.getTreeCount() + trace.getBlobCount(), trace.getObjectCount());
+        assertTrue(trace.getByteCount() > 0);
+        assertFalse(trace.getReadDuration().isZero());
+    }
+
+    @Test
+    public void test_that_long_operations_can_be_cancelled() throws Exception {
+        T sut = createGitWrapper();
+        String sha1Master = commitSomething(sut, "blah1.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        commitSomething(sut, "blah2.txt");
+        String sha1Branch = commitSomething(sut, "blah3.txt");
+        sut.checkOutBranch(MASTER);
+        File untrackedFile = createNewFileWithContent("untracked.txt", "untracked");
+
+        GitCancellationToken cancelledToken = new GitCancellationToken();
+        cancelledToken.cancel();
+        try (GitCancellationScope ignored = sut.startCancellationScope(cancelledToken)) {
+            assertThrows(GitCancelledException.class, () -> sut.getFileToDiffTypeForRevision(sha1Master, sha1Branch, true));
+            assertThrows(GitCancelledException.class, () -> sut.getCommitsBetween(sha1Master, sha1Branch));
+            assertThrows(GitCancelledException.class, () -> sut.clean());
+            assertThrows(GitCancelledException.class, () -> sut.clean(new GitCleanOptions()));
+            assertThrows(GitCancelledException.class, () -> sut.merge(TEST_BRANCH));
+            assertThrows(GitCancelledException.class, () -> sut.resetHardTo(sha1Branch));
+            assertThrows(GitCancelledException.class, () -> sut.checkOutBranch(TEST_BRANCH));
+            // not a long operation
+            assertEquals(sha1Master, sut.getHeadSha1());
+        }
+        assertEquals(sha1Master, sut.getHeadSha1());
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertTrue(untrackedFile.exists());
+        assertFalse(new File(_tempDir, "blah2.txt").exists());
+
+        GitCancellationToken expiredToken = GitCancellationToken.withTimeout(Duration.ofMillis(1));
+        Thread.sleep(10);
+        try (GitCancellationScope ignored = sut.startCancellationScope(expiredToken)) {
+            GitTimeoutException e = assertThrows(GitTimeoutException.class, () -> sut.resetHardTo(sha1Branch));
+            assertEquals(Duration.ofMillis(1), e.getTimeout());
+            try (GitCancellationScope ignoredNested = sut.startCancellationScope(GitCancellationToken.withTimeout(Duration.ofMinutes(1)))) {
+                assertEquals(1, sut.getCommitsBetween(sha1Master, sha1Branch).size());
+            }
+            assertThrows(GitTimeoutException.class, () -> sut.getCommitsBetween(sha1Master, sha1Branch));
+        }
+
+        try (GitCancellationScope ignored = sut.startCancellationScope(GitCancellationToken.withTimeout(Duration.ofMinutes(1)))) {
+            String mergeSha1 = sut.merge(TEST_BRANCH);
+            assertEquals(mergeSha1, sut.getHeadSha1());
+            assertTrue(new File(_tempDir, "blah3.txt").exists());
+            assertEquals(singleton("untracked.txt"), sut.clean());
+        }
+        assertTrue(sut.status().isClean());
+    }
+
+    @Test
+    public void test_that_resetHard_aborts_a_conflicting_merge() throws Exception {
+        T sut = createGitWrapper();
+        File file = createNewFileWithContent("blah1.txt", "base");
+        sut.addAll();
+        sut.commit("base");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        writeContentToFile(file, "branch");
+        sut.addAll();
+        sut.commit("change on branch");
+        sut.checkOutBranch(MASTER);
+        writeContentToFile(file, "master");
+        sut.addAll();
+        sut.commit("change on master");
+        sut.merge(TEST_BRANCH);
+        assertTrue(new File(_tempDir, ".git/MERGE_HEAD").exists());
+
+        sut.resetHard();
+
+        assertFalse(new File(_tempDir, ".git/MERGE_HEAD").exists());
+        assertFalse(new File(_tempDir, ".git/MERGE_MSG").exists());
+        assertFileContent(file, "master");
+        String sha1 = commitSomething(sut, "blah2.txt");
+        try (Git git = Git.open(_tempDir)) {
+            assertEquals(RepositoryState.SAFE, git.getRepository().getRepositoryState());
+            assertEquals(1, git.getRepository().parseCommit(ObjectId.fromString(sha1)).getParentCount());
+        }
+    }
+
+    @Test
+    public void test_that_a_merge_can_be_cancelled_while_it_runs() throws Exception {
+        T sut = createGitWrapper();
+        GitCancellationToken token = new GitCancellationToken();
+        AtomicBoolean cancelWhenFiltered = new AtomicBoolean();
+        filterCancelFiles(sut, () -> {
+            if (cancelWhenFiltered.get()) {
+                token.cancel();
+            }
+        });
+        String sha1Master = commitCancelFiles(sut, "1");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        commitCancelFiles(sut, "2");
+        sut.checkOutBranch(MASTER);
+        // same content, so the merge hashes the file through the filter to find out whether it is modified
+        File touchedFile = new File(_tempDir, "a.cancel");
+        assertTrue(touchedFile.setLastModified(touchedFile.lastModified() - 10_000));
+        byte[] index = Files.readAllBytes(new File(_tempDir, ".git/index").toPath());
+
+        cancelWhenFiltered.set(true);
+        try (GitCancellationScope ignored = sut.startCancellationScope(token)) {
+            assertThrows(GitCancelledException.class, () -> sut.merge(TEST_BRANCH));
+        }
+
+        assertTrue(token.isCancelled());
+        assertRepositoryUnchanged(sut, sha1Master, index);
+        assertFileContent(new File(_tempDir, "a.cancel"), "1");
+        assertFileContent(new File(_tempDir, "b.cancel"), "1");
+    }
+
+    @Test
+    public void test_that_a_reset_can_be_cancelled_while_it_writes_files() throws Exception {
+        T sut = createGitWrapper();
+        GitCancellationToken token = new GitCancellationToken();
+        AtomicBoolean cancelWhenFiltered = new AtomicBoolean();
+        filterCancelFiles(sut, () -> {
+            if (cancelWhenFiltered.get()) {
+                token.cancel();
+            }
+        });
+        String sha1Master = commitCancelFiles(sut, "1");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        String sha1Branch = commitCancelFiles(sut, "2");
+        sut.checkOutBranch(MASTER);
+        byte[] index = Files.readAllBytes(new File(_tempDir, ".git/index").toPath());
+
+        cancelWhenFiltered.set(true);
+        try (GitCancellationScope ignored = sut.startCancellationScope(token)) {
+            assertThrows(GitCancelledException.class, () -> sut.resetHardTo(sha1Branch));
+        }
+
+        assertTrue(token.isCancelled());
+        assertRepositoryUnchanged(sut, sha1Master, index);
+        // the first file was written before the filter cancelled the reset
+        assertFileContent(new File(_tempDir, "a.cancel"), "2");
+        assertFileContent(new File(_tempDir, "b.cancel"), "1");
+        cancelWhenFiltered.set(false);
+        sut.resetHard();
+        assertTrue(sut.status().isClean());
+        assertFileContent(new File(_tempDir, "a.cancel"), "1");
+    }
+
+    @Test
+    public void test_that_a_cancelled_checkout_deletes_no_files() throws Exception {
+        T sut = createGitWrapper();
+        GitCancellationToken token = new GitCancellationToken();
+        AtomicBoolean cancelWhenFiltered = new AtomicBoolean();
+        filterCancelFiles(sut, () -> {
+            if (cancelWhenFiltered.get()) {
+                token.cancel();
+            }
+        });
+        createNewFileWithContent("blah1.txt", "deleted on branch");
+        createNewFileWithContent("z.cancel", "unchanged");
+        sut.addAll();
+        String sha1Master = sut.commit("files on master");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        deleteFile("blah1.txt");
+        sut.addAll();
+        sut.commit("delete on branch");
+        sut.checkOutBranch(MASTER);
+        // walked last and hashed through the filter, so the walk is done when the filter cancels
+        File touchedFile = new File(_tempDir, "z.cancel");
+        assertTrue(touchedFile.setLastModified(touchedFile.lastModified() - 10_000));
+        byte[] index = Files.readAllBytes(new File(_tempDir, ".git/index").toPath());
+
+        cancelWhenFiltered.set(true);
+        try (GitCancellationScope ignored = sut.startCancellationScope(token)) {
+            assertThrows(GitCancelledException.class, () -> sut.checkOutBranch(TEST_BRANCH));
+        }
+
+        assertTrue(token.isCancelled());
+        assertRepositoryUnchanged(sut, sha1Master, index);
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertFileContent(new File(_tempDir, "blah1.txt"), "deleted on branch");
+        cancelWhenFiltered.set(false);
+        assertTrue(sut.status().isClean());
+    }
+
+    @Test
+    public void test_that_rename_detection_can_be_cancelled() throws Exception {
+        T sut = createGitWrapper();
+        GitCancellationToken token = new GitCancellationToken();
+        filterCancelFiles(sut, token::cancel);
+        createNewFileWithContent("old.txt", "1\n2\n3\n4\n5\n");
+        sut.addAll();
+        String sha1 = sut.commit("old file");
+        deleteFile("old.txt");
+        // hashed last, so the walk is done when the filter cancels, and rename detection is next
+        createNewFileWithContent("z.cancel", "1\n2\n3\n4\n6\n");
+        byte[] index = Files.readAllBytes(new File(_tempDir, ".git/index").toPath());
+
+        try (GitCancellationScope ignored = sut.startCancellationScope(token)) {
+            GitCancelledException e = assertThrows(GitCancelledException.class,
+                    () -> sut.getFileToDiffTypeForRevision(sha1, ThrowingGitWrapper.WORKING_TREE_REVISION, true));
+            assertTrue(Arrays.stream(e.getStackTrace()).anyMatch(element -> element.getClassName().equals(RenameDetector.class.getName())));
+        }
+
+        assertRepositoryUnchanged(sut, sha1, index);
+        assertEquals(GitDiffType.RENAME, sut.getFileToDiffTypeForRevision(sha1, ThrowingGitWrapper.WORKING_TREE_REVISION, true).get("z.cancel"));
+    }
+
+    @Test
+    public void test_that_large_files_are_staged_at_the_given_compression_level() throws Exception {
+        T sut = createGitWrapper();
+        List<Long> progress = new ArrayList<>();
+        sut.enableLargeFileStaging(new GitLargeFileOptions()
+                .setThreshold(100_000)
+                .setCompressionLevel(0)
+                .setProgressListener((bytesWritten, totalBytes) -> {
+                    assertEquals(200_000, totalBytes);
+                    progress.add(bytesWritten);
+                }));
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 200_000) {
+            content.append("0123456789");
+        }
+        createNewFileWithContent("large.txt", content.toString());
+        createNewFileWithContent("small.txt", content.substring(0, 99_999));
+
+        sut.addAll();
+        String sha1 = sut.commit("large file");
+
+        assertEquals(Optional.of(content.toString()), sut.getFileContentOfRevision(sha1, "large.txt"));
+        assertEquals(Optional.of(content.substring(0, 99_999)), sut.getFileContentOfRevision(sha1, "small.txt"));
+        assertTrue(sut.status().isClean());
+        assertEquals(200_000L, (long) progress.get(progress.size() - 1));
+        try (Git git = Git.open(_tempDir)) {
+            // store only: the loose object is not smaller than the file, unlike the small file compressed by jGit
+            File objects = new File(git.getRepository().getDirectory(), "objects");
+            assertTrue(objectFile(objects, git, sha1, "large.txt").length() > 200_000);
+            assertTrue(objectFile(objects, git, sha1, "small.txt").length() < 10_000);
+        }
+
+        sut.disableLargeFileStaging();
+        writeContentToFile(new File(_tempDir, "large.txt"), content.toString() + "changed");
+        sut.add("large.txt");
+        sut.commit("large file changed");
+        assertEquals(1, progress.stream().filter(bytesWritten -> bytesWritten == 200_000).count());
+    }
+
+    private static File objectFile(File objects, Git git, String revision, String path) throws IOException {
+        String blobId = TreeWalk.forPath(git.getRepository(), path, git.getRepository().parseCommit(ObjectId.fromString(revision)).getTree())
+                .getObjectId(0).name();
+        return new File(objects, blobId.substring(0, 2) + "/" + blobId.substring(2));
+    }
+
+    private static boolean hasPackFile(File packDirectory) {
+        String[] files = packDirectory.list();
+        return files != null && Arrays.stream(files).anyMatch(file -> file.endsWith(".pack"));
+    }
+
+    @Test
+    public void test_that_ref_changes_are_published() throws Exception {
+        T sut = createGitWrapper();
+        String commit1 = commitSomething(sut, "blah1.txt");
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        sut.getRefChangePublisher().subscribe(new Flow.Subscriber<GitRefChangeEvent>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GitRefChangeEvent event) {
+                events.add(event.getRefName() + ": " + event.getOldSha1().orElse("-") + " > " + event.getNewSha1().orElse("-"));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                events.add(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        String commit2 = commitSomething(sut, "blah2.txt");
+        assertEquals(asList("HEAD: " + commit1 + " > " + commit2, "refs/heads/master: " + commit1 + " > " + commit2), takeEvents(events, 2));
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        assertEquals(asList("HEAD: " + commit2 + " > " + commit2, "refs/heads/" + TEST_BRANCH + ": - > " + commit2), takeEvents(events, 2));
+
+        // changed by someone else
+        sut.setRefChangePollInterval(Duration.ofMillis(10));
+        try (Git git = Git.open(_tempDir)) {
+            git.branchDelete().setBranchNames(MASTER).setForce(true).call();
+        }
+        assertEquals(singletonList("refs/heads/master: " + commit2 + " > -"), takeEvents(events, 1));
+        sut.setRefChangePollInterval(Duration.ZERO);
+    }
+
+    private static List<String> takeEvents(BlockingQueue<String> events, int count) throws InterruptedException {
+        List<String> result = new ArrayList<>();
+        while (result.size() < count) {
+            String event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event, "missing events after " + result);
+            result.add(event);
+        }
+        Thread.sleep(50);
+        assertTrue(events.isEmpty(), "unexpected events " + events);
+        // changes found by one comparison are ordered by ref name, but may be found by several
+        Collections.sort(result);
+        return result;
+    }
+
     @Test
     public void test_getHeadSha1() throws Exception {
         T sut = createGitWrapper();
@@ -225,6 +1048,74 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertIterableEquals(singleton("blah2.txt"), result);
     }
 
+    @Test
+    public void test_clean_with_options_supports_dry_run_and_paths() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        File buildDir = new File(_tempDir, "build");
+        assertTrue(new File(buildDir, "sub").mkdirs());
+        createNewFileWithContent("build/a.bin", "1234567890");
+        createNewFileWithContent("build/sub/b.bin", "12345");
+        File unversionedFile = createNewFileWithContent("blah2.txt", "123");
+
+        GitCleanResult dryRunResult = sut.clean(new GitCleanOptions().addPath("build").setDryRun(true));
+
+        assertTrue(dryRunResult.isDryRun());
+        assertEquals(singleton("build/"), dryRunResult.getCleanedPaths());
+        assertEquals(2, dryRunResult.getFileCount());
+        assertEquals(2, dryRunResult.getDirectoryCount());
+        assertEquals(15, dryRunResult.getByteCount());
+        assertTrue(new File(buildDir, "sub/b.bin").exists());
+
+        GitCleanResult result = sut.clean(new GitCleanOptions().addPath("build").setParallelism(2));
+
+        assertFalse(result.isDryRun());
+        assertEquals(dryRunResult.getCleanedPaths(), result.getCleanedPaths());
+        assertEquals(15, result.getByteCount());
+        assertFalse(buildDir.exists());
+        assertTrue(unversionedFile.exists());
+    }
+
+    @Test
+    public void test_clean_with_options_may_keep_ignored_files() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent(".gitignore", "*.log");
+        sut.addAll();
+        sut.commit("ignore log files");
+        File ignoredFile = createNewFileWithContent("blah.log", "12345");
+        File unversionedFile = createNewFileWithContent("blah2.txt", "123");
+
+        GitCleanResult result = sut.clean(new GitCleanOptions().setCleanIgnored(false).setCollectPaths(false));
+
+        assertTrue(result.getCleanedPaths().isEmpty());
+        assertEquals(1, result.getFileCount());
+        assertEquals(3, result.getByteCount());
+        assertTrue(ignoredFile.exists());
+        assertFalse(unversionedFile.exists());
+        assertEquals(singleton("blah.log"), sut.clean());
+    }
+
+    @Test
+    public void test_clean_keeps_ignored_files_inside_untracked_directories() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent(".gitignore", "*.log");
+        sut.addAll();
+        sut.commit("ignore log files");
+        assertTrue(new File(_tempDir, "build").mkdir());
+        assertTrue(new File(_tempDir, "build-tools").mkdir());
+        File untrackedFile = createNewFileWithContent("build/a.txt", "123");
+        File ignoredFile = createNewFileWithContent("build-tools/keep.log", "12345");
+        File siblingFile = createNewFileWithContent("build-tools/b.txt", "123");
+
+        GitCleanResult result = sut.clean(new GitCleanOptions().setCleanIgnored(false));
+
+        assertEquals(new TreeSet<>(asList("build-tools/b.txt", "build/")), result.getCleanedPaths());
+        assertFalse(untrackedFile.exists());
+        assertFalse(new File(_tempDir, "build").exists());
+        assertFalse(siblingFile.exists());
+        assertTrue(ignoredFile.exists());
+    }
+
     @Test
     public void test_that_add_may_add_whole_directory() throws Exception {
         T sut = createGitWrapper();
@@ -335,6 +1226,195 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(uncommittedFile.exists());
     }
 
+    @Test
+    public void test_that_checkout_and_reset_write_many_files_in_parallel() throws Exception {
+        T sut = createGitWrapper();
+        sut.setCheckoutParallelism(4);
+        commitSomething(sut, "blah.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            File directory = new File(_tempDir, "directory" + i % 10);
+            directory.mkdir();
+            files.add(createNewFileWithContent(directory.getName() + "/blah" + i + ".txt", "content " + i));
+        }
+        sut.addAll();
+        String sha1Branch = sut.commit("commit many files");
+
+        sut.checkOutBranch(MASTER);
+
+        assertTrue(files.stream().noneMatch(File::exists));
+        assertTrue(sut.status().isClean());
+
+        sut.resetHardTo(sha1Branch);
+
+        for (int i = 0; i < files.size(); i++) {
+            assertFileContent(files.get(i), "content " + i);
+        }
+        assertTrue(sut.status().isClean());
+    }
+
+    @Test
+    public void test_that_checkout_of_same_tree_keeps_local_changes() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        File file = new File(_tempDir, "blah1.txt");
+        writeContentToFile(file, "local change");
+
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        sut.checkOutBranch(MASTER);
+
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertFileContent(file, "local change");
+        assertEquals(singleton("blah1.txt"), sut.status().getModified());
+    }
+
+    @Test
+    public void test_that_checkout_keeps_staged_deletions_of_unchanged_files() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        commitSomething(sut, "blah2.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        String sha1Branch = commitSomething(sut, "blah3.txt");
+        sut.checkOutBranch(MASTER);
+        deleteFile("blah1.txt");
+        sut.add(".");
+        // staged deletion, but the file is kept
+        try (Git git = Git.open(_tempDir)) {
+            git.rm().setCached(true).addFilepattern("blah2.txt").call();
+        }
+
+        String actual = sut.checkOutBranch(TEST_BRANCH);
+
+        assertEquals(sha1Branch, actual);
+        assertFalse(new File(_tempDir, "blah1.txt").exists());
+        assertTrue(new File(_tempDir, "blah2.txt").exists());
+        assertTrue(new File(_tempDir, "blah3.txt").exists());
+        GitStatus status = sut.status();
+        assertEquals(new HashSet<>(asList("blah1.txt", "blah2.txt")), status.getDeleted());
+        assertEquals(singleton("blah2.txt"), status.getUntracked());
+    }
+
+    @Test
+    public void test_that_checkout_keeps_staged_changes_of_unchanged_files() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        String sha1Branch = commitSomething(sut, "blah2.txt");
+        sut.checkOutBranch(MASTER);
+        File editedFile = new File(_tempDir, "blah1.txt");
+        writeContentToFile(editedFile, "staged edit");
+        createNewFileWithContent("new.txt", "staged add");
+        sut.addAll();
+
+        String actual = sut.checkOutBranch(TEST_BRANCH);
+
+        assertEquals(sha1Branch, actual);
+        assertFileContent(editedFile, "staged edit");
+        assertFileContent(new File(_tempDir, "new.txt"), "staged add");
+        assertTrue(new File(_tempDir, "blah2.txt").exists());
+        GitStatus status = sut.status();
+        assertEquals(singleton("new.txt"), status.getAdded());
+        assertEquals(singleton("blah1.txt"), status.getModified());
+
+        sut.checkOutBranch(MASTER);
+
+        assertFileContent(editedFile, "staged edit");
+        assertFalse(new File(_tempDir, "blah2.txt").exists());
+        assertEquals(singleton("new.txt"), sut.status().getAdded());
+    }
+
+    @Test
+    public void test_that_checkout_refuses_to_overwrite_staged_changes() throws Exception {
+        T sut = createGitWrapper();
+        commitSomething(sut, "blah1.txt");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        writeContentToFile(new File(_tempDir, "blah1.txt"), "branch");
+        sut.addAll();
+        sut.commit("change on branch");
+        sut.checkOutBranch(MASTER);
+        writeContentToFile(new File(_tempDir, "blah1.txt"), "staged edit");
+        sut.addAll();
+        String sha1Master = sut.getHeadSha1();
+
+        assertThrows(Exception.class, () -> sut.checkOutBranch(TEST_BRANCH));
+
+        assertEquals(sha1Master, sut.getHeadSha1());
+        assertFileContent(new File(_tempDir, "blah1.txt"), "staged edit");
+    }
+
+    @Test
+    public void test_sparse_checkout_only_writes_selected_paths() throws Exception {
+        T sut = createGitWrapper();
+        assertTrue(new File(_tempDir, "keep").mkdir());
+        assertTrue(new File(_tempDir, "skip").mkdir());
+        File keptFile = createNewFileWithContent("keep/blah1.txt", "master");
+        File skippedFile = createNewFileWithContent("skip/blah2.txt", "master");
+        File skippedRootFile = createNewFileWithContent("blah3.txt", "master");
+        sut.addAll();
+        sut.commit("commit files on master");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        writeContentToFile(keptFile, "branch");
+        writeContentToFile(skippedFile, "branch");
+        sut.addAll();
+        String sha1Branch = sut.commit("commit files on branch");
+        sut.checkOutBranch(MASTER);
+        sut.setSparseCheckoutPaths(singleton("keep"));
+
+        String actual = sut.checkOutBranch(TEST_BRANCH);
+
+        assertEquals(sha1Branch, actual);
+        assertEquals(TEST_BRANCH, sut.getCurrentBranchName());
+        assertEquals(singleton("keep"), sut.getSparseCheckoutPaths());
+        assertFileContent(keptFile, "branch");
+        assertFalse(skippedFile.exists());
+        assertFalse(new File(_tempDir, "skip").exists());
+        assertFalse(skippedRootFile.exists());
+        assertTrue(sut.status().isClean());
+
+        createNewFileWithContent("keep/blah4.txt", "new");
+        sut.addAll();
+        String sha1Commit = sut.commit("commit in sparse checkout");
+        assertEquals(asList("blah3.txt", "keep/blah1.txt", "keep/blah4.txt", "skip/blah2.txt"), sut.lsTree(sha1Commit, "."));
+
+        sut.resetHardTo(MASTER);
+
+        assertFileContent(keptFile, "master");
+        assertFalse(skippedFile.exists());
+        assertTrue(sut.status().isClean());
+
+        sut.setSparseCheckoutPaths(emptySet());
+        sut.resetHard();
+
+        assertFileContent(keptFile, "master");
+        assertFileContent(skippedFile, "master");
+        assertFileContent(skippedRootFile, "master");
+        assertTrue(sut.status().isClean());
+    }
+
+    @Test
+    public void test_sparse_checkout_does_not_overwrite_local_changes() throws Exception {
+        T sut = createGitWrapper();
+        assertTrue(new File(_tempDir, "keep").mkdir());
+        File keptFile = createNewFileWithContent("keep/blah1.txt", "master");
+        sut.addAll();
+        String sha1Master = sut.commit("commit files on master");
+        sut.createBranchAndCheckout(TEST_BRANCH);
+        writeContentToFile(keptFile, "branch");
+        sut.addAll();
+        sut.commit("commit files on branch");
+        sut.setSparseCheckoutPaths(singleton("keep"));
+        sut.checkOutBranch(MASTER);
+        writeContentToFile(keptFile, "local change");
+
+        assertThrows(Exception.class, () -> sut.checkOutBranch(TEST_BRANCH));
+
+        assertEquals(MASTER, sut.getCurrentBranchName());
+        assertEquals(sha1Master, sut.getHeadSha1());
+        assertFileContent(keptFile, "local change");
+        assertEquals(singleton("keep/blah1.txt"), sut.status().getModified());
+    }
+
     @Test
     public void test_getFileContentOfRevision_can_retrieve_content_of_head_revision() throws Exception {
         T sut = createGitWrapper();
@@ -447,6 +1527,36 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(actualOutputCommit2.contains(dirName + File.separator + file3Name));
     }
 
+    @Test
+    public void test_that_tree_index_returns_the_same_as_a_tree_walk() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent("blah1.txt", "12345");
+        createNewFileWithContent("directory.txt", "file next to directory");
+        assertTrue(new File(_tempDir, "directory/sub").mkdirs());
+        createNewFileWithContent("directory/blah2.txt", "in directory");
+        createNewFileWithContent("directory/sub/blah3.txt", "in sub directory");
+        createNewFileWithContent("directory-2.txt", "another file next to directory");
+        sut.addAll();
+        String commit = sut.commit("commit files");
+        List<String> paths = asList(".", "blah1.txt", "directory", "directory/", "directory/sub", "directory/sub/blah3.txt", "doesNotExist");
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        for (String path : paths) {
+            expected.put("lsTree " + path, sut.lsTree(commit, path));
+            expected.put("content " + path, path.equals(".") ? null : sut.getFileContentOfRevision(commit, path));
+        }
+        sut.setTreeIndexEnabled(true);
+        Map<String, Object> actual = new LinkedHashMap<>();
+        for (String path : paths) {
+            actual.put("lsTree " + path, sut.lsTree(commit, path));
+            actual.put("content " + path, path.equals(".") ? null : sut.getFileContentOfRevision(commit, path));
+        }
+
+        assertEquals(expected, actual);
+        assertEquals(asList("directory/blah2.txt", "directory/sub/blah3.txt"), actual.get("lsTree directory"));
+        assertTrue(new File(_tempDir, ".git/tree-index").isDirectory());
+    }
+
     @Test
     public void test_getCommitsBetween() throws Exception {
         T sut = createGitWrapper();
@@ -476,6 +1586,283 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertEquals(expectedSameCommit, actualSameCommit);
     }
 
+    @Test
+    public void test_grep() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent("blah1.txt", "foo\nbar\nfoo bar\n");
+        assertTrue(new File(_tempDir, "directory").mkdir());
+        createNewFileWithContent("directory/blah2.txt", "foo\nbar\nfoo bar\n");
+        createNewFileWithContent("binary.bin", "foo\u0000\n");
+        createNewFileWithContent("large.txt", "foo and then some more text\n");
+        sut.addAll();
+        sut.commit("add files");
+
+        List<String> actual = grep(sut, Pattern.compile("^foo"), new GitGrepOptions().setMaxFileSize(20).setParallelism(2));
+        List<String> actualInDirectory = grep(sut, Pattern.compile("bar$"), new GitGrepOptions().addPath("directory"));
+
+        assertEquals(asList("blah1.txt:1:foo", "blah1.txt:3:foo bar", "directory/blah2.txt:1:foo", "directory/blah2.txt:3:foo bar"), actual);
+        assertEquals(asList("directory/blah2.txt:2:bar", "directory/blah2.txt:3:foo bar"), actualInDirectory);
+        assertThrows(IllegalArgumentException.class, () -> sut.grep("doesNotExist", Pattern.compile("foo"), new GitGrepOptions()));
+    }
+
+    @Test
+    public void test_that_archives_are_exported_from_the_object_database() throws Exception {
+        T sut = createGitWrapper();
+        String splitPath = "dir/" + repeat('x', 60) + "/" + repeat('y', 60) + ".txt";
+        String longName = "dir/" + repeat('z', 120) + ".txt";
+        Map<String, String> files = new TreeMap<>();
+        files.put("blah.txt", "blah");
+        files.put("dir/sub.txt", "sub");
+        files.put(splitPath, "split");
+        files.put(longName, "long");
+        Map<String, byte[]> changes = new HashMap<>();
+        files.forEach((path, content) -> changes.put(path, content.getBytes(StandardCharsets.UTF_8)));
+        String sha1 = sut.commitFiles(MASTER, changes, emptySet(), "files to archive");
+
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        sut.exportArchive(MASTER, new GitArchiveOptions(), GitArchiveFormat.TAR, tar);
+        assertEquals(0, tar.size() % 10240);
+        assertEquals(files, readTar(new ByteArrayInputStream(tar.toByteArray())));
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        sut.exportArchive(sha1, new GitArchiveOptions().setParallelism(3).setMaxBufferedBytes(4), GitArchiveFormat.TAR, Channels.newChannel(streamed));
+        assertArrayEquals(tar.toByteArray(), streamed.toByteArray());
+
+        ByteArrayOutputStream tarGz = new ByteArrayOutputStream();
+        sut.exportArchive(MASTER, new GitArchiveOptions().addPath("dir"), GitArchiveFormat.TAR_GZ, tarGz);
+        files.remove("blah.txt");
+        assertEquals(files, readTar(new GZIPInputStream(new ByteArrayInputStream(tarGz.toByteArray()))));
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        sut.exportArchive(MASTER, new GitArchiveOptions().addPath("dir"), GitArchiveFormat.ZIP, zip);
+        Map<String, String> zipped = new TreeMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                zipped.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(files, zipped);
+        assertFalse(new File(_tempDir, "dir").exists());
+        assertThrows(IllegalArgumentException.class, () -> sut.exportArchive("doesNotExist", new GitArchiveOptions(), GitArchiveFormat.ZIP, zip));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Reads the files of a ustar archive, with paths from extended headers
+     */
+    private static Map<String, String> readTar(InputStream in) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        byte[] archive = in.readAllBytes();
+        String extendedPath = null;
+        for (int offset = 0; archive[offset] != 0; ) {
+            String name = tarField(archive, offset, 100);
+            int size = Integer.parseInt(tarField(archive, offset + 124, 12), 8);
+            char type = (char) archive[offset + 156];
+            String prefix = tarField(archive, offset + 345, 155);
+            String content = new String(archive, offset + 512, size, StandardCharsets.UTF_8);
+            if (type == 'x') {
+                Matcher matcher = Pattern.compile("\\d+ path=(.*)\n").matcher(content);
+                assertTrue(matcher.find());
+                extendedPath = matcher.group(1);
+            } else if (type == '0') {
+                files.put(extendedPath != null ? extendedPath : prefix.isEmpty() ? name : prefix + "/" + name, content);
+                extendedPath = null;
+            }
+            offset += 512 + (size + 511) / 512 * 512;
+        }
+        return files;
+    }
+
+    private static String tarField(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private List<String> grep(T sut, Pattern pattern, GitGrepOptions options) throws Exception {
+        try (Stream<GitGrepMatch> matches = sut.grep("HEAD", pattern, options)) {
+            return matches.map(GitGrepMatch::toString).sorted().collect(toList());
+        }
+    }
+
+    @Test
+    public void test_findCommitAtOrBefore_and_getCommitsInTimeRange() throws Exception {
+        T sut = createGitWrapper();
+        String commit1 = commitAt(sut, "blah1.txt", 1000);
+        String commit2 = commitAt(sut, "blah2.txt", 2000);
+        String commit3 = commitAt(sut, "blah3.txt", 3000);
+
+        assertEquals(Optional.empty(), sut.findCommitAtOrBefore(MASTER, Instant.ofEpochSecond(999)));
+        assertEquals(Optional.of(commit1), sut.findCommitAtOrBefore(MASTER, Instant.ofEpochSecond(1999)));
+        assertEquals(Optional.of(commit2), sut.findCommitAtOrBefore(MASTER, Instant.ofEpochSecond(2000)));
+        assertEquals(Optional.of(commit3), sut.findCommitAtOrBefore("HEAD", Instant.ofEpochSecond(5000)));
+        assertEquals(asList(commit2, commit1), sut.getCommitsInTimeRange(MASTER, Instant.ofEpochSecond(1000), Instant.ofEpochSecond(2000)));
+        assertEquals(emptyList(), sut.getCommitsInTimeRange(MASTER, Instant.ofEpochSecond(1001), Instant.ofEpochSecond(1999)));
+        assertThrows(IllegalArgumentException.class, () -> sut.findCommitAtOrBefore(TEST_BRANCH, Instant.now()));
+
+        // appended to the index
+        String commit4 = commitAt(sut, "blah4.txt", 4000);
+        assertEquals(asList(commit4, commit3), sut.getCommitsInTimeRange(MASTER, Instant.ofEpochSecond(3000), Instant.ofEpochSecond(5000)));
+
+        // rebuilt
+        sut.resetHardTo(commit2);
+        String commit5 = commitAt(sut, "blah5.txt", 5000);
+        assertEquals(Optional.of(commit2), sut.findCommitAtOrBefore(MASTER, Instant.ofEpochSecond(4000)));
+        assertEquals(asList(commit5, commit2, commit1), sut.getCommitsInTimeRange(MASTER, Instant.EPOCH, Instant.ofEpochSecond(5000)));
+    }
+
+    private String commitAt(T sut, String fileName, long epochSecond) throws Exception {
+        createNewFile(fileName);
+        sut.add(fileName);
+        // the wrapper always commits with the current time
+        try (Git git = Git.open(_tempDir)) {
+            PersonIdent ident = new PersonIdent("committer", "committer@example.com", new Date(epochSecond * 1000), TimeZone.getTimeZone("UTC"));
+            return git.commit().setMessage("commit at " + epochSecond).setAuthor(ident).setCommitter(ident).call().name();
+        }
+    }
+
+    @Test
+    public void test_getFileHistory() throws Exception {
+        T sut = createGitWrapper();
+        File file = createNewFileWithContent("blah1.txt", "line 1\nline 2\nline 3\n");
+        sut.addAll();
+        String commit1 = sut.commit("add blah1.txt");
+        commitSomething(sut, "blah2.txt");
+        writeContentToFile(file, "line 1\nline 2\nline 3\nline 4\n");
+        sut.addAll();
+        String commit3 = sut.commit("modify blah1.txt");
+        File renamedFile = renameFile("blah1.txt", "blah1-RENAMED.txt");
+        sut.addAll();
+        String commit4 = sut.commit("rename blah1.txt");
+        writeContentToFile(renamedFile, "line 1\nline 2\nline 3\nline 4\nline 5\n");
+        sut.addAll();
+        String commit5 = sut.commit("modify blah1-RENAMED.txt");
+
+        List<GitFileHistoryEntry> actual = getFileHistory(sut, "blah1-RENAMED.txt", new GitFileHistoryOptions());
+        List<GitFileHistoryEntry> actualFollowingRenames = getFileHistory(sut, "blah1-RENAMED.txt", new GitFileHistoryOptions().setFollowRenames(true));
+        List<GitFileHistoryEntry> actualLimited = getFileHistory(sut, "blah1-RENAMED.txt", new GitFileHistoryOptions().setFollowRenames(true).setMaxCount(3));
+
+        assertEquals(asList(commit5, commit4), toCommitSha1s(actual));
+        assertEquals(asList(GitDiffType.MODIFY, GitDiffType.ADD), toDiffTypes(actual));
+        assertEquals(asList(commit5, commit4, commit3, commit1), toCommitSha1s(actualFollowingRenames));
+        assertEquals(asList(GitDiffType.MODIFY, GitDiffType.RENAME, GitDiffType.MODIFY, GitDiffType.ADD), toDiffTypes(actualFollowingRenames));
+        assertEquals("blah1-RENAMED.txt", actualFollowingRenames.get(1).getPath());
+        assertEquals("blah1.txt", actualFollowingRenames.get(2).getPath());
+        assertEquals(actualFollowingRenames.subList(0, 3).toString(), actualLimited.toString());
+    }
+
+    @Test
+    public void test_getFileHistory_with_time_bounds() throws Exception {
+        T sut = createGitWrapper();
+        String commit = commitSomething(sut, "blah1.txt");
+
+        List<GitFileHistoryEntry> actualSince = getFileHistory(sut, "blah1.txt", new GitFileHistoryOptions().setSince(Instant.EPOCH));
+        List<GitFileHistoryEntry> actualUntil = getFileHistory(sut, "blah1.txt", new GitFileHistoryOptions().setUntil(Instant.EPOCH));
+
+        assertEquals(singletonList(commit), toCommitSha1s(actualSince));
+        assertEquals(sut.getLastCommitTimeRoundedToSeconds(), actualSince.get(0).getCommitTime());
+        assertTrue(actualUntil.isEmpty());
+    }
+
+    private List<GitFileHistoryEntry> getFileHistory(T sut, String filePath, GitFileHistoryOptions options) throws Exception {
+        try (Stream<GitFileHistoryEntry> history = sut.getFileHistory(filePath, "HEAD", options)) {
+            return history.collect(toList());
+        }
+    }
+
+    private static List<String> toCommitSha1s(List<GitFileHistoryEntry> history) {
+        return history.stream().map(GitFileHistoryEntry::getCommitSha1).collect(toList());
+    }
+
+    private static List<GitDiffType> toDiffTypes(List<GitFileHistoryEntry> history) {
+        return history.stream().map(GitFileHistoryEntry::getDiffType).collect(toList());
+    }
+
+    @Test
+    public void test_blame() throws Exception {
+        T sut = createGitWrapper();
+        File file = createNewFileWithContent("blah1.txt", "line 1\nline 2\n");
+        sut.addAll();
+        String commit1 = sut.commit("add blah1.txt");
+        writeContentToFile(file, "line 1\nline 2 changed\nline 3\n");
+        sut.addAll();
+        String commit2 = sut.commit("modify blah1.txt");
+
+        List<GitBlameLine> actual = sut.blame("blah1.txt", "HEAD");
+        List<GitBlameLine> actualOld = sut.blame("blah1.txt", commit1);
+
+        assertEquals(asList(commit1, commit2, commit2), actual.stream().map(GitBlameLine::getCommitSha1).collect(toList()));
+        assertEquals(asList(1, 2, 3), actual.stream().map(GitBlameLine::getSourceLineNumber).collect(toList()));
+        assertEquals("blah1.txt", actual.get(0).getSourcePath());
+        assertEquals(sut.getLastCommitTimeRoundedToSeconds(), actual.get(2).getAuthorTime());
+        assertEquals(actual.subList(0, 1), actualOld.subList(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> sut.blame("blah2.txt", "HEAD"));
+    }
+
+    @Test
+    public void test_that_blame_continues_from_cached_result() throws Exception {
+        T sut = createGitWrapper();
+        File file = createNewFileWithContent("blah1.txt", "a\nb\nc\nd\ne\n");
+        sut.addAll();
+        sut.commit("add blah1.txt");
+        List<GitBlameLine> before = sut.blame("blah1.txt", "HEAD");
+        commitSomething(sut, "blah2.txt");
+        writeContentToFile(file, "a\nB\nc\nd\ne\nf\n");
+        sut.addAll();
+        sut.commit("modify blah1.txt");
+        writeContentToFile(file, "x\nB\nd\ne\nf\n");
+        sut.addAll();
+        sut.commit("modify blah1.txt again");
+
+        List<GitBlameLine> actualIncremental = sut.blame("blah1.txt", "HEAD");
+        FileUtils.delete(new File(_tempDir, ".git/blame-cache"), FileUtils.RECURSIVE);
+        List<GitBlameLine> actualFull = sut.blame("blah1.txt", "HEAD");
+
+        assertEquals(5, before.size());
+        assertEquals(actualFull, actualIncremental);
+        assertEquals(before.subList(3, 5), actualIncremental.subList(2, 4));
+        assertEquals(actualIncremental, sut.blame("blah1.txt", "HEAD"));
+    }
+
+    @Test
+    public void test_that_blame_cache_separates_identical_files_at_different_paths() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent("blah1.txt", "a\nb\n");
+        sut.addAll();
+        sut.commit("add blah1.txt");
+        File file2 = createNewFileWithContent("blah2.txt", "a\n");
+        sut.addAll();
+        sut.commit("add blah2.txt");
+        // the same blob at three paths, two of them introduced by the same commit
+        writeContentToFile(file2, "a\nb\n");
+        createNewFileWithContent("blah3.txt", "a\nb\n");
+        sut.addAll();
+        sut.commit("modify blah2.txt, add blah3.txt");
+
+        List<String> paths = asList("blah1.txt", "blah2.txt", "blah3.txt");
+        List<List<GitBlameLine>> cached = new ArrayList<>();
+        for (String path : paths) {
+            sut.blame(path, "HEAD");
+        }
+        for (String path : paths) {
+            cached.add(sut.blame(path, "HEAD"));
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            FileUtils.delete(new File(_tempDir, ".git/blame-cache"), FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+            List<GitBlameLine> full = sut.blame(paths.get(i), "HEAD");
+            assertEquals(full, cached.get(i));
+            assertEquals(paths.get(i), cached.get(i).get(1).getSourcePath());
+        }
+        assertNotEquals(cached.get(1).get(0).getCommitSha1(), cached.get(2).get(0).getCommitSha1());
+    }
+
     @Test
     public void test_getMergeBase() throws Exception {
         T sut = createGitWrapper();
@@ -649,6 +2036,108 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         assertTrue(actualSame3.isEmpty());
     }
 
+    @Test
+    public void test_that_getFileToDiffTypeForRevision_compares_index_and_working_tree() throws Exception {
+        T sut = createGitWrapper();
+        createNewFileWithContent(".gitignore", "*.log");
+        createNewFileWithContent("blah1.txt", "12345");
+        createNewFileWithContent("blah2.txt", "23456");
+        createNewFileWithContent("blah3.txt", "some content that is long enough to be recognized as renamed");
+        sut.addAll();
+        sut.commit("committing blah1.txt, blah2.txt, blah3.txt");
+
+        writeContentToFile(new File(_tempDir, "blah1.txt"), "modified");
+        deleteFile("blah2.txt");
+        renameFile("blah3.txt", "blah3-RENAMED.txt");
+        createNewFileWithContent("blah4.txt", "untracked");
+        createNewFileWithContent("blah5.txt", "staged");
+        createNewFileWithContent("ignored.log", "ignored");
+        sut.add("blah5.txt");
+
+        Map<String, GitDiffType> expected = new HashMap<>();
+        expected.put("blah1.txt", GitDiffType.MODIFY);
+        expected.put("blah2.txt", GitDiffType.DELETE);
+        expected.put("blah3.txt", GitDiffType.DELETE);
+        expected.put("blah3-RENAMED.txt", GitDiffType.ADD);
+        expected.put("blah4.txt", GitDiffType.ADD);
+        expected.put("blah5.txt", GitDiffType.ADD);
+        assertEquals(expected, sut.getFileToDiffTypeForRevision("HEAD", ThrowingGitWrapper.WORKING_TREE_REVISION));
+        expected.remove("blah3.txt");
+        expected.put("blah3-RENAMED.txt", GitDiffType.RENAME);
+        assertEquals(expected, sut.getFileToDiffTypeForRevision("HEAD", ThrowingGitWrapper.WORKING_TREE_REVISION, true));
+
+        assertEquals(asMap("blah5.txt", GitDiffType.ADD), sut.getFileToDiffTypeForRevision("HEAD", ThrowingGitWrapper.INDEX_REVISION));
+        expected.remove("blah5.txt");
+        expected.remove("blah3-RENAMED.txt");
+        expected.put("blah3.txt", GitDiffType.DELETE);
+        expected.put("blah3-RENAMED.txt", GitDiffType.ADD);
+        assertEquals(expected, sut.getFileToDiffTypeForRevision(ThrowingGitWrapper.INDEX_REVISION, ThrowingGitWrapper.WORKING_TREE_REVISION));
+
+        // nothing was staged or committed
+        assertEquals(asMap("blah5.txt", GitDiffType.ADD), sut.getFileToDiffTypeForRevision("HEAD", ThrowingGitWrapper.INDEX_REVISION));
+        assertThrows(IllegalArgumentException.class, () -> sut.getFileToDiffTypeForRevision(ThrowingGitWrapper.WORKING_TREE_REVISION, "HEAD"));
+    }
+
+    /**
+     * Passes <code>*.cancel</code> files through jGit built-in clean and smudge filters, which call the given callback each time,
+     * so a test can cancel an operation while it runs.
+     */
+    private void filterCancelFiles(T sut, Runnable callback) throws Exception {
+        String command = "jgit://builtin/" + getClass().getSimpleName() + "/" + _tempDir.getName();
+        FilterCommandFactory factory = (repository, in, out) -> {
+            callback.run();
+            return new FilterCommand(in, out) {
+                @Override
+                public int run() throws IOException {
+                    byte[] buffer = new byte[8192];
+                    int read = in.read(buffer);
+                    if (read < 0) {
+                        in.close();
+                        out.close();
+                        return -1;
+                    }
+                    out.write(buffer, 0, read);
+                    return read;
+                }
+            };
+        };
+        FilterCommandRegistry.register(command + "/clean", factory);
+        FilterCommandRegistry.register(command + "/smudge", factory);
+        _filterCommands.add(command + "/clean");
+        _filterCommands.add(command + "/smudge");
+        try (Git git = Git.open(_tempDir)) {
+            StoredConfig config = git.getRepository().getConfig();
+            config.setString("filter", "cancel", "clean", command + "/clean");
+            config.setString("filter", "cancel", "smudge", command + "/smudge");
+            config.save();
+        }
+        createNewFileWithContent(".gitattributes", "*.cancel filter=cancel\n");
+        sut.add(".gitattributes");
+        sut.commit("filter *.cancel files");
+    }
+
+    /**
+     * Writes the content to <code>a.cancel</code> and <code>b.cancel</code> and commits them.
+     */
+    private String commitCancelFiles(T sut, String content) throws Exception {
+        for (String fileName : asList("a.cancel", "b.cancel")) {
+            File file = new File(_tempDir, fileName);
+            if (!file.exists()) {
+                createNewFile(fileName);
+            }
+            writeContentToFile(file, content);
+        }
+        sut.addAll();
+        return sut.commit("cancel files: " + content);
+    }
+
+    private void assertRepositoryUnchanged(T sut, String headSha1, byte[] index) throws Exception {
+        assertEquals(headSha1, sut.getHeadSha1());
+        assertArrayEquals(index, Files.readAllBytes(new File(_tempDir, ".git/index").toPath()));
+        assertFalse(new File(_tempDir, ".git/MERGE_HEAD").exists());
+        assertFalse(new File(_tempDir, ".git/MERGE_MSG").exists());
+    }
+
     private void assertFileContent(File file, String expected) throws IOException {
         String actual = new BufferedReader(new FileReader(file)).readLine();
         assertEquals(expected, actual);
@@ -712,6 +2201,14 @@ public abstract class AbstractGitWrapperImplTest<T extends ThrowingGitWrapper> {
         return map;
     }
 
+    private Map<String, GitRefUpdateResult> asResultMap(GitRefUpdateResult result, String... branchNames) {
+        Map<String, GitRefUpdateResult> map = new HashMap<>();
+        for (String branchName : branchNames) {
+            map.put(branchName, result);
+        }
+        return map;
+    }
+
     protected abstract T createGitWrapper() throws IOException, GitAPIException;
 
     private static class TestGitWrapper extends ThrowingGitWrapperImpl {
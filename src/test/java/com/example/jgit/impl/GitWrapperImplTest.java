@@ -1,9 +1,29 @@
 package com.example.jgit.impl;
 
+import com.example.jgit.GitFanOutOptions;
+import com.example.jgit.GitFanOutResult;
 import com.example.jgit.GitWrapper;
 import com.example.jgit.GitWrapperFactory;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
 public class GitWrapperImplTest extends AbstractGitWrapperImplTest<GitWrapper> {
     @Override
     protected GitWrapper createGitWrapper() {
@@ -20,5 +40,103 @@ public class GitWrapperImplTest extends AbstractGitWrapperImplTest<GitWrapper> {
         // ... and so on ...
     }
 
+    @Test
+    public void test_that_commitFiles_works_for_bare_repositories() {
+        GitWrapper sut = GitWrapperFactory.createForLocalOnlyBareRepository(_tempDir);
+
+        String sha1 = sut.commitFiles("master", singletonMap("blah.txt", "12345".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+
+        assertEquals(sha1, sut.getHeadSha1());
+        assertEquals(Optional.of("12345"), sut.getFileContentOfRevision("master", "blah.txt"));
+        assertTrue(new File(_tempDir, "HEAD").exists());
+        assertFalse(new File(_tempDir, "blah.txt").exists());
+    }
+
+    @Test
+    public void test_that_lazily_created_GitWrapper_opens_the_repository_on_first_call() {
+        GitWrapper sut = GitWrapperFactory.createLazilyForLocalOnlyRepository(_tempDir);
+        assertFalse(new File(_tempDir, ".git").exists());
+
+        assertTrue(sut.status().isClean());
+        assertTrue(new File(_tempDir, ".git").exists());
+        assertFalse(sut.warmUp().join().getOpenDuration().isZero());
+    }
+
+    @Test
+    public void test_fanOut() {
+        File repository = new File(_tempDir, "repository");
+        File bareRepository = new File(_tempDir, "bare");
+        File noRepository = new File(_tempDir, "none");
+        File slowRepository = new File(_tempDir, "slow");
+        String sha1 = GitWrapperFactory.createForLocalOnlyRepository(repository)
+                .commitFiles("master", singletonMap("blah.txt", "1".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        String bareSha1 = GitWrapperFactory.createForLocalOnlyBareRepository(bareRepository)
+                .commitFiles("master", singletonMap("blah.txt", "2".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        GitWrapperFactory.createForLocalOnlyRepository(slowRepository)
+                .commitFiles("master", singletonMap("slow.txt", "3".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        Set<File> directories = new HashSet<>(asList(repository, bareRepository, noRepository, slowRepository));
+
+        Map<File, GitFanOutResult<String>> results;
+        try (Stream<GitFanOutResult<String>> stream = GitWrapperFactory.fanOut(directories, sut -> {
+            if (sut.getFileContentOfRevision("HEAD", "slow.txt").isPresent()) {
+                sleep(Duration.ofSeconds(2));
+            }
+            return sut.getHeadSha1();
+        }, new GitFanOutOptions().setParallelism(2).setTimeout(Duration.ofMillis(500)))) {
+            results = stream.collect(toMap(GitFanOutResult::getDirectory, result -> result));
+        }
+
+        assertEquals(directories, results.keySet());
+        assertEquals(Optional.of(sha1), results.get(repository).getValue());
+        assertEquals(Optional.of(bareSha1), results.get(bareRepository).getValue());
+        assertTrue(results.get(noRepository).getFailure().get() instanceof IllegalArgumentException);
+        assertFalse(new File(noRepository, ".git").exists());
+        assertTrue(results.get(slowRepository).getFailure().get() instanceof TimeoutException);
+    }
+
+    @Test
+    public void test_that_worktrees_share_the_object_database() throws Exception {
+        File repository = new File(_tempDir, "repository");
+        File worktreeDirectory = new File(_tempDir, "worktree");
+        GitWrapper main = GitWrapperFactory.createForLocalOnlyRepository(repository);
+        main.commitFiles("master", singletonMap("master.txt", "1".getBytes(StandardCharsets.UTF_8)), emptySet(), "initial commit");
+        main.resetHard();
+        main.createBranches(singletonMap("feature", "master"));
+        String featureSha1 = main.commitFiles("feature", singletonMap("feature.txt", "2".getBytes(StandardCharsets.UTF_8)), emptySet(), "feature");
+
+        GitWrapper worktree = GitWrapperFactory.createWorktree(repository, worktreeDirectory, "feature");
 
+        assertEquals("feature", worktree.getCurrentBranchName());
+        assertEquals(featureSha1, worktree.getHeadSha1());
+        assertTrue(new File(worktreeDirectory, "feature.txt").exists());
+        assertTrue(worktree.status().isClean());
+        assertEquals("master", main.getCurrentBranchName());
+        assertFalse(new File(repository, "feature.txt").exists());
+        // nothing copied but the refs
+        assertEquals(asList("info", "pack"), asList(new File(worktreeDirectory, ".git/objects").list()).stream().sorted().collect(toList()));
+
+        Files.write(new File(worktreeDirectory, "worktree.txt").toPath(), "3".getBytes(StandardCharsets.UTF_8));
+        worktree.add("worktree.txt");
+        worktree.commit("worktree commit");
+        // the worktree's branch is its own
+        assertEquals(Optional.empty(), main.getFileContentOfRevision("feature", "worktree.txt"));
+        assertTrue(main.status().isClean());
+
+        String masterSha1 = main.commitFiles("master", singletonMap("master.txt", "4".getBytes(StandardCharsets.UTF_8)), emptySet(), "master");
+        worktree.resetHardTo(masterSha1);
+        assertEquals("4", new String(Files.readAllBytes(new File(worktreeDirectory, "master.txt").toPath()), StandardCharsets.UTF_8));
+
+        assertEquals(masterSha1, GitWrapperFactory.createWorktree(repository, worktreeDirectory, "feature").getHeadSha1());
+        assertThrows(IllegalArgumentException.class, () -> GitWrapperFactory.createWorktree(repository, new File(_tempDir, "other"), "missing"));
+        assertFalse(new File(_tempDir, "other").exists());
+        assertThrows(IllegalArgumentException.class, () -> GitWrapperFactory.createWorktree(worktreeDirectory, repository, "master"));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
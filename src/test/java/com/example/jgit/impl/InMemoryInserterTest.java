@@ -0,0 +1,59 @@
+package com.example.jgit.impl;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryInserterTest {
+
+    private File _tempDir;
+    private Repository _repository;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        _tempDir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        _repository = Git.init().setDirectory(_tempDir).call().getRepository();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        _repository.close();
+        FileUtils.delete(_tempDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+    }
+
+    @Test
+    public void test_that_inserted_objects_are_read_back_without_being_written() throws IOException {
+        byte[] content = "in memory".getBytes(StandardCharsets.UTF_8);
+        InMemoryInserter inserter = new InMemoryInserter(_repository);
+
+        ObjectId blobId = inserter.insert(Constants.OBJ_BLOB, content.length, new ByteArrayInputStream(content));
+
+        assertEquals(inserter.idFor(Constants.OBJ_BLOB, content), blobId);
+        try (ObjectReader reader = inserter.newReader()) {
+            assertArrayEquals(content, reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes());
+        }
+        assertFalse(_repository.hasObject(blobId));
+    }
+
+    @Test
+    public void test_that_a_stream_shorter_than_its_length_is_not_inserted() {
+        InMemoryInserter inserter = new InMemoryInserter(_repository);
+
+        assertThrows(EOFException.class, () -> inserter.insert(Constants.OBJ_BLOB, 100, new ByteArrayInputStream(new byte[10])));
+    }
+}
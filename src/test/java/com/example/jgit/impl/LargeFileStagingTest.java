@@ -0,0 +1,96 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitLargeFileOptions;
+import com.example.jgit.ThrowingGitWrapper;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Commits a file larger than the heap of the JVM doing it, which only works if the file is never held on the heap.
+ */
+public class LargeFileStagingTest {
+
+    private static final String HEAP = "-Xmx32m";
+    private static final long FILE_SIZE = 96L * 1024 * 1024;
+
+    private File _tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        _tempDir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.delete(_tempDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+    }
+
+    @Test
+    public void test_that_a_file_larger_than_the_heap_can_be_committed() throws Exception {
+        File file = new File(_tempDir, "large.bin");
+        Random random = new Random(0);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            for (long written = 0; written < FILE_SIZE; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        Process process = new ProcessBuilder(java, HEAP, "-cp", System.getProperty("java.class.path"), Committer.class.getName(), _tempDir.getPath())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(_tempDir.getParentFile(), _tempDir.getName() + ".log"))
+                .start();
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        File log = new File(_tempDir.getParentFile(), _tempDir.getName() + ".log");
+        String output = new String(Files.readAllBytes(log.toPath()));
+        log.delete();
+        assertEquals(0, process.exitValue(), output);
+
+        try (Git git = Git.open(_tempDir);
+             InputStream in = new FileInputStream(file)) {
+            ObjectId expectedId = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, FILE_SIZE, in);
+            TreeWalk treeWalk = TreeWalk.forPath(git.getRepository(), "large.bin", git.getRepository().parseCommit(git.getRepository().resolve(Constants.HEAD)).getTree());
+            assertEquals(expectedId, treeWalk.getObjectId(0));
+            ObjectLoader loader = git.getRepository().open(expectedId);
+            assertEquals(FILE_SIZE, loader.getSize());
+            assertTrue(loader.isLarge());
+        }
+    }
+
+    /**
+     * Runs in the JVM with the small heap.
+     */
+    public static class Committer {
+        public static void main(String[] args) throws Exception {
+            ThrowingGitWrapper wrapper = ThrowingGitWrapperImpl.createForLocalOnlyRepository(new File(args[0]));
+            wrapper.enableLargeFileStaging(new GitLargeFileOptions().setCompressionLevel(0));
+            wrapper.addAll();
+            wrapper.commit("large file");
+            if (!wrapper.status().isClean()) {
+                throw new IllegalStateException("Not clean: " + wrapper.status());
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.jgit.impl;
+
+import com.example.jgit.GitRefUpdateResult;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class RefUpdateResultMapperTest {
+
+    @Test
+    public void test_convert() {
+        for (ReceiveCommand.Result originalResult : ReceiveCommand.Result.values()) {
+            GitRefUpdateResult actual = RefUpdateResultMapper.INSTANCE.convert(originalResult);
+
+            assertNotNull(actual);
+            assertEquals(originalResult.toString(), actual.toString());
+        }
+    }
+}
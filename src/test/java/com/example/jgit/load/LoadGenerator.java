@@ -0,0 +1,174 @@
+package com.example.jgit.load;
+
+import com.example.jgit.ThrowingGitWrapper;
+import com.example.jgit.impl.ThrowingGitWrapperImpl;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays a weighted mix of reading and writing {@link ThrowingGitWrapper} calls from several threads on one synthetic repository
+ * for a fixed time, then checks the repository's integrity and reports throughput and latency percentiles per operation.
+ * <p>
+ * All threads share one wrapper, like our services do. Writes working on the same working tree and index fail now and then
+ * (e.g. because the index is locked); such failures are counted, but must not break the repository.
+ * <p>
+ * Run from the command line (test classpath) with optional arguments like
+ * <code>threads=16 duration=PT1M files=5000 commits=500 GET_FILE_CONTENT=70 RESET_HARD=0</code>.
+ */
+public class LoadGenerator {
+
+    private int _threadCount = 8;
+    private Duration _duration = Duration.ofSeconds(30);
+    private int _fileCount = 1000;
+    private int _commitCount = 100;
+    private final Map<LoadOperation, Integer> _weights = new EnumMap<>(LoadOperation.class);
+
+    public LoadGenerator() {
+        _weights.put(LoadOperation.GET_FILE_CONTENT, 60);
+        _weights.put(LoadOperation.GET_COMMITS_BETWEEN, 25);
+        _weights.put(LoadOperation.ADD_AND_COMMIT, 10);
+        _weights.put(LoadOperation.MERGE, 3);
+        _weights.put(LoadOperation.RESET_HARD, 2);
+    }
+
+    public LoadGenerator setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        _threadCount = threadCount;
+        return this;
+    }
+
+    public LoadGenerator setDuration(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + duration);
+        }
+        _duration = duration;
+        return this;
+    }
+
+    /**
+     * @param fileCount number of files of the synthetic repository
+     */
+    public LoadGenerator setFileCount(int fileCount) {
+        if (fileCount < 1) {
+            throw new IllegalArgumentException("File count must be positive: " + fileCount);
+        }
+        _fileCount = fileCount;
+        return this;
+    }
+
+    /**
+     * @param commitCount number of commits of the synthetic repository's history
+     */
+    public LoadGenerator setCommitCount(int commitCount) {
+        if (commitCount < 1) {
+            throw new IllegalArgumentException("Commit count must be positive: " + commitCount);
+        }
+        _commitCount = commitCount;
+        return this;
+    }
+
+    /**
+     * @param weight relative frequency of the operation, 0 to leave it out
+     */
+    public LoadGenerator setWeight(LoadOperation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + weight);
+        }
+        _weights.put(operation, weight);
+        return this;
+    }
+
+    /**
+     * @param directory empty directory to create the synthetic repository in
+     */
+    public LoadReport run(File directory) throws Exception {
+        List<LoadOperation> mix = new ArrayList<>();
+        _weights.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                mix.add(operation);
+            }
+        });
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation must have a positive weight");
+        }
+        ThrowingGitWrapper wrapper = ThrowingGitWrapperImpl.createForLocalOnlyRepository(directory);
+        LoadRepository repository = new LoadRepository(directory);
+        repository.create(wrapper, _fileCount, _commitCount);
+
+        List<LoadReport.Recorder> recorders = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + _duration.toNanos();
+        for (int i = 0; i < _threadCount; i++) {
+            LoadReport.Recorder recorder = new LoadReport.Recorder();
+            recorders.add(recorder);
+            Random random = new Random(i);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() - endNanos < 0) {
+                    LoadOperation operation = mix.get(random.nextInt(mix.size()));
+                    Throwable failure = null;
+                    long operationStart = System.nanoTime();
+                    try {
+                        operation.execute(wrapper, repository, random);
+                    } catch (Exception | Error e) {
+                        failure = e;
+                    }
+                    recorder.record(operation, System.nanoTime() - operationStart, failure);
+                }
+            }, "load-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Duration actualDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+        return new LoadReport(recorders, actualDuration, repository.verify());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        for (String arg : args) {
+            String[] keyAndValue = arg.split("=", 2);
+            if (keyAndValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            switch (keyAndValue[0]) {
+                case "threads":
+                    generator.setThreadCount(Integer.parseInt(keyAndValue[1]));
+                    break;
+                case "duration":
+                    generator.setDuration(Duration.parse(keyAndValue[1]));
+                    break;
+                case "files":
+                    generator.setFileCount(Integer.parseInt(keyAndValue[1]));
+                    break;
+                case "commits":
+                    generator.setCommitCount(Integer.parseInt(keyAndValue[1]));
+                    break;
+                default:
+                    generator.setWeight(LoadOperation.valueOf(keyAndValue[0]), Integer.parseInt(keyAndValue[1]));
+            }
+        }
+        File directory = Files.createTempDirectory("load").toFile();
+        try {
+            LoadReport report = generator.run(directory);
+            System.out.println(report);
+            if (!report.getIntegrityProblems().isEmpty()) {
+                System.exit(1);
+            }
+        } finally {
+            FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+        }
+    }
+}
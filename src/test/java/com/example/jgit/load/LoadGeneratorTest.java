@@ -0,0 +1,47 @@
+package com.example.jgit.load;
+
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    private File _tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        _tempDir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.delete(_tempDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+    }
+
+    @Test
+    public void test_that_a_short_run_leaves_the_repository_intact() throws Exception {
+        LoadReport report = new LoadGenerator()
+                .setThreadCount(4)
+                .setDuration(Duration.ofSeconds(1))
+                .setFileCount(50)
+                .setCommitCount(10)
+                .run(_tempDir);
+
+        assertEquals(emptyList(), report.getIntegrityProblems());
+        LoadReport.OperationStatistics reads = report.getStatistics(LoadOperation.GET_FILE_CONTENT);
+        assertTrue(reads.getCount() > 0);
+        assertEquals(0, reads.getFailureCount());
+        assertTrue(reads.getThroughput() > 0);
+        assertTrue(reads.getLatency(50).compareTo(reads.getLatency(99)) <= 0);
+        assertTrue(reads.getLatency(99).compareTo(reads.getLatency(99.9)) <= 0);
+    }
+}
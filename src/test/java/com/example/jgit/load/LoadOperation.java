@@ -0,0 +1,77 @@
+package com.example.jgit.load;
+
+import com.example.jgit.ThrowingGitWrapper;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Operations replayed by the {@link LoadGenerator}, each a typical call (or short sequence of calls) of our services.
+ */
+public enum LoadOperation {
+
+    /**
+     * Reads a random file of HEAD
+     */
+    GET_FILE_CONTENT {
+        @Override
+        void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception {
+            wrapper.getFileContentOfRevision("HEAD", repository.getRandomFilePath(random));
+        }
+    },
+
+    /**
+     * Lists the commits between a random commit of the initial history and HEAD
+     */
+    GET_COMMITS_BETWEEN {
+        @Override
+        void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception {
+            wrapper.getCommitsBetween(repository.getRandomInitialCommit(random), "HEAD");
+        }
+    },
+
+    /**
+     * Changes a random file in the working tree, adds and commits it
+     */
+    ADD_AND_COMMIT {
+        @Override
+        void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception {
+            String filePath = repository.getRandomFilePath(random);
+            File file = new File(repository.getDirectory(), filePath);
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), ("changed " + random.nextLong() + "\n").getBytes(StandardCharsets.UTF_8));
+            wrapper.add(filePath);
+            wrapper.commit("change " + filePath);
+        }
+    },
+
+    /**
+     * Commits to a side branch (without checkout) and merges it into the checked out branch
+     */
+    MERGE {
+        @Override
+        void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception {
+            // files only changed on the side branch, so merges do not conflict
+            String filePath = "side/" + random.nextInt(repository.getFileCount()) + ".txt";
+            wrapper.commitFiles(LoadRepository.SIDE_BRANCH,
+                    Collections.singletonMap(filePath, ("side " + random.nextLong() + "\n").getBytes(StandardCharsets.UTF_8)),
+                    Collections.emptySet(), "change " + filePath);
+            wrapper.merge(LoadRepository.SIDE_BRANCH);
+        }
+    },
+
+    /**
+     * Discards all changes of the working tree
+     */
+    RESET_HARD {
+        @Override
+        void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception {
+            wrapper.resetHardTo("HEAD");
+        }
+    };
+
+    abstract void execute(ThrowingGitWrapper wrapper, LoadRepository repository, Random random) throws Exception;
+}
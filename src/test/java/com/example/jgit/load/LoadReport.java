@@ -0,0 +1,143 @@
+package com.example.jgit.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput and latencies per operation of a {@link LoadGenerator} run, plus the problems its integrity check found.
+ */
+public class LoadReport {
+
+    /**
+     * Collects the latencies of a single thread, so threads do not contend for recording.
+     */
+    static class Recorder {
+        private final Map<LoadOperation, long[]> _latencies = new EnumMap<>(LoadOperation.class);
+        private final Map<LoadOperation, Integer> _counts = new EnumMap<>(LoadOperation.class);
+        private final Map<LoadOperation, Integer> _failureCounts = new EnumMap<>(LoadOperation.class);
+        private final Map<LoadOperation, Throwable> _firstFailures = new EnumMap<>(LoadOperation.class);
+
+        void record(LoadOperation operation, long nanos, Throwable failure) {
+            int count = _counts.getOrDefault(operation, 0);
+            long[] latencies = _latencies.computeIfAbsent(operation, key -> new long[1024]);
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+                _latencies.put(operation, latencies);
+            }
+            latencies[count] = nanos;
+            _counts.put(operation, count + 1);
+            if (failure != null) {
+                _failureCounts.merge(operation, 1, Integer::sum);
+                _firstFailures.putIfAbsent(operation, failure);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a single operation.
+     */
+    public static class OperationStatistics {
+        private final long[] _sortedLatencies;
+        private final int _failureCount;
+        private final Throwable _firstFailure;
+        private final Duration _duration;
+
+        OperationStatistics(long[] sortedLatencies, int failureCount, Throwable firstFailure, Duration duration) {
+            _sortedLatencies = sortedLatencies;
+            _failureCount = failureCount;
+            _firstFailure = firstFailure;
+            _duration = duration;
+        }
+
+        /**
+         * @return number of executions, including failed ones
+         */
+        public int getCount() {
+            return _sortedLatencies.length;
+        }
+
+        /**
+         * @return number of executions that threw, e.g. because another thread held the index lock
+         */
+        public int getFailureCount() {
+            return _failureCount;
+        }
+
+        public Throwable getFirstFailure() {
+            return _firstFailure;
+        }
+
+        /**
+         * @return executions per second
+         */
+        public double getThroughput() {
+            return getCount() * 1e9 / _duration.toNanos();
+        }
+
+        /**
+         * @param percentile e.g. 99.9
+         * @return the latency not exceeded by the given percentage of executions (nearest rank)
+         */
+        public Duration getLatency(double percentile) {
+            if (_sortedLatencies.length == 0) {
+                return Duration.ZERO;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * _sortedLatencies.length);
+            return Duration.ofNanos(_sortedLatencies[Math.max(0, Math.min(rank, _sortedLatencies.length) - 1)]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8d ops %6d failed %10.1f ops/s   p50 %8.2f ms   p99 %8.2f ms   p99.9 %8.2f ms",
+                    getCount(), _failureCount, getThroughput(), millis(getLatency(50)), millis(getLatency(99)), millis(getLatency(99.9)));
+        }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1e6;
+        }
+    }
+
+    private final Map<LoadOperation, OperationStatistics> _statistics = new EnumMap<>(LoadOperation.class);
+    private final List<String> _integrityProblems;
+
+    LoadReport(List<Recorder> recorders, Duration duration, List<String> integrityProblems) {
+        for (LoadOperation operation : LoadOperation.values()) {
+            long[] latencies = recorders.stream()
+                    .flatMapToLong(recorder -> Arrays.stream(recorder._latencies.getOrDefault(operation, new long[0]), 0, recorder._counts.getOrDefault(operation, 0)))
+                    .sorted()
+                    .toArray();
+            int failureCount = recorders.stream().mapToInt(recorder -> recorder._failureCounts.getOrDefault(operation, 0)).sum();
+            Throwable firstFailure = recorders.stream().map(recorder -> recorder._firstFailures.get(operation)).filter(failure -> failure != null).findFirst().orElse(null);
+            _statistics.put(operation, new OperationStatistics(latencies, failureCount, firstFailure, duration));
+        }
+        _integrityProblems = Collections.unmodifiableList(integrityProblems);
+    }
+
+    public OperationStatistics getStatistics(LoadOperation operation) {
+        return _statistics.get(operation);
+    }
+
+    /**
+     * @return problems found by checking the repository after the run, empty if it is intact
+     */
+    public List<String> getIntegrityProblems() {
+        return _integrityProblems;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        _statistics.forEach((operation, statistics) -> {
+            result.append(String.format("%-20s %s%n", operation, statistics));
+            if (statistics.getFirstFailure() != null) {
+                result.append(String.format("%-20s first failure: %s%n", "", statistics.getFirstFailure()));
+            }
+        });
+        result.append(_integrityProblems.isEmpty() ? "repository is intact" : "repository is broken: " + _integrityProblems);
+        return result.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.jgit.load;
+
+import com.example.jgit.ThrowingGitWrapper;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectChecker;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic repository the {@link LoadGenerator} works on: files spread over some directories,
+ * with a linear history changing a few of them per commit, and a side branch to merge.
+ */
+class LoadRepository {
+
+    static final String MASTER = "master";
+    static final String SIDE_BRANCH = "side";
+    private static final int DIRECTORY_COUNT = 32;
+    private static final int FILES_CHANGED_PER_COMMIT = 10;
+
+    private final File _directory;
+    private final List<String> _filePaths = new ArrayList<>();
+    private final List<String> _initialCommits = new ArrayList<>();
+
+    LoadRepository(File directory) {
+        _directory = directory;
+    }
+
+    void create(ThrowingGitWrapper wrapper, int fileCount, int commitCount) throws Exception {
+        Random random = new Random(0);
+        Map<String, byte[]> changes = new HashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            String filePath = "dir" + (i % DIRECTORY_COUNT) + "/file" + i + ".txt";
+            _filePaths.add(filePath);
+            changes.put(filePath, content(random));
+        }
+        _initialCommits.add(wrapper.commitFiles(MASTER, changes, Collections.emptySet(), "initial commit"));
+        for (int i = 1; i < commitCount; i++) {
+            changes.clear();
+            for (int j = 0; j < FILES_CHANGED_PER_COMMIT; j++) {
+                changes.put(getRandomFilePath(random), content(random));
+            }
+            _initialCommits.add(wrapper.commitFiles(MASTER, changes, Collections.emptySet(), "commit " + i));
+        }
+        wrapper.createBranches(Collections.singletonMap(SIDE_BRANCH, MASTER));
+        // commitFiles does not touch the working tree
+        wrapper.resetHard();
+    }
+
+    private static byte[] content(Random random) {
+        StringBuilder content = new StringBuilder();
+        for (int line = random.nextInt(100); line >= 0; line--) {
+            content.append("line ").append(random.nextLong()).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    File getDirectory() {
+        return _directory;
+    }
+
+    int getFileCount() {
+        return _filePaths.size();
+    }
+
+    String getRandomFilePath(Random random) {
+        return _filePaths.get(random.nextInt(_filePaths.size()));
+    }
+
+    /**
+     * @return a commit that stays an ancestor of HEAD, whatever the load does
+     */
+    String getRandomInitialCommit(Random random) {
+        return _initialCommits.get(random.nextInt(_initialCommits.size()));
+    }
+
+    /**
+     * Similar to <a href="https://git-scm.com/docs/git-fsck">git fsck</a>: all objects reachable from refs must exist and be well-formed,
+     * the initial history must still be reachable, and the index must be readable.
+     *
+     * @return descriptions of the problems found, empty if there are none
+     */
+    List<String> verify() throws IOException {
+        List<String> problems = new ArrayList<>();
+        try (Git git = Git.open(_directory)) {
+            Repository repository = git.getRepository();
+            ObjectChecker checker = new ObjectChecker();
+            try (ObjectReader reader = repository.newObjectReader();
+                 ObjectWalk objectWalk = new ObjectWalk(reader)) {
+                for (Ref ref : repository.getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+                    if (ref.getObjectId() == null) {
+                        // HEAD without commit
+                        continue;
+                    }
+                    try {
+                        objectWalk.markStart(objectWalk.parseAny(ref.getObjectId()));
+                    } catch (MissingObjectException e) {
+                        problems.add(ref.getName() + " points to missing " + ref.getObjectId().name());
+                    }
+                }
+                RevCommit commit;
+                while ((commit = objectWalk.next()) != null) {
+                    check(checker, reader, commit, problems);
+                }
+                RevObject object;
+                while ((object = objectWalk.nextObject()) != null) {
+                    check(checker, reader, object, problems);
+                }
+            } catch (MissingObjectException e) {
+                problems.add(e.getMessage());
+            }
+            ObjectId masterId = repository.resolve(MASTER);
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                for (String initialCommit : _initialCommits) {
+                    revWalk.reset();
+                    if (masterId == null || !revWalk.isMergedInto(revWalk.parseCommit(ObjectId.fromString(initialCommit)), revWalk.parseCommit(masterId))) {
+                        problems.add("Initial commit " + initialCommit + " is not reachable from " + MASTER);
+                    }
+                }
+            } catch (MissingObjectException e) {
+                problems.add(e.getMessage());
+            }
+            try {
+                DirCache.read(repository).getEntryCount();
+            } catch (IOException e) {
+                problems.add("Index is not readable: " + e);
+            }
+        }
+        return problems;
+    }
+
+    private static void check(ObjectChecker checker, ObjectReader reader, RevObject object, List<String> problems) throws IOException {
+        try {
+            checker.check(object, object.getType(), reader.open(object, object.getType()).getCachedBytes(Integer.MAX_VALUE));
+        } catch (MissingObjectException | CorruptObjectException e) {
+            problems.add(e.getMessage());
+        }
+    }
+}